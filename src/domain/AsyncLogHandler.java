@@ -0,0 +1,122 @@
+package domain;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * Manejador de log asíncrono. Los registros se encolan en una cola circular acotada
+ * y un hilo escritor en segundo plano los formatea y los entrega al manejador destino.
+ * Quien registra nunca espera por disco: si la cola está llena el registro se descarta.
+ */
+public class AsyncLogHandler extends Handler {
+
+    private static final long IDLE_PARK_NANOS = 5_000_000L;
+
+    private final Handler target;
+    private final RingBuffer<LogRecord> queue;
+    private final LongAdder dropped;
+    private final Thread writer;
+    private volatile boolean running;
+
+    /**
+     * Crea el manejador asíncrono e inicia su hilo escritor.
+     * @param target manejador que realiza la escritura real
+     * @param capacity cantidad máxima de registros pendientes
+     */
+    public AsyncLogHandler(Handler target, int capacity) {
+        this.target = target;
+        this.queue = new RingBuffer<>(capacity);
+        this.dropped = new LongAdder();
+        this.running = true;
+        this.writer = new Thread(this::drainLoop, "badicecream-log-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Encola un registro sin bloquear. El formateo ocurre en el hilo escritor.
+     * @param record registro a publicar
+     */
+    @Override
+    public void publish(LogRecord record) {
+        if (!running || !isLoggable(record)) return;
+
+        // La inferencia del llamador recorre la pila; en el hilo escritor ya no sería válida
+        record.setSourceClassName(record.getLoggerName());
+        record.setSourceMethodName(null);
+
+        if (!queue.offer(record)) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * Bucle del hilo escritor: vacía la cola y espera brevemente cuando no hay trabajo.
+     */
+    private void drainLoop() {
+        while (running) {
+            if (drain() == 0) {
+                target.flush();
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        drain();
+        target.flush();
+    }
+
+    /**
+     * Entrega al destino todos los registros pendientes.
+     * @return cantidad de registros escritos
+     */
+    private int drain() {
+        int count = 0;
+        LogRecord r;
+        while ((r = queue.poll()) != null) {
+            target.publish(r);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Solicita al escritor vaciar la cola lo antes posible.
+     */
+    @Override
+    public void flush() {
+        LockSupport.unpark(writer);
+    }
+
+    /**
+     * Detiene el hilo escritor tras escribir los registros pendientes y cierra el destino.
+     */
+    @Override
+    public void close() {
+        if (!running) return;
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        long lost = dropped.sum();
+        if (lost > 0) {
+            LogRecord summary = new LogRecord(Level.WARNING, "Registros de log descartados por cola llena: {0}");
+            summary.setSourceClassName(AsyncLogHandler.class.getName());
+            summary.setParameters(new Object[]{lost});
+            target.publish(summary);
+        }
+        target.close();
+    }
+
+    /**
+     * Obtiene la cantidad de registros descartados por cola llena.
+     * @return registros descartados
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+}
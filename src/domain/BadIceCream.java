@@ -1,12 +1,13 @@
 package domain;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.List;
-import java.util.logging.FileHandler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.logging.SimpleFormatter;
 
 /**
  * Controla el estado general del juego Bad Ice Cream, incluyendo jugadores,
@@ -22,6 +23,10 @@ public class BadIceCream {
     private final List<Fruit> fruits;
     private final GameMap gameMap;
     private final List<ControllerCream> controllers;
+    private final TimingWheel timers;
+    private final GameRandom random;
+    private final WorldQuery world;
+    private EntityStore store;
     private static final Logger LOGGER = Logger.getLogger(BadIceCream.class.getName());
 
     private int score;
@@ -35,24 +40,21 @@ public class BadIceCream {
     private boolean paused = false;
 
     private int currentWave = 0;
-    private final List<Class<? extends Fruit>> fruitWaves = new ArrayList<>();
+    private final List<FruitType> fruitWaves = new ArrayList<>();
+    private final EnumMap<FruitType, List<Fruit>> waveBuckets = new EnumMap<>(FruitType.class);
+    private final int[] remainingByType = new int[FruitType.values().length];
 
-    private static final long MAX_TIME_MS = 180000;
-    private long startTime;
-    private long remainingTime;
-    private long pauseStartTime;
+    private static final double MAX_TIME_SECONDS = 180.0;
+    private final int timeLimit;
+    private long startTick;
     private boolean timeExpired = false;
 
     /**
-     * Inicializa el logger para el juego Bad Ice Cream.
+     * Inicializa el logger asíncrono para el juego Bad Ice Cream.
      */
     static {
         try {
-            FileHandler fileHandler = new FileHandler("logs/badicecream.log", true);
-            fileHandler.setFormatter(new SimpleFormatter());
-            LOGGER.addHandler(fileHandler);
-            LOGGER.setUseParentHandlers(false); // evita log en consola
-            LOGGER.setLevel(Level.ALL);
+            GameLog.install(LOGGER, "logs/badicecream.log");
         } catch (IOException e) {
             System.err.println("No se pudo inicializar el log de BadIceCream");
             e.printStackTrace();
@@ -60,10 +62,33 @@ public class BadIceCream {
     }
 
     /**
-     * Crea el controlador principal del juego utilizando un mapa específico.
+     * Crea el controlador principal del juego utilizando un mapa específico
+     * y la frecuencia de simulación por defecto.
      * @param map mapa donde se desarrollará la partida
      */
     public BadIceCream(GameMap map) {
+        this(map, TimingWheel.DEFAULT_TICK_RATE);
+    }
+
+    /**
+     * Crea el controlador principal del juego con una frecuencia de simulación dada.
+     * Todos los tiempos de la partida se miden en ticks de esa frecuencia, así que el
+     * resultado no depende del ritmo con que se dibuja la pantalla.
+     * @param map mapa donde se desarrollará la partida
+     * @param tickRate ticks de simulación por segundo
+     */
+    public BadIceCream(GameMap map, int tickRate) {
+        this(map, tickRate, System.nanoTime());
+    }
+
+    /**
+     * Crea el controlador principal del juego con una frecuencia de simulación y una semilla.
+     * Con la misma semilla y las mismas acciones por tick, dos partidas evolucionan igual.
+     * @param map mapa donde se desarrollará la partida
+     * @param tickRate ticks de simulación por segundo
+     * @param seed semilla del generador aleatorio de la partida
+     */
+    public BadIceCream(GameMap map, int tickRate, long seed) {
         if (map == null) {
             LOGGER.severe(BadIceCreamException.NULL_MAP);
             throw new BadIceCreamException(BadIceCreamException.NULL_MAP);
@@ -74,45 +99,96 @@ public class BadIceCream {
         this.enemies = new ArrayList<>();
         this.fruits = new ArrayList<>();
         this.controllers = new ArrayList<>();
+        this.timers = new TimingWheel(tickRate);
+        this.timeLimit = timers.ticksFor(MAX_TIME_SECONDS);
+        map.setTimers(timers);
+        this.random = new GameRandom(seed);
+        map.setRandom(random);
+        this.world = new WorldQuery(map);
         this.initialPlayerPositions = new ArrayList<>();
         this.initialEnemyPositions = new ArrayList<>();
         this.initialFruitPositions = new ArrayList<>();
         this.score = 0;
         this.gameWon = false;
         this.gameLost = false;
+        GameMetrics.get().observe(this);
     }
 
     /**
-     * Construye las oleadas de frutas a partir de los tipos registrados.
+     * Construye las oleadas de frutas a partir de los tipos registrados, en orden de aparición,
+     * agrupando las frutas de cada tipo y contando las que faltan por comer.
      */
     private void buildFruitWaves() {
         fruitWaves.clear();
-        List<Class<? extends Fruit>> seen = new ArrayList<>();
+        waveBuckets.clear();
 
         for (Fruit f : fruits) {
-            Class<? extends Fruit> type = f.getClass();
-            if (!seen.contains(type)) {
-                seen.add(type);
-                fruitWaves.add(type);
+            List<Fruit> bucket = waveBuckets.get(f.getType());
+            if (bucket == null) {
+                bucket = new ArrayList<>();
+                waveBuckets.put(f.getType(), bucket);
+                fruitWaves.add(f.getType());
+            }
+            bucket.add(f);
+        }
+        recountRemaining();
+    }
+
+    /**
+     * Recalcula cuántas frutas quedan sin comer en cada oleada.
+     */
+    private void recountRemaining() {
+        Arrays.fill(remainingByType, 0);
+        for (List<Fruit> bucket : waveBuckets.values()) {
+            for (Fruit f : bucket) {
+                if (!f.isEaten()) remainingByType[f.getType().ordinal()]++;
             }
         }
     }
 
     /**
-     * Activa la oleada actual de frutas en el mapa.
+     * Deja en el mapa solo las frutas de la oleada actual. Se usa al iniciar la partida.
      */
     private void spawnCurrentWave() {
         gameMap.removeAllFruits();
-        if (currentWave >= fruitWaves.size()) return;
+        for (List<Fruit> bucket : waveBuckets.values()) {
+            for (Fruit f : bucket) {
+                f.deactivate();
+            }
+        }
+        activateWave(currentWave);
+    }
 
-        Class<? extends Fruit> currentType = fruitWaves.get(currentWave);
+    /**
+     * Avanza a la oleada siguiente tocando solo las frutas de la oleada saliente y la entrante.
+     */
+    private void advanceWave() {
+        List<Fruit> previous = waveBuckets.get(fruitWaves.get(currentWave));
+        if (previous != null) {
+            for (Fruit f : previous) {
+                f.deactivate();
+                if (gameMap.getFruit(f.getPosition()) == f) gameMap.removeFruit(f.getPosition());
+            }
+        }
 
-        for (Fruit f : fruits) {
-            if (f.getClass() == currentType && !f.isEaten()) {
+        currentWave++;
+        activateWave(currentWave);
+    }
+
+    /**
+     * Activa en el mapa las frutas sin comer de una oleada.
+     * @param wave índice de la oleada
+     */
+    private void activateWave(int wave) {
+        if (wave >= fruitWaves.size()) return;
+
+        List<Fruit> bucket = waveBuckets.get(fruitWaves.get(wave));
+        if (bucket == null) return;
+
+        for (Fruit f : bucket) {
+            if (!f.isEaten()) {
                 f.activate();
                 gameMap.addFruit(f);
-            } else {
-                f.deactivate();
             }
         }
     }
@@ -129,9 +205,8 @@ public class BadIceCream {
                 throw new BadIceCreamException(BadIceCreamException.INVALID_WAVE_STATE);
             }
             currentWave = 0;
-            startTime = System.currentTimeMillis();
-            remainingTime = MAX_TIME_MS;
-        
+            startTick = timers.now();
+
             if (!fruitWaves.isEmpty()) {
                 spawnCurrentWave();
         }
@@ -153,6 +228,27 @@ public class BadIceCream {
         }
     }
 
+    /**
+     * Pasa a actualizar por lotes, desde un {@link EntityStore}, los enemigos y frutas cuyo
+     * tipo tiene núcleo de actualización; los demás siguen programándose uno por uno.
+     * Debe llamarse antes de registrar entidades.
+     */
+    public void useEntityStore() {
+        if (store != null) return;
+        if (!enemies.isEmpty() || !fruits.isEmpty()) {
+            throw new IllegalStateException("El almacén de entidades debe activarse antes de registrar entidades");
+        }
+        store = new EntityStore(gameMap, timers);
+        timers.schedule(store, 1);
+    }
+
+    /**
+     * @return almacén de entidades de la partida, o null si cada entidad se programa por separado
+     */
+    public EntityStore getEntityStore() {
+        return store;
+    }
+
     /**
      * Registra un controlador de entrada para el juego.
      * @param c controlador a agregar
@@ -163,6 +259,9 @@ public class BadIceCream {
             throw new BadIceCreamException(BadIceCreamException.NULL_ENTITY);
         }
         controllers.add(c);
+        if (c instanceof TimingWheel.Timed t) {
+            timers.schedule(t, 1);
+        }
     }
 
     /**
@@ -201,13 +300,15 @@ public class BadIceCream {
         try {
             e.setGameMap(gameMap);
             e.setGame(this);
+            e.setOrder(enemies.size());
             enemies.add(e);
             initialEnemyPositions.add(new Position(
                 e.getPosition().getRow(),
                 e.getPosition().getCol())
             );
             gameMap.addEnemy(e);
-            e.update();
+            int delay = e.firstDelay(timers);
+            if (store == null || !store.schedule(e, delay)) timers.schedule(e, delay);
         } catch (Exception ex) {
             LOGGER.log(Level.SEVERE, "Fallo crítico al registrar enemigo", ex);
             throw new BadIceCreamException(BadIceCreamException.MAP_INCONSISTENT_STATE, ex);
@@ -224,13 +325,15 @@ public class BadIceCream {
             throw new BadIceCreamException(BadIceCreamException.NULL_ENTITY);
         }
         try {
+            f.setOrder(fruits.size());
             fruits.add(f);
             initialFruitPositions.add(new Position(
                 f.getPosition().getRow(),
                 f.getPosition().getCol())
             );
             gameMap.addFruit(f);
-            f.upd(gameMap);
+            f.setGameMap(gameMap);
+            scheduleFruit(f);
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Fallo crítico al registrar fruta", e);
             throw new BadIceCreamException(BadIceCreamException.MAP_INCONSISTENT_STATE, e);
@@ -300,7 +403,7 @@ public class BadIceCream {
     private void timeOver() {
         LOGGER.warning("Juego perdido por tiempo agotado");
         for (IceCream p : players) {
-            p.die();
+            p.die(DeathCause.timeout);
         }
         gameLost = true;
     }
@@ -311,37 +414,24 @@ public class BadIceCream {
     public void updateGame() {
         if (gameLost || gameWon || paused) return;
 
+        long tickStart = System.nanoTime();
         try {
-            long now = System.currentTimeMillis();
-            remainingTime = MAX_TIME_MS - (now - startTime);
-        
-            if (remainingTime <= 0 && !timeExpired) {
+            if (timers.now() - startTick >= timeLimit && !timeExpired) {
                 timeExpired = true;
                 timeOver();
                 return;
             }
             if (fruitWaves.isEmpty()) return;
-            for (ControllerCream c : controllers) {
-                c.update();
-            }
-        
-            for (Enemy e : enemies) {
-                if (e.usesAutoMovement()) {
-                    Direction d = e.getNextDirection();
-                    if (d != null) {
-                        e.move(d);
-                        e.update();
-                    }
-                } else {
-                    e.update();
-                }
-            }
+
+            // controladores, enemigos, frutas y fogatas cuya activación vence en este tick
+            timers.advance();
+
             for (Enemy e : enemies) {
                 Position ePos = e.getPosition();
                 for (IceCream p : players) {
                     if (!p.isAlive()) continue;
                     if (p.getPosition().equals(ePos)) {
-                        p.die();
+                        p.die(DeathCause.enemy);
                     }
                 }
             }
@@ -362,28 +452,6 @@ public class BadIceCream {
                     if (gameLost) return;
                 }
             }
-            for (Fruit f: fruits) {
-                if (f != null) {
-                    try {
-                        f.upd(gameMap);
-                    } catch (Exception ex) {
-                        LOGGER.log(Level.WARNING, BadIceCreamException.FRUIT_FAILURE);
-                    }
-                }
-            }
-            for (int r = 0; r < gameMap.getRows(); r++) {
-                for (int c = 0; c < gameMap.getCols(); c++) {
-                    try {
-                        Boxy bloque = gameMap.getBlock(new Position(r, c));
-                        if (bloque != null && bloque.getType() == BoxType.bonfire) {
-                            ((Bonfire) bloque).update();
-                        }
-                    } catch (BadIceCreamException ex) {
-                        LOGGER.log(Level.SEVERE,"Acceso inválido al mapa en (" + r + "," + c + ")", ex);
-                        throw new BadIceCreamException(BadIceCreamException.MAP_INCONSISTENT_STATE, ex);
-                    }
-                }
-            }
             for (IceCream p : players) {
                 if (p.isAlive()) {
                     p.update();
@@ -395,6 +463,8 @@ public class BadIceCream {
         } catch (BadIceCreamException e) {
             LOGGER.log(Level.SEVERE, "Error crítico actualizando el juego", e);
             throw new BadIceCreamException(BadIceCreamException.GAME_UPDATE_FAILURE, e);
+        } finally {
+            GameMetrics.get().tick(System.nanoTime() - tickStart);
         }
     }
 
@@ -410,15 +480,17 @@ public class BadIceCream {
 
         Position pos = p.getPosition();
         if (gameMap.hasEnemy(pos)) {
-            p.die();
+            p.die(DeathCause.enemy);
         }
 
         Fruit f = gameMap.getFruit(pos);
         if (f != null && !f.isEaten()) {
             if (f.isDangerous()) {
-                p.die();
+                p.die(DeathCause.dangerousFruit);
             } else {
                 f.eat();
+                remainingByType[f.getType().ordinal()]--;
+                GameMetrics.get().fruitEaten(currentWave);
                 p.setScorePlayer(f.getScore());
                 gameMap.removeFruit(pos);
                 score += f.getScoreValue();
@@ -427,7 +499,7 @@ public class BadIceCream {
 
         Boxy b = gameMap.getBlock(pos);
         if (b != null && b.getType() == BoxType.bonfire && b.getState() == BoxState.on) {
-            p.die();
+            p.die(DeathCause.bonfire);
         }
 
         boolean allDead = true;
@@ -460,8 +532,7 @@ public class BadIceCream {
      */
     private void checkWinCondition() {
         if (gameWon) {
-            LOGGER.info("Juego ganado. Puntuación final: {0}");
-            LOGGER.log(Level.INFO, "Juego ganado. Puntuación final: {0}", totalScore());
+            GameLog.log(LOGGER, Level.INFO, null, "Juego ganado. Puntuación final: {0}", totalScore());
             return;
         }
 
@@ -470,22 +541,17 @@ public class BadIceCream {
             throw new BadIceCreamException(BadIceCreamException.INVALID_WAVE_STATE);
         }
 
-        Class<? extends Fruit> currentType = fruitWaves.get(currentWave);
-
-        for (Fruit f : fruits) {
-            if (f.getClass() == currentType && !f.isEaten()) {
-                return;
-            }
+        if (remainingByType[fruitWaves.get(currentWave).ordinal()] > 0) {
+            return;
         }
 
-        currentWave++;
-
-        if (currentWave >= fruitWaves.size()) {
+        if (currentWave + 1 >= fruitWaves.size()) {
+            currentWave++;
             gameWon = true;
             return;
         }
 
-        spawnCurrentWave();
+        advanceWave();
     }
 
     /**
@@ -496,8 +562,7 @@ public class BadIceCream {
         gameWon = false;
         gameLost = false;
 
-        startTime = System.currentTimeMillis();
-        remainingTime = MAX_TIME_MS;
+        startTick = timers.now();
         timeExpired = false;
 
         gameMap.clearEntities();
@@ -530,6 +595,19 @@ public class BadIceCream {
             f.setPosition(new Position(ini.getRow(), ini.getCol()));
             f.reset();
             gameMap.addFruit(f);
+            scheduleFruit(f);
+        }
+        recountRemaining();
+    }
+
+    /**
+     * Programa una fruta en la rueda de la partida si tiene comportamiento periódico.
+     * @param f fruta a programar
+     */
+    private void scheduleFruit(Fruit f) {
+        int period = f.timerPeriod(timers);
+        if (period > 0 && (store == null || !store.schedule(f, period))) {
+            timers.schedule(f, period);
         }
     }
 
@@ -547,6 +625,13 @@ public class BadIceCream {
         return enemies;
     }
 
+    /**
+     * @return consultas sobre enemigos compartidas por los controladores automáticos
+     */
+    public WorldQuery getWorld() {
+        return world;
+    }
+
     /**
      * @return lista de frutas
      */
@@ -583,19 +668,37 @@ public class BadIceCream {
     }
 
     /**
-     * Cambia el estado de pausa del juego.
+     * Obtiene el hash de Zobrist del estado de la partida: el del mapa más la oleada, el
+     * puntaje, el resultado y la posición, dirección, marcas y puntaje de cada jugador. Los
+     * jugadores y los globales son pocos y se mezclan al consultar; el mapa ya lo trae hecho.
+     * No incluye el tiempo transcurrido, así que el mismo estado alcanzado en distintos ticks
+     * da el mismo valor.
+     * @return hash del estado
+     */
+    public long getZobrist() {
+        long h = gameMap.getZobrist()
+                ^ Zobrist.key(Zobrist.GLOBAL, 0, currentWave)
+                ^ Zobrist.key(Zobrist.GLOBAL, 1, score)
+                ^ Zobrist.key(Zobrist.GLOBAL, 2, (gameWon ? 1 : 0) | (gameLost ? 2 : 0));
+        for (int i = 0; i < players.size(); i++) {
+            IceCream p = players.get(i);
+            Position pos = p.getPosition();
+            long cell = (long) pos.getRow() * gameMap.getCols() + pos.getCol();
+            int dir = p.getDir() == null ? 4 : p.getDir().ordinal();
+            h ^= Zobrist.key(Zobrist.PLAYER, 2L * i, cell << 16 | dir << 8 | p.replicaFlags())
+                    ^ Zobrist.key(Zobrist.PLAYER, 2L * i + 1, p.getScore());
+        }
+        return h;
+    }
+
+    /**
+     * Cambia el estado de pausa del juego. En pausa no avanzan los ticks,
+     * así que el reloj de la partida se detiene sin ajustes adicionales.
      * @param p nuevo estado de pausa
      */
     public void setPaused(boolean p) {
-        if (!paused && p) {
-            LOGGER.info("Juego pausado");
-            pauseStartTime = System.currentTimeMillis();
-        }
-        if (paused && !p) {
-            LOGGER.info("Juego reanudado");
-            long pauseDuration = System.currentTimeMillis() - pauseStartTime;
-            startTime += pauseDuration;
-        }
+        if (!paused && p) LOGGER.info("Juego pausado");
+        if (paused && !p) LOGGER.info("Juego reanudado");
         paused = p;
     }
 
@@ -610,7 +713,7 @@ public class BadIceCream {
      * @return tiempo restante en milisegundos
      */
     public long[] getRemainingTimeMs() {
-        long timeLeft = Math.max(0, MAX_TIME_MS - (System.currentTimeMillis() - startTime));
+        long timeLeft = timers.millisOf(Math.max(0, timeLimit - (timers.now() - startTick)));
         return new long[] { timeLeft / 60000, (timeLeft % 60000) / 1000 };
     }
 
@@ -618,15 +721,133 @@ public class BadIceCream {
      * @return tiempo total de juego transcurrido
      */
     public long getGameTime() {
-        return System.currentTimeMillis() - startTime;
+        return timers.millisOf(timers.now() - startTick);
+    }
+
+    /**
+     * @return ticks de simulación transcurridos desde el inicio de la partida
+     */
+    public long getElapsedTicks() {
+        return timers.now() - startTick;
+    }
+
+    /**
+     * Aplica el estado global recibido del servidor en una réplica que no se simula localmente.
+     * @param s puntaje total
+     * @param wave oleada actual
+     * @param won true si la partida se ganó
+     * @param lost true si la partida se perdió
+     * @param elapsedTicks ticks transcurridos en el servidor
+     */
+    void applyReplica(int s, int wave, boolean won, boolean lost, long elapsedTicks) {
+        this.score = s;
+        this.currentWave = wave;
+        this.gameWon = won;
+        this.gameLost = lost;
+        this.startTick = timers.now() - elapsedTicks;
+    }
+
+    /**
+     * Guarda el estado completo de la partida en una instantánea reutilizable: globales,
+     * generador aleatorio, rueda de temporización, bloques, entidades y controladores.
+     * @param snap instantánea a sobrescribir
+     */
+    public void saveState(GameSnapshot snap) {
+        int cells = gameMap.getRows() * gameMap.getCols();
+        if (snap.blocks.length != cells) {
+            snap.blocks = new Boxy[cells];
+            snap.blockStates = new byte[cells];
+        }
+        gameMap.saveBlocks(snap.blocks, snap.blockStates);
+        timers.save(snap.wheel);
+        snap.random = random.getState();
+
+        int entities = players.size() + enemies.size() + fruits.size() + controllers.size();
+        int stored = store == null ? 0 : store.size() * 8;
+        ByteBuffer out = snap.begin(64 + remainingByType.length * 4 + entities * 64 + stored);
+        out.putInt(score);
+        out.put((byte) ((gameWon ? 1 : 0) | (gameLost ? 2 : 0) | (timeExpired ? 4 : 0)));
+        out.putInt(currentWave);
+        out.putLong(startTick);
+        for (int remaining : remainingByType) out.putInt(remaining);
+
+        for (IceCream p : players) {
+            p.writeState(out);
+            out.put((byte) (gameMap.getPlayer(p.getPosition()) == p ? 1 : 0));
+        }
+        for (Enemy e : enemies) {
+            e.writeState(out);
+            out.put((byte) (gameMap.getEnemy(e.getPosition()) == e ? 1 : 0));
+        }
+        for (Fruit f : fruits) {
+            f.writeState(out);
+            out.put((byte) (gameMap.getFruit(f.getPosition()) == f ? 1 : 0));
+        }
+        for (ControllerCream c : controllers) c.writeState(out);
+        if (store != null) store.writeState(out);
+        out.flip();
+        snap.setTick(timers.now());
+    }
+
+    /**
+     * Devuelve la partida exactamente al estado guardado en una instantánea.
+     * La pausa no forma parte del estado y no se modifica.
+     * @param snap instantánea tomada con {@link #saveState} sobre esta misma partida
+     */
+    public void loadState(GameSnapshot snap) {
+        if (snap.getTick() < 0) throw new IllegalArgumentException("Instantánea vacía");
+
+        gameMap.restoreBlocks(snap.blocks, snap.blockStates);
+        timers.restore(snap.wheel);
+        random.setState(snap.random);
+
+        ByteBuffer in = snap.data.duplicate();
+        score = in.getInt();
+        int flags = in.get();
+        gameWon = (flags & 1) != 0;
+        gameLost = (flags & 2) != 0;
+        timeExpired = (flags & 4) != 0;
+        currentWave = in.getInt();
+        startTick = in.getLong();
+        for (int i = 0; i < remainingByType.length; i++) remainingByType[i] = in.getInt();
+
+        gameMap.clearEntities();
+        for (IceCream p : players) {
+            p.readState(in);
+            if (in.get() != 0) gameMap.addPlayer(p);
+        }
+        for (Enemy e : enemies) {
+            e.readState(in);
+            if (in.get() != 0) gameMap.addEnemy(e);
+        }
+        for (Fruit f : fruits) {
+            f.readState(in);
+            if (in.get() != 0) gameMap.addFruit(f);
+        }
+        for (ControllerCream c : controllers) c.readState(in);
+        if (store != null) store.readState(in);
+    }
+
+    /**
+     * @return ticks de simulación por segundo de la partida
+     */
+    public int getTickRate() {
+        return timers.getTickRate();
     }
 
     public int getCurrentWave() {
         return currentWave;
     }
 
-    public void setFruitWaveOrder(List<Class<? extends Fruit>> order) {
+    /**
+     * Cambia el orden de las oleadas de frutas.
+     * @param order tipos de fruta en el orden en que deben aparecer
+     */
+    public void setFruitWaveOrder(List<FruitType> order) {
         fruitWaves.clear();
         fruitWaves.addAll(order);
+        for (FruitType type : order) {
+            waveBuckets.computeIfAbsent(type, t -> new ArrayList<>());
+        }
     }
 }
\ No newline at end of file
@@ -5,10 +5,10 @@ package domain;
  * La fogata puede apagarse temporalmente al ser congelada
  * y vuelve a encenderse automáticamente tras un tiempo definido.
  */
-public class Bonfire extends Boxy {
+public class Bonfire extends Boxy implements TimingWheel.Timed {
 
-    private long freezeTimestamp;
-    private static final long FREEZE_DURATION = 10000;
+    private static final double FREEZE_DURATION = 10.0;
+    private Ice cover;
 
     /**
      * Crea una fogata en una posición específica con un estado inicial.
@@ -17,7 +17,6 @@ public class Bonfire extends Boxy {
      */
     public Bonfire(Position position, BoxState state) {
         super(BoxType.bonfire, position, state);
-        this.freezeTimestamp = 0;
     }
 
     /**
@@ -48,13 +47,14 @@ public class Bonfire extends Boxy {
     }
 
     /**
-     * Enciende la fogata y reinicia el temporizador de congelación.
+     * Enciende la fogata y cancela el reencendido pendiente.
      */
     @Override
     public void on() {
         if (state != BoxState.on) {
             super.on();
-            freezeTimestamp = 0;
+            TimingWheel timers = timers();
+            if (timers != null) timers.cancel(this);
         }
     }
 
@@ -70,12 +70,13 @@ public class Bonfire extends Boxy {
 
     /**
      * Se ejecuta cuando la fogata es congelada por hielo.
-     * Apaga la fogata y registra el momento de la congelación.
+     * Apaga la fogata; mientras el hielo la cubra no se reenciende.
      */
     @Override
     public void onFreeze() {
         off();
-        freezeTimestamp = System.currentTimeMillis();
+        TimingWheel timers = timers();
+        if (timers != null) timers.cancel(this);
     }
 
     /**
@@ -83,21 +84,48 @@ public class Bonfire extends Boxy {
      */
     @Override
     public void iniciarTimer() {
-        freezeTimestamp = System.currentTimeMillis();
+        TimingWheel timers = timers();
+        if (timers != null) timers.schedule(this, timers.ticksFor(FREEZE_DURATION));
     }
 
     /**
-     * Actualiza el estado de la fogata y verifica si debe volver a encenderse
-     * después de haber sido congelada.
+     * La fogata no se consulta en cada tick: la rueda de la partida la reenciende.
      */
     @Override
     public void update() {
-        if (state == BoxState.off && freezeTimestamp > 0) {
-            long elapsed = System.currentTimeMillis() - freezeTimestamp;
-            if (elapsed >= FREEZE_DURATION) {
-                on();
-            }
+    }
+
+    /**
+     * Reenciende la fogata cuando vence su tiempo apagada.
+     * @param timers rueda de la partida
+     * @return 0, el reencendido no se repite
+     */
+    @Override
+    public int onTimer(TimingWheel timers) {
+        if (state == BoxState.off) {
+            on();
+        }
+        return 0;
+    }
+
+    /**
+     * Obtiene la rueda de la partida a través del mapa.
+     * @return rueda de la partida o null si la fogata aún no está en un mapa
+     */
+    private TimingWheel timers() {
+        return map != null ? map.getTimers() : null;
+    }
+
+    /**
+     * Obtiene el hielo que cubre la fogata al congelarla. Se crea una sola vez
+     * y se reutiliza en cada congelación.
+     * @return hielo asociado a la fogata
+     */
+    public Ice getCover() {
+        if (cover == null) {
+            cover = new Ice(position, BoxState.destroyed, this);
         }
+        return cover;
     }
 
     /**
@@ -106,6 +134,6 @@ public class Bonfire extends Boxy {
      */
     @Override
     public void onUnfreeze() {
-        freezeTimestamp = System.currentTimeMillis();
+        iniciarTimer();
     }
 }
\ No newline at end of file
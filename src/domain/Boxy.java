@@ -10,6 +10,7 @@ public abstract class Boxy {
     protected BoxState state;
     protected Position position;
     protected GameMap map;
+    private int hashedCode;
 
     /**
      * Crea un bloque con un tipo, estado y posición inicial.
@@ -31,6 +32,22 @@ public abstract class Boxy {
         this.map = m;
     }
 
+    /**
+     * Obtiene el código con el que el bloque entró por última vez al hash del mapa.
+     * @return código según {@link Zobrist#blockCode}, 0 si el bloque no está en el mapa
+     */
+    int getHashedCode() {
+        return hashedCode;
+    }
+
+    /**
+     * Registra el código con el que el bloque quedó en el hash del mapa.
+     * @param hashedCode código nuevo, 0 al sacarlo del mapa
+     */
+    void setHashedCode(int hashedCode) {
+        this.hashedCode = hashedCode;
+    }
+
     /**
      * Obtiene el tipo del bloque.
      * @return tipo de bloque
@@ -75,21 +92,40 @@ public abstract class Boxy {
      * Cambia el estado del bloque a creado.
      */
     public void create() {
-        this.state = BoxState.created;
+        setState(BoxState.created);
     }
 
     /**
      * Cambia el estado del bloque a indestructible.
      */
     public void indestructible() {
-        this.state = BoxState.indestructible;
+        setState(BoxState.indestructible);
     }
 
     /**
      * Cambia el estado del bloque a destruido.
      */
     public void destroy() {
-        this.state = BoxState.destroyed;
+        setState(BoxState.destroyed);
+    }
+
+    /**
+     * Cambia el estado del bloque y avisa al mapa para que el cambio se
+     * incluya en la próxima sincronización.
+     * @param state nuevo estado
+     */
+    protected void setState(BoxState state) {
+        if (this.state == state) return;
+        this.state = state;
+        if (map != null && position != null) map.blockChanged(position.getRow(), position.getCol());
+    }
+
+    /**
+     * Aplica un estado recibido del servidor sin ejecutar la lógica del bloque.
+     * @param state estado replicado
+     */
+    void restoreState(BoxState state) {
+        setState(state);
     }
 
     /**
@@ -114,14 +150,14 @@ public abstract class Boxy {
      * Cambia el estado del bloque a encendido.
      */
     public void on() {
-        this.state = BoxState.on;
+        setState(BoxState.on);
     }
 
     /**
      * Cambia el estado del bloque a apagado.
      */
     public void off() {
-        this.state = BoxState.off;
+        setState(BoxState.off);
     }
 
     /**
@@ -0,0 +1,138 @@
+package domain;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Envoltorio que mide cuánto tarda cada decisión de un controlador automático y le impone
+ * un presupuesto en nanosegundos. La decisión corre en el mismo hilo que el tick y no puede
+ * interrumpirse, así que el presupuesto se cobra después: si una decisión se pasa, las
+ * siguientes se reemplazan por una de respaldo, repetir el último movimiento, hasta
+ * compensar el exceso. Así un controlador lento no alarga todos los ticks seguidos.
+ * <p>
+ * Con presupuesto el resultado depende del reloj, así que solo debe activarse en partidas
+ * locales; las partidas en red, con reversión o de torneo lo dejan sin límite y solo miden.
+ */
+public final class BudgetedController implements ControllerCream, TimingWheel.Timed {
+
+    /** Decisiones de respaldo como máximo por un solo exceso. */
+    static final int MAX_FALLBACKS = 8;
+
+    private final ControllerCream delegate;
+    private final String type;
+    private final long budgetNanos;
+    private IceCream player;
+
+    private int pendingFallbacks;
+    private int period = 1;
+
+    /**
+     * @param delegate controlador envuelto
+     * @param budgetNanos presupuesto por decisión en nanosegundos, 0 para solo medir
+     */
+    public BudgetedController(ControllerCream delegate, long budgetNanos) {
+        if (delegate == null) throw new IllegalArgumentException("Controlador nulo");
+        if (budgetNanos < 0) throw new IllegalArgumentException("Presupuesto inválido: " + budgetNanos);
+        this.delegate = delegate;
+        this.type = delegate.getClass().getSimpleName();
+        this.budgetNanos = budgetNanos;
+    }
+
+    /**
+     * Activación programada por la rueda de la partida. Conserva el periodo de decisión
+     * del controlador envuelto también cuando decide el respaldo.
+     * @param timers rueda de la partida
+     * @return ticks hasta la siguiente decisión
+     */
+    @Override
+    public int onTimer(TimingWheel timers) {
+        if (!(delegate instanceof TimingWheel.Timed timed)) {
+            update();
+            return period;
+        }
+        if (pendingFallbacks > 0) {
+            fallback();
+            return period;
+        }
+        long start = System.nanoTime();
+        period = timed.onTimer(timers);
+        charge(System.nanoTime() - start);
+        return period;
+    }
+
+    /**
+     * Toma una decisión, con el controlador envuelto o con el respaldo si está pagando
+     * un exceso anterior.
+     */
+    @Override
+    public void update() {
+        if (pendingFallbacks > 0) {
+            fallback();
+            return;
+        }
+        long start = System.nanoTime();
+        delegate.update();
+        charge(System.nanoTime() - start);
+    }
+
+    /**
+     * Registra la duración de una decisión y, si superó el presupuesto, cuántas decisiones
+     * de respaldo la compensan.
+     * @param nanos duración de la decisión
+     */
+    private void charge(long nanos) {
+        boolean over = budgetNanos > 0 && nanos > budgetNanos;
+        GameMetrics.get().decision(type, nanos, over);
+        if (over) pendingFallbacks = (int) Math.min(MAX_FALLBACKS, (nanos - 1) / budgetNanos);
+    }
+
+    /**
+     * Decisión de respaldo: seguir en la dirección en que mira el jugador.
+     */
+    private void fallback() {
+        pendingFallbacks--;
+        GameMetrics.get().decisionFallback(type);
+        if (player != null && player.isAlive()) player.move(player.getFacingDirection());
+    }
+
+    /**
+     * Asigna el jugador al controlador envuelto.
+     * @param player jugador a controlar
+     */
+    @Override
+    public void setPlayer(IceCream player) {
+        this.player = player;
+        delegate.setPlayer(player);
+    }
+
+    /**
+     * Escribe la memoria del controlador envuelto.
+     * @param out destino
+     */
+    @Override
+    public void writeState(ByteBuffer out) {
+        delegate.writeState(out);
+    }
+
+    /**
+     * Restaura la memoria del controlador envuelto.
+     * @param in origen
+     */
+    @Override
+    public void readState(ByteBuffer in) {
+        delegate.readState(in);
+    }
+
+    /**
+     * @return controlador envuelto
+     */
+    public ControllerCream getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * @return presupuesto por decisión en nanosegundos, 0 si solo mide
+     */
+    public long getBudgetNanos() {
+        return budgetNanos;
+    }
+}
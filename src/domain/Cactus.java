@@ -7,8 +7,7 @@ package domain;
  */
 public class Cactus extends Fruit {
 
-    private static final int STATE_CHANGE_INTERVAL = 30000;
-    private long lastStateChangeTime;
+    private static final double STATE_CHANGE_INTERVAL = 30.0;
 
     /**
      * Crea un cactus en una posición específica del mapa.
@@ -18,7 +17,6 @@ public class Cactus extends Fruit {
         super(FruitType.cactus, position, 0, true);
         this.scoreValue = 250;
         this.state = FruitState.active;
-        this.lastStateChangeTime = System.currentTimeMillis();
     }
 
     /**
@@ -31,8 +29,8 @@ public class Cactus extends Fruit {
     }
 
     /**
-     * Actualiza el estado del cactus y gestiona el cambio periódico
-     * entre estado seguro y estado peligroso.
+     * Alterna el cactus entre estado seguro y estado peligroso.
+     * La rueda de la partida lo invoca cada 30 segundos.
      */
     @Override
     public void update() {
@@ -40,18 +38,22 @@ public class Cactus extends Fruit {
         if (state == FruitState.eaten) return;
         if (frozen) return;
 
-        long currentTime = System.currentTimeMillis();
-
-        if (currentTime - lastStateChangeTime >= STATE_CHANGE_INTERVAL) {
-            if (state == FruitState.active) {
-                state = FruitState.dangerous;
-            } else if (state == FruitState.dangerous) {
-                state = FruitState.active;
-            }
-            lastStateChangeTime = currentTime;
+        if (state == FruitState.active) {
+            setState(FruitState.dangerous);
+        } else if (state == FruitState.dangerous) {
+            setState(FruitState.active);
         }
     }
 
+    /**
+     * @param timers rueda de la partida
+     * @return ticks entre cambios de estado
+     */
+    @Override
+    public int timerPeriod(TimingWheel timers) {
+        return timers.ticksFor(STATE_CHANGE_INTERVAL);
+    }
+
     /**
      * Obtiene la clave del sprite correspondiente al estado actual del cactus.
      * @return clave del sprite a utilizar
@@ -7,8 +7,7 @@ package domain;
  */
 public class Cherry extends Fruit {
 
-    private static final int TELEPORT_INTERVAL = 20000;
-    private long lastTeleportTime;
+    private static final double TELEPORT_INTERVAL = 20.0;
     private GameMap gameMap;
 
     /**
@@ -17,7 +16,6 @@ public class Cherry extends Fruit {
      */
     public Cherry(Position position) {
         super(FruitType.cherry, position, 0, false);
-        this.lastTeleportTime = System.currentTimeMillis();
         this.scoreValue = 150;
     }
 
@@ -34,13 +32,14 @@ public class Cherry extends Fruit {
      * Establece el mapa de juego donde se encuentra la cereza.
      * @param map mapa donde se encuentra la cereza
      */
+    @Override
     public void setGameMap(GameMap map) {
         this.gameMap = map;
     }
 
     /**
-     * Actualiza el estado de la cereza y gestiona su teletransportación
-     * a una posición aleatoria cada 20 segundos.
+     * Teletransporta la cereza a una posición aleatoria.
+     * La rueda de la partida la invoca cada 20 segundos.
      */
     @Override
     public void update() {
@@ -48,12 +47,16 @@ public class Cherry extends Fruit {
         if (state == FruitState.eaten || gameMap == null) return;
         if (frozen) return;
 
-        long currentTime = System.currentTimeMillis();
+        teleport();
+    }
 
-        if (currentTime - lastTeleportTime >= TELEPORT_INTERVAL) {
-            teleport();
-            lastTeleportTime = currentTime;
-        }
+    /**
+     * @param timers rueda de la partida
+     * @return ticks entre teletransportes
+     */
+    @Override
+    public int timerPeriod(TimingWheel timers) {
+        return timers.ticksFor(TELEPORT_INTERVAL);
     }
 
     /**
@@ -70,7 +73,7 @@ public class Cherry extends Fruit {
      * Teletransporta la cereza a una posición aleatoria libre en el mapa.
      */
     private void teleport() {
-        state = FruitState.teleporting;
+        setState(FruitState.teleporting);
 
         Position newPos = findRandomFreePosition();
         if (newPos != null) {
@@ -79,7 +82,7 @@ public class Cherry extends Fruit {
             gameMap.addFruit(this);
         }
 
-        state = FruitState.active;
+        setState(FruitState.active);
     }
 
     /**
@@ -92,8 +95,8 @@ public class Cherry extends Fruit {
         int maxAttempts = 100;
 
         for (int i = 0; i < maxAttempts; i++) {
-            int r = 1 + (int)(Math.random() * (rows - 2));
-            int c = 1 + (int)(Math.random() * (cols - 2));
+            int r = 1 + gameMap.getRandom().nextInt(rows - 2);
+            int c = 1 + gameMap.getRandom().nextInt(cols - 2);
             Position pos = new Position(r, c);
 
             if (!gameMap.isBlocked(pos) &&
@@ -0,0 +1,161 @@
+package domain;
+
+import java.util.Arrays;
+
+/**
+ * Cuadrícula dispersa dividida en regiones de 32x32 casillas que se reservan solo
+ * cuando se escribe en ellas. Las zonas vacías del mapa no ocupan memoria y los
+ * recorridos completos visitan únicamente las regiones reservadas.
+ * @param <T> tipo de elemento almacenado en cada casilla
+ */
+public final class ChunkedGrid<T> {
+
+    static final int SHIFT = 5;
+    static final int SIZE = 1 << SHIFT;
+    private static final int MASK = SIZE - 1;
+
+    /**
+     * Visitante de las casillas ocupadas de la cuadrícula.
+     * @param <T> tipo de elemento almacenado
+     */
+    @FunctionalInterface
+    public interface CellVisitor<T> {
+        /**
+         * Procesa una casilla ocupada.
+         * @param row fila de la casilla
+         * @param col columna de la casilla
+         * @param value elemento almacenado
+         */
+        void visit(int row, int col, T value);
+    }
+
+    private final int rows;
+    private final int cols;
+    private final int chunkCols;
+    private final Object[][] chunks;
+
+    /**
+     * Crea una cuadrícula vacía del tamaño indicado.
+     * @param rows número de filas
+     * @param cols número de columnas
+     */
+    public ChunkedGrid(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+        this.chunkCols = (cols + MASK) >> SHIFT;
+        int chunkRows = (rows + MASK) >> SHIFT;
+        this.chunks = new Object[chunkRows * chunkCols][];
+    }
+
+    /**
+     * Obtiene el elemento de una casilla.
+     * @param row fila
+     * @param col columna
+     * @return elemento almacenado o null si la casilla está vacía
+     * @throws IndexOutOfBoundsException si la casilla está fuera de la cuadrícula
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int row, int col) {
+        Object[] chunk = chunks[chunkIndex(row, col)];
+        return chunk == null ? null : (T) chunk[((row & MASK) << SHIFT) | (col & MASK)];
+    }
+
+    /**
+     * Asigna el elemento de una casilla, reservando su región si hace falta.
+     * @param row fila
+     * @param col columna
+     * @param value elemento a guardar o null para vaciar la casilla
+     * @throws IndexOutOfBoundsException si la casilla está fuera de la cuadrícula
+     */
+    public void set(int row, int col, T value) {
+        int idx = chunkIndex(row, col);
+        Object[] chunk = chunks[idx];
+        if (chunk == null) {
+            if (value == null) return;
+            chunk = new Object[SIZE * SIZE];
+            chunks[idx] = chunk;
+        }
+        chunk[((row & MASK) << SHIFT) | (col & MASK)] = value;
+    }
+
+    /**
+     * Obtiene la región de una casilla. Se comprueban la fila y la columna porque una
+     * columna fuera de rango caería en otra región, o en otra fila de la misma.
+     * @param row fila
+     * @param col columna
+     * @return índice de la región
+     * @throws IndexOutOfBoundsException si la casilla está fuera de la cuadrícula
+     */
+    private int chunkIndex(int row, int col) {
+        checkCell(row, col, rows, cols);
+        return (row >> SHIFT) * chunkCols + (col >> SHIFT);
+    }
+
+    /**
+     * Comprueba que una casilla esté dentro de una cuadrícula.
+     * @param row fila
+     * @param col columna
+     * @param rows filas de la cuadrícula
+     * @param cols columnas de la cuadrícula
+     * @throws IndexOutOfBoundsException si la casilla está fuera
+     */
+    static void checkCell(int row, int col, int rows, int cols) {
+        if (row < 0 || row >= rows || col < 0 || col >= cols) {
+            throw new IndexOutOfBoundsException("Casilla (" + row + ", " + col + ") fuera de " + rows + "x" + cols);
+        }
+    }
+
+    /**
+     * Recorre las casillas ocupadas, visitando solo las regiones reservadas.
+     * @param visitor acción a aplicar sobre cada casilla ocupada
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(CellVisitor<? super T> visitor) {
+        for (int idx = 0; idx < chunks.length; idx++) {
+            Object[] chunk = chunks[idx];
+            if (chunk == null) continue;
+
+            int baseRow = (idx / chunkCols) << SHIFT;
+            int baseCol = (idx % chunkCols) << SHIFT;
+            for (int i = 0; i < chunk.length; i++) {
+                Object v = chunk[i];
+                if (v != null) {
+                    visitor.visit(baseRow + (i >> SHIFT), baseCol + (i & MASK), (T) v);
+                }
+            }
+        }
+    }
+
+    /**
+     * Vacía la cuadrícula liberando todas sus regiones.
+     */
+    public void clear() {
+        Arrays.fill(chunks, null);
+    }
+
+    /**
+     * Obtiene la cantidad de regiones reservadas.
+     * @return regiones con memoria asignada
+     */
+    public int allocatedChunks() {
+        int n = 0;
+        for (Object[] chunk : chunks) {
+            if (chunk != null) n++;
+        }
+        return n;
+    }
+
+    /**
+     * @return número de filas
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * @return número de columnas
+     */
+    public int getCols() {
+        return cols;
+    }
+}
@@ -0,0 +1,136 @@
+package domain;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+
+/**
+ * Conexión no bloqueante a un cliente que recibe tramas de estado, con su cola de salida y
+ * la regla de contrapresión común a {@link GameServer} y {@link SpectatorServer}.
+ * <p>
+ * Las tramas que recibe {@link #send} deben ser inmutables: lo que no cabe en el socket se
+ * encola como vista de los mismos bytes, sin copiarlos, así que varios clientes pueden
+ * compartir una trama con una {@link ByteBuffer#duplicate()} cada uno. Una trama que ya
+ * empezó a salir se termina siempre, porque cortarla rompería el flujo. Un delta que haría
+ * superar el límite de la cola se descarta junto con las tramas que no empezaron y el
+ * cliente debe recibir un fotograma clave; el saludo y los fotogramas clave también
+ * descartan la cola, pero siempre se encolan. El límite cuenta aparte el último fotograma
+ * clave encolado, así que uno más grande que el límite no hace descartar los deltas que lo
+ * siguen.
+ */
+class ClientConnection {
+
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final String name;
+    private final int limit;
+    private final ArrayDeque<ByteBuffer> out = new ArrayDeque<>();
+    private int pendingBytes;
+    private int resyncBytes;
+
+    /**
+     * @param channel canal del cliente, ya no bloqueante
+     * @param key registro del canal en el selector
+     * @param name nombre del cliente para los registros
+     * @param limit bytes que pueden quedar en cola además del último fotograma clave
+     */
+    ClientConnection(SocketChannel channel, SelectionKey key, String name, int limit) {
+        this.channel = channel;
+        this.key = key;
+        this.name = name;
+        this.limit = limit;
+    }
+
+    /**
+     * @return canal del cliente, para leer lo que envía
+     */
+    SocketChannel channel() {
+        return channel;
+    }
+
+    /**
+     * @return nombre del cliente para los registros
+     */
+    String name() {
+        return name;
+    }
+
+    /**
+     * Envía una trama: se intenta escribir de inmediato y lo que no cabe queda en la cola.
+     * @param frame vista propia de una trama inmutable
+     * @param resync true si la trama reinicia la réplica del cliente (saludo o fotograma clave)
+     * @return false si un delta se descartó por el límite; el cliente necesita un fotograma clave
+     * @throws IOException si falla la escritura
+     */
+    boolean send(ByteBuffer frame, boolean resync) throws IOException {
+        if (out.isEmpty()) {
+            channel.write(frame);
+            if (!frame.hasRemaining()) return true;
+        } else if (pendingBytes + frame.remaining() > limit + resyncBytes) {
+            dropBacklog();
+            if (!resync) return false;
+        }
+        if (resync) resyncBytes = frame.remaining();
+
+        out.add(frame);
+        pendingBytes += frame.remaining();
+        key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        return true;
+    }
+
+    /**
+     * Descarta las tramas pendientes, conservando la que ya empezó a escribirse para no
+     * romper el flujo.
+     */
+    void dropBacklog() {
+        ByteBuffer head = out.peekFirst();
+        boolean started = head != null && head.position() > 0;
+        out.clear();
+        pendingBytes = 0;
+        if (started) {
+            out.add(head);
+            pendingBytes = head.remaining();
+        }
+    }
+
+    /**
+     * Escribe la cola pendiente hasta vaciarla o llenar el socket.
+     * @throws IOException si falla la escritura
+     */
+    void flush() throws IOException {
+        while (!out.isEmpty()) {
+            ByteBuffer head = out.peekFirst();
+            int before = head.remaining();
+            channel.write(head);
+            pendingBytes -= before - head.remaining();
+            if (head.hasRemaining()) return;
+            out.pollFirst();
+        }
+        key.interestOps(SelectionKey.OP_READ);
+    }
+
+    /**
+     * Cancela el registro en el selector y cierra el canal.
+     */
+    void close() {
+        key.cancel();
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // el canal ya estaba cerrado
+        }
+    }
+
+    /**
+     * Copia una trama de un búfer que se reutiliza, para poder compartirla y encolarla.
+     * @param frame trama lista para leer; no se modifica su posición
+     * @return copia propia, lista para leer
+     */
+    static ByteBuffer copyOf(ByteBuffer frame) {
+        ByteBuffer copy = ByteBuffer.allocate(frame.remaining());
+        copy.put(frame.duplicate()).flip();
+        return copy;
+    }
+}
@@ -1,5 +1,7 @@
 package domain;
 
+import java.nio.ByteBuffer;
+
 /**
  * Interfaz para controlar el comportamiento de un IceCream
  */
@@ -13,4 +15,19 @@ public interface ControllerCream {
      * Establece el jugador que será controlado
      */
     void setPlayer(IceCream player);
-}
\ No newline at end of file
+
+    /**
+     * Escribe en una instantánea la memoria del controlador entre decisiones.
+     * Los controladores sin memoria no escriben nada.
+     * @param out destino
+     */
+    default void writeState(ByteBuffer out) {
+    }
+
+    /**
+     * Restaura la memoria escrita con {@link #writeState}.
+     * @param in origen
+     */
+    default void readState(ByteBuffer in) {
+    }
+}
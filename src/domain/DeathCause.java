@@ -0,0 +1,11 @@
+package domain;
+
+/**
+ * Causas posibles de la muerte de un jugador.
+ */
+public enum DeathCause {
+    enemy,
+    dangerousFruit,
+    bonfire,
+    timeout
+}
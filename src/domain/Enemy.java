@@ -1,16 +1,27 @@
 package domain;
 
+import java.nio.ByteBuffer;
+
 /**
  * Representa un enemigo genérico del juego.
  * Define la lógica base de movimiento, colisión y estado.
  */
-public abstract class Enemy implements SpriteProvider {
+public abstract class Enemy implements SpriteProvider, TimingWheel.Timed {
+
+    /** Velocidad por defecto en casillas por segundo. */
+    protected static final double BASE_SPEED = 6.7;
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final Direction[] HORIZONTAL = {Direction.LEFT, Direction.RIGHT};
+    private static final Direction[] VERTICAL = {Direction.UP, Direction.DOWN};
 
     protected EnemyType type;
     protected Position position;
     protected boolean trapped;
     protected GameMap gameMap;
     protected Direction currentDirection;
+    private int order;
+    private EntityStore store;
+    private int slot = -1;
 
     /**
      * Crea un enemigo con un tipo y una posición inicial.
@@ -46,6 +57,56 @@ public abstract class Enemy implements SpriteProvider {
      */
     public void setPosition(Position position) {
         this.position = position;
+        changed();
+    }
+
+    /**
+     * @return posición del enemigo en la lista de la partida, para desempatar consultas espaciales
+     */
+    int getOrder() {
+        return order;
+    }
+
+    /**
+     * @param order posición del enemigo en la lista de la partida
+     */
+    void setOrder(int order) {
+        this.order = order;
+    }
+
+    /**
+     * Enlaza el enemigo con el almacén que lo actualiza por lotes. Desde entonces el objeto
+     * es una vista: los cambios hechos desde fuera del almacén se le copian.
+     * @param store almacén de entidades
+     * @param slot ranura del enemigo en su carril
+     */
+    void attach(EntityStore store, int slot) {
+        this.store = store;
+        this.slot = slot;
+    }
+
+    /**
+     * @return ranura del enemigo en el almacén de entidades, o -1 si no está enlazado
+     */
+    int getSlot() {
+        return slot;
+    }
+
+    /**
+     * Copia al almacén de entidades, si hay, un cambio de estado hecho desde fuera de él.
+     */
+    private void changed() {
+        if (store != null) store.pull(this);
+    }
+
+    /**
+     * Aplica a la vista el resultado de un paso calculado por el almacén de entidades.
+     * @param d dirección resultante
+     * @param trapped true si quedó atrapado
+     */
+    void applyStep(Direction d, boolean trapped) {
+        this.trapped = trapped;
+        applyReplica(position, d, replicaFlags());
     }
 
     /**
@@ -84,6 +145,48 @@ public abstract class Enemy implements SpriteProvider {
      */
     protected abstract void doUpdate();
 
+    /**
+     * Activación programada por la rueda de la partida: realiza un paso del enemigo.
+     * @param timers rueda de la partida
+     * @return ticks hasta el siguiente paso
+     */
+    @Override
+    public int onTimer(TimingWheel timers) {
+        if (usesAutoMovement()) {
+            Direction d = getNextDirection();
+            if (d == null) return nextDelay(timers);
+            move(d);
+        }
+        update();
+        return nextDelay(timers);
+    }
+
+    /**
+     * Obtiene la velocidad actual del enemigo.
+     * @return casillas por segundo
+     */
+    protected double cellsPerSecond() {
+        return BASE_SPEED;
+    }
+
+    /**
+     * Obtiene los ticks entre un paso y el siguiente según la velocidad actual.
+     * @param timers rueda de la partida
+     * @return ticks de espera
+     */
+    protected int nextDelay(TimingWheel timers) {
+        return timers.ticksPerStep(cellsPerSecond());
+    }
+
+    /**
+     * Obtiene los ticks hasta el primer paso tras registrarse en la partida.
+     * @param timers rueda de la partida
+     * @return ticks de espera
+     */
+    public int firstDelay(TimingWheel timers) {
+        return nextDelay(timers);
+    }
+
     /**
      * Verifica si el enemigo colisiona con una posición dada.
      * @param otherPosition posición a comparar
@@ -110,12 +213,23 @@ public abstract class Enemy implements SpriteProvider {
      * @return true si puede moverse en esa dirección
      */
     protected boolean moveInDirection(Direction d) {
-        Position oldPos = position;
-        Position newPos = new Position(
-                oldPos.getRow() + d.getRowDelta(),
-                oldPos.getCol() + d.getColDelta()
-        );
-        return canMove(newPos);
+        return (freeDirections() & 1 << d.ordinal()) != 0;
+    }
+
+    /**
+     * Obtiene de una vez todas las direcciones hacia las que el enemigo puede moverse.
+     * @return un bit por dirección, en la posición de su ordinal
+     */
+    protected int freeDirections() {
+        return gameMap.walkMask(position.getRow(), position.getCol());
+    }
+
+    /**
+     * @param free máscara de direcciones, no vacía
+     * @return la primera dirección de la máscara en el orden de {@link Direction}
+     */
+    protected static Direction firstFree(int free) {
+        return DIRECTIONS[Integer.numberOfTrailingZeros(free)];
     }
 
     /**
@@ -124,36 +238,23 @@ public abstract class Enemy implements SpriteProvider {
      * @return siguiente dirección válida o null si no hay movimientos posibles
      */
     public Direction getNextDirection() {
-        if (moveInDirection(currentDirection)) {
-            return currentDirection;
-        }
+        int free = freeDirections();
+        if (free == 0) return null;
+        if ((free & 1 << currentDirection.ordinal()) != 0) return currentDirection;
 
-        Direction[] priorityDirections = getPriorityDirections(currentDirection);
-        for (Direction d : priorityDirections) {
-            if (moveInDirection(d)) {
-                return d;
-            }
+        for (Direction d : getPriorityDirections(currentDirection)) {
+            if ((free & 1 << d.ordinal()) != 0) return d;
         }
-
-        for (Direction d : Direction.values()) {
-            if (moveInDirection(d)) {
-                return d;
-            }
-        }
-        return null;
+        return firstFree(free);
     }
 
     /**
      * Obtiene las direcciones prioritarias según la dirección actual.
      * @param current dirección actual
-     * @return arreglo de direcciones prioritarias
+     * @return arreglo compartido de direcciones prioritarias; no debe modificarse
      */
-    private Direction[] getPriorityDirections(Direction current) {
-        return switch (current) {
-            case UP, DOWN -> new Direction[]{Direction.LEFT, Direction.RIGHT};
-            case LEFT, RIGHT -> new Direction[]{Direction.UP, Direction.DOWN};
-            default -> new Direction[]{};
-        };
+    private static Direction[] getPriorityDirections(Direction current) {
+        return current == Direction.UP || current == Direction.DOWN ? HORIZONTAL : VERTICAL;
     }
 
     /**
@@ -217,4 +318,46 @@ public abstract class Enemy implements SpriteProvider {
     protected boolean usesAutoMovement() {
         return true;
     }
-}
\ No newline at end of file
+
+    /**
+     * Resume el modo visual del enemigo para la sincronización en red.
+     * @return bits propios de cada enemigo, 0 si no tiene modos
+     */
+    int replicaFlags() {
+        return 0;
+    }
+
+    /**
+     * Aplica el estado recibido del servidor sin ejecutar la lógica del enemigo.
+     * @param p posición replicada
+     * @param d dirección replicada
+     * @param flags bits de {@link #replicaFlags()}
+     */
+    void applyReplica(Position p, Direction d, int flags) {
+        this.position = p;
+        this.currentDirection = d;
+        changed();
+    }
+
+    /**
+     * Escribe el estado completo del enemigo en una instantánea.
+     * Los enemigos con estado propio extienden este método y {@link #readState}.
+     * @param out destino
+     */
+    void writeState(ByteBuffer out) {
+        GameSnapshot.putPos(out, position);
+        GameSnapshot.putDir(out, currentDirection);
+        out.put((byte) (trapped ? 1 : 0));
+    }
+
+    /**
+     * Restaura el estado escrito con {@link #writeState}.
+     * @param in origen
+     */
+    void readState(ByteBuffer in) {
+        position = GameSnapshot.getPos(in);
+        currentDirection = GameSnapshot.getDir(in);
+        trapped = in.get() != 0;
+        changed();
+    }
+}
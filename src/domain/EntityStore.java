@@ -0,0 +1,546 @@
+package domain;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * Almacén por lotes de enemigos y frutas, con el estado caliente de cada entidad en
+ * arreglos paralelos de enteros: fila, columna, dirección, estado, próximo tick y, en las
+ * macetas, el inicio de su modo. Hay un
+ * carril por tipo de entidad con núcleo de actualización propio; en cada tick el almacén
+ * recorre cada carril de forma lineal y actualiza las entidades que vencen, en lugar de
+ * que la rueda de la partida active cada objeto por separado.
+ * <p>
+ * Los objetos {@link Enemy} y {@link Fruit} siguen existiendo como vistas para la interfaz,
+ * la red y las instantáneas: el núcleo les copia cada resultado, y los cambios que llegan
+ * desde fuera (comer, congelar, restaurar) se copian de vuelta al carril. Los tipos sin
+ * núcleo siguen programándose uno por uno en la rueda.
+ * <p>
+ * Las decisiones de trolls y macetas usan un valor aleatorio propio de cada entidad y tick,
+ * mezclado del estado del generador, para que la primera fase pueda repartirse entre
+ * núcleos; no consumen el generador como los objetos. Una partida con almacén es
+ * reproducible, pero no igual a la misma semilla sin él (ver
+ * {@link GameConfig#setEntityStore(boolean)}).
+ */
+public final class EntityStore implements TimingWheel.Timed {
+
+    private static final int TRAPPED = 1;
+    private static final int CHASING = 1;
+    private static final int STATE_BITS = 3;
+    private static final int ACTIVE = 4;
+    private static final int FROZEN = 8;
+    private static final long NEVER = Long.MAX_VALUE;
+    private static final Direction[] DIRECTIONS = Direction.values();
+    /** Entidades de un carril a partir de las cuales la primera fase se reparte entre núcleos. */
+    static final int PARALLEL_MIN = 256;
+    /** Decisión de quedarse quieto; las direcciones son sus ordinales. */
+    private static final int STAY = 4;
+    private static final int MOVE_BITS = 7;
+    /** Decisión de maceta: cambia de modo en este paso. */
+    private static final int TOGGLE = 8;
+    /** Decisión de maceta: persigue después del paso. */
+    private static final int CHASE = 16;
+
+    /**
+     * Arreglos paralelos de las entidades de un tipo, en el orden en que se registraron.
+     */
+    private static final class Lane {
+        private Object[] views = new Object[8];
+        private int[] row = new int[8];
+        private int[] col = new int[8];
+        private int[] dir = new int[8];
+        private int[] state = new int[8];
+        private long[] due = new long[8];
+        private long[] mark = new long[8];
+        private int[] intent = new int[8];
+        private int size;
+
+        /**
+         * Reserva una ranura para una entidad nueva.
+         * @param view objeto de la entidad
+         * @return ranura asignada
+         */
+        private int add(Object view) {
+            if (size == views.length) {
+                int n = size * 2;
+                views = Arrays.copyOf(views, n);
+                row = Arrays.copyOf(row, n);
+                col = Arrays.copyOf(col, n);
+                dir = Arrays.copyOf(dir, n);
+                state = Arrays.copyOf(state, n);
+                due = Arrays.copyOf(due, n);
+                mark = Arrays.copyOf(mark, n);
+                intent = Arrays.copyOf(intent, n);
+            }
+            views[size] = view;
+            return size++;
+        }
+    }
+
+    private final GameMap map;
+    private final TimingWheel timers;
+    private final Lane[] enemyLanes = new Lane[EnemyType.values().length];
+    private final Lane[] fruitLanes = new Lane[FruitType.values().length];
+
+    private final Lane trolls = new Lane();
+    private final Lane flowerpots = new Lane();
+    private final Lane pineapples = new Lane();
+    private final Lane cacti = new Lane();
+    private final Lane[] lanes = {trolls, flowerpots, pineapples, cacti};
+    private long conflicts;
+
+    private int[] playerRow = new int[2];
+    private int[] playerCol = new int[2];
+    private int playerCount;
+
+    /**
+     * @param map mapa de la partida
+     * @param timers rueda de la partida, de donde sale el tick actual
+     */
+    EntityStore(GameMap map, TimingWheel timers) {
+        this.map = map;
+        this.timers = timers;
+        enemyLanes[EnemyType.troll.ordinal()] = trolls;
+        enemyLanes[EnemyType.flowerpot.ordinal()] = flowerpots;
+        fruitLanes[FruitType.pineapple.ordinal()] = pineapples;
+        fruitLanes[FruitType.cactus.ordinal()] = cacti;
+    }
+
+    /**
+     * Programa el próximo paso de un enemigo si su tipo tiene núcleo; la primera vez
+     * lo incorpora a su carril.
+     * @param e enemigo
+     * @param delay ticks hasta el paso
+     * @return false si el tipo no tiene núcleo y el enemigo debe ir a la rueda
+     */
+    boolean schedule(Enemy e, int delay) {
+        Lane lane = enemyLanes[e.getType().ordinal()];
+        if (lane == null) return false;
+        if (e.getSlot() < 0) e.attach(this, lane.add(e));
+        pull(e);
+        lane.due[e.getSlot()] = timers.now() + Math.max(1, delay);
+        return true;
+    }
+
+    /**
+     * Programa la próxima activación de una fruta si su tipo tiene núcleo; la primera vez
+     * la incorpora a su carril.
+     * @param f fruta
+     * @param delay ticks hasta la activación
+     * @return false si el tipo no tiene núcleo y la fruta debe ir a la rueda
+     */
+    boolean schedule(Fruit f, int delay) {
+        Lane lane = fruitLanes[f.getType().ordinal()];
+        if (lane == null) return false;
+        if (f.getSlot() < 0) f.attach(this, lane.add(f));
+        pull(f);
+        lane.due[f.getSlot()] = timers.now() + Math.max(1, delay);
+        return true;
+    }
+
+    /**
+     * Copia al carril el estado de un enemigo que cambió fuera del núcleo.
+     * @param e enemigo enlazado a este almacén
+     */
+    void pull(Enemy e) {
+        Lane lane = enemyLanes[e.getType().ordinal()];
+        int i = e.getSlot();
+        Position p = e.getPosition();
+        lane.row[i] = p.getRow();
+        lane.col[i] = p.getCol();
+        lane.dir[i] = e.getCurrentDirection().ordinal();
+        if (lane == flowerpots) {
+            Flowerpot f = (Flowerpot) e;
+            lane.state[i] = f.isCharging() ? CHASING : 0;
+            lane.mark[i] = f.getModeSince();
+        } else {
+            lane.state[i] = e.trapped ? TRAPPED : 0;
+        }
+    }
+
+    /**
+     * Copia al carril el estado de una fruta que cambió fuera del núcleo.
+     * @param f fruta enlazada a este almacén
+     */
+    void pull(Fruit f) {
+        Lane lane = fruitLanes[f.getType().ordinal()];
+        int i = f.getSlot();
+        Position p = f.getPosition();
+        lane.row[i] = p.getRow();
+        lane.col[i] = p.getCol();
+        lane.state[i] = f.replicaFlags();
+    }
+
+    /**
+     * Activación de cada tick: recorre los carriles y actualiza las entidades que vencen.
+     * @param wheel rueda de la partida
+     * @return 1, el almacén revisa todos los ticks
+     */
+    @Override
+    public int onTimer(TimingWheel wheel) {
+        long now = wheel.now();
+        long salt = mix(map.getRandom().getState() ^ now * 0x9E3779B97F4A7C15L);
+        stepTrolls(now, wheel, salt);
+        stepFlowerpots(now, wheel);
+        stepPineapples(now, wheel);
+        stepCacti(now, wheel);
+        return 1;
+    }
+
+    // ==================== NÚCLEOS ====================
+
+    /**
+     * Primera fase de un carril: cada entidad decide su paso contra el mapa tal como quedó
+     * al empezar la fase. Las decisiones solo leen estado compartido, así que con muchas
+     * entidades se reparten entre núcleos sin cambiar el resultado.
+     * @param l carril
+     * @param decision decisión de una ranura
+     */
+    private static void decide(Lane l, IntUnaryOperator decision) {
+        if (l.size >= PARALLEL_MIN) {
+            IntStream.range(0, l.size).parallel().forEach(i -> l.intent[i] = decision.applyAsInt(i));
+        } else {
+            for (int i = 0; i < l.size; i++) l.intent[i] = decision.applyAsInt(i);
+        }
+    }
+
+    /**
+     * Segunda fase de un paso: mueve una entidad a la casilla que decidió. Se llama en orden
+     * de ranura; si otra de ranura menor ya tomó la casilla, esta espera al siguiente paso.
+     * @param l carril
+     * @param i ranura
+     * @param view enemigo
+     * @param next ordinal de la dirección decidida
+     * @return true si se movió
+     */
+    private boolean commit(Lane l, int i, Enemy view, int next) {
+        Direction dir = DIRECTIONS[next];
+        if (map.hasEnemy(l.row[i] + dir.getRowDelta(), l.col[i] + dir.getColDelta())) {
+            conflicts++;
+            return false;
+        }
+        map.moveEnemy(view, dir);
+        Position p = view.getPosition();
+        l.row[i] = p.getRow();
+        l.col[i] = p.getCol();
+        l.dir[i] = next;
+        return true;
+    }
+
+    /**
+     * Paso de los trolls. En la primera fase cada troll que vence elige su dirección: sigue
+     * de frente si puede o gira a un lateral en orden aleatorio, luego a la opuesta y luego a
+     * cualquiera. El azar sale de mezclar el estado del generador de la partida al empezar el
+     * tick con la ranura, no de sacar valores en orden, así que cada decisión es independiente
+     * de las demás. La segunda fase solo resuelve choques por la misma casilla.
+     * @param now tick actual
+     * @param wheel rueda de la partida
+     * @param salt valor aleatorio del tick
+     */
+    private void stepTrolls(long now, TimingWheel wheel, long salt) {
+        Lane l = trolls;
+        decide(l, i -> decideTroll(l, i, now, salt));
+
+        for (int i = 0; i < l.size; i++) {
+            int next = l.intent[i];
+            if (next < 0) continue;
+            Enemy view = (Enemy) l.views[i];
+            l.due[i] = now + view.nextDelay(wheel);
+
+            if (next == STAY) {
+                if (l.state[i] != TRAPPED) {
+                    l.state[i] = TRAPPED;
+                    view.applyStep(DIRECTIONS[l.dir[i]], true);
+                }
+                continue;
+            }
+            l.state[i] = 0;
+            commit(l, i, view, next);
+            view.applyStep(DIRECTIONS[l.dir[i]], false);
+        }
+    }
+
+    /**
+     * Primera fase del paso de un troll; solo lee.
+     * @param l carril de los trolls
+     * @param i ranura
+     * @param now tick actual
+     * @param salt valor aleatorio del tick
+     * @return ordinal de la dirección elegida, {@link #STAY} si está atrapado o -1 si no vence
+     */
+    private int decideTroll(Lane l, int i, long now, long salt) {
+        if (l.due[i] > now) return -1;
+        int free = map.walkMask(l.row[i], l.col[i]);
+        if (free == 0) return STAY;
+        int d = l.dir[i];
+        return (free & 1 << d) != 0 ? d : turn(d, free, mix(salt + i));
+    }
+
+    /**
+     * Elige a dónde gira un troll frenado.
+     * @param d ordinal de la dirección actual
+     * @param free máscara de direcciones libres, no vacía
+     * @param random valor aleatorio propio del troll
+     * @return ordinal de la dirección elegida
+     */
+    private static int turn(int d, int free, long random) {
+        Direction dir = DIRECTIONS[d];
+        boolean vertical = dir == Direction.UP || dir == Direction.DOWN;
+        Direction first = vertical ? Direction.LEFT : Direction.UP;
+        Direction second = vertical ? Direction.RIGHT : Direction.DOWN;
+        if (random < 0) {
+            Direction t = first;
+            first = second;
+            second = t;
+        }
+
+        if ((free & 1 << first.ordinal()) != 0) return first.ordinal();
+        if ((free & 1 << second.ordinal()) != 0) return second.ordinal();
+        int opposite = dir.getOpposite().ordinal();
+        if ((free & 1 << opposite) != 0) return opposite;
+        return Integer.numberOfTrailingZeros(free);
+    }
+
+    /**
+     * Paso de las macetas, en las mismas dos fases que los trolls. En la primera cada maceta
+     * que vence cambia de modo si se cumplió su duración y elige dirección: al perseguir, la
+     * que más la acerca al jugador vivo más cercano al empezar el tick; al deambular, de
+     * frente, un lateral o la opuesta.
+     * @param now tick actual
+     * @param wheel rueda de la partida
+     */
+    private void stepFlowerpots(long now, TimingWheel wheel) {
+        Lane l = flowerpots;
+        if (l.size == 0) return;
+        collectPlayers();
+        int modeTicks = wheel.ticksFor(Flowerpot.MODE_DURATION);
+        decide(l, i -> decideFlowerpot(l, i, now, modeTicks));
+
+        for (int i = 0; i < l.size; i++) {
+            int intent = l.intent[i];
+            if (intent < 0) continue;
+            Flowerpot view = (Flowerpot) l.views[i];
+            if ((intent & TOGGLE) != 0) {
+                view.applyMode((intent & CHASE) != 0, now);
+                l.state[i] = (intent & CHASE) != 0 ? CHASING : 0;
+                l.mark[i] = now;
+            }
+            l.due[i] = now + view.nextDelay(wheel);
+
+            int next = intent & MOVE_BITS;
+            if (next != STAY && commit(l, i, view, next)) view.applyStep(DIRECTIONS[next], false);
+        }
+    }
+
+    /**
+     * Primera fase del paso de una maceta; solo lee.
+     * @param l carril de las macetas
+     * @param i ranura
+     * @param now tick actual
+     * @param modeTicks duración de cada modo en ticks
+     * @return dirección o {@link #STAY} con las marcas de modo, o -1 si no vence
+     */
+    private int decideFlowerpot(Lane l, int i, long now, int modeTicks) {
+        if (l.due[i] > now) return -1;
+        boolean chasing = (l.state[i] & CHASING) != 0;
+        int mode = 0;
+        if (now - l.mark[i] >= modeTicks) {
+            chasing = !chasing;
+            mode = TOGGLE;
+        }
+        if (chasing) mode |= CHASE;
+
+        int r = l.row[i];
+        int c = l.col[i];
+        int free = map.walkMask(r, c);
+        int target = chasing ? nearestPlayer(r, c) : -1;
+        return mode | (target >= 0 ? chase(playerRow[target] - r, playerCol[target] - c, free) : wander(l.dir[i], free));
+    }
+
+    /**
+     * @param dr filas hasta el jugador
+     * @param dc columnas hasta el jugador
+     * @param free máscara de direcciones libres
+     * @return dirección que más acerca al jugador, primero por el eje más largo, o {@link #STAY}
+     */
+    private static int chase(int dr, int dc, int free) {
+        Direction vertical = dr > 0 ? Direction.DOWN : Direction.UP;
+        Direction horizontal = dc > 0 ? Direction.RIGHT : Direction.LEFT;
+        Direction[] order = Math.abs(dr) > Math.abs(dc)
+                ? new Direction[]{vertical, horizontal, horizontal.getOpposite(), vertical.getOpposite()}
+                : new Direction[]{horizontal, vertical, vertical.getOpposite(), horizontal.getOpposite()};
+        for (Direction d : order) {
+            if ((free & 1 << d.ordinal()) != 0) return d.ordinal();
+        }
+        return STAY;
+    }
+
+    /**
+     * @param d ordinal de la dirección actual
+     * @param free máscara de direcciones libres
+     * @return de frente, un lateral o la opuesta, lo primero que esté libre, o {@link #STAY}
+     */
+    private static int wander(int d, int free) {
+        if (free == 0) return STAY;
+        if ((free & 1 << d) != 0) return d;
+        Direction dir = DIRECTIONS[d];
+        boolean vertical = dir == Direction.UP || dir == Direction.DOWN;
+        int first = (vertical ? Direction.LEFT : Direction.UP).ordinal();
+        int second = (vertical ? Direction.RIGHT : Direction.DOWN).ordinal();
+        if ((free & 1 << first) != 0) return first;
+        if ((free & 1 << second) != 0) return second;
+        return dir.getOpposite().ordinal();
+    }
+
+    /**
+     * Anota las casillas de los jugadores vivos, en orden de fila y columna, para que la
+     * primera fase las lea sin tocar el mapa.
+     */
+    private void collectPlayers() {
+        playerCount = 0;
+        map.forEachPlayer((r, c, p) -> {
+            if (!p.isAlive()) return;
+            if (playerCount == playerRow.length) {
+                playerRow = Arrays.copyOf(playerRow, playerCount * 2);
+                playerCol = Arrays.copyOf(playerCol, playerCount * 2);
+            }
+            int k = playerCount++;
+            while (k > 0 && (playerRow[k - 1] > r || playerRow[k - 1] == r && playerCol[k - 1] > c)) {
+                playerRow[k] = playerRow[k - 1];
+                playerCol[k] = playerCol[k - 1];
+                k--;
+            }
+            playerRow[k] = r;
+            playerCol[k] = c;
+        });
+    }
+
+    /**
+     * @param r fila
+     * @param c columna
+     * @return índice del jugador vivo más cercano, el primero a igual distancia, o -1 si no hay
+     */
+    private int nearestPlayer(int r, int c) {
+        int best = -1;
+        int bestDist = Integer.MAX_VALUE;
+        for (int k = 0; k < playerCount; k++) {
+            int dist = Math.abs(playerRow[k] - r) + Math.abs(playerCol[k] - c);
+            if (dist < bestDist) {
+                bestDist = dist;
+                best = k;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Función de mezcla de SplitMix64, para sacar valores aleatorios independientes por ranura.
+     * @param z valor
+     * @return valor mezclado
+     */
+    private static long mix(long z) {
+        z = (z ^ z >>> 30) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ z >>> 27) * 0x94D049BB133111EBL;
+        return z ^ z >>> 31;
+    }
+
+    /**
+     * @return movimientos de trolls y macetas descartados porque otro de ranura menor ganó la casilla
+     */
+    public long getConflicts() {
+        return conflicts;
+    }
+
+    /**
+     * Paso de las piñas: un intento de movimiento en una dirección aleatoria.
+     * @param now tick actual
+     * @param wheel rueda de la partida
+     */
+    private void stepPineapples(long now, TimingWheel wheel) {
+        Lane l = pineapples;
+        for (int i = 0; i < l.size; i++) {
+            if (l.due[i] > now) continue;
+            Fruit view = (Fruit) l.views[i];
+            int s = l.state[i];
+            if ((s & STATE_BITS) == FruitState.eaten.ordinal()) {
+                l.due[i] = NEVER;
+                continue;
+            }
+            l.due[i] = now + view.timerPeriod(wheel);
+            if ((s & ACTIVE) == 0 || (s & FROZEN) != 0) continue;
+
+            Direction d = DIRECTIONS[map.getRandom().nextInt(DIRECTIONS.length)];
+            int r = l.row[i] + d.getRowDelta();
+            int c = l.col[i] + d.getColDelta();
+            if (map.isValid(r, c) && !map.isBlocked(r, c) && !map.hasEnemy(r, c) && map.getFruit(r, c) == null) {
+                map.removeFruit(view.getPosition());
+                view.setPosition(new Position(r, c));
+                map.addFruit(view);
+            }
+        }
+    }
+
+    /**
+     * Paso de los cactus: alternan entre activo y peligroso.
+     * @param now tick actual
+     * @param wheel rueda de la partida
+     */
+    private void stepCacti(long now, TimingWheel wheel) {
+        Lane l = cacti;
+        int active = FruitState.active.ordinal();
+        int dangerous = FruitState.dangerous.ordinal();
+        for (int i = 0; i < l.size; i++) {
+            if (l.due[i] > now) continue;
+            Fruit view = (Fruit) l.views[i];
+            int s = l.state[i];
+            if ((s & STATE_BITS) == FruitState.eaten.ordinal()) {
+                l.due[i] = NEVER;
+                continue;
+            }
+            l.due[i] = now + view.timerPeriod(wheel);
+            if ((s & ACTIVE) == 0 || (s & FROZEN) != 0) continue;
+
+            int st = s & STATE_BITS;
+            if (st == active || st == dangerous) {
+                view.applyReplica(view.getPosition(), (s & ~STATE_BITS) | (st == active ? dangerous : active));
+            }
+        }
+    }
+
+    // ==================== INSTANTÁNEAS ====================
+
+    /**
+     * @return entidades en los carriles
+     */
+    int size() {
+        int n = 0;
+        for (Lane l : lanes) n += l.size;
+        return n;
+    }
+
+    /**
+     * Escribe los próximos ticks de las entidades; el resto del estado viaja en las vistas.
+     * @param out destino
+     */
+    void writeState(ByteBuffer out) {
+        for (Lane l : lanes) {
+            for (int i = 0; i < l.size; i++) out.putLong(l.due[i]);
+        }
+    }
+
+    /**
+     * Restaura los próximos ticks escritos con {@link #writeState} y vuelve a copiar el
+     * estado de los enemigos, cuyas subclases terminan de leer el suyo después de avisar.
+     * @param in origen
+     */
+    void readState(ByteBuffer in) {
+        for (Lane l : lanes) {
+            for (int i = 0; i < l.size; i++) {
+                l.due[i] = in.getLong();
+                if (l.views[i] instanceof Enemy) pull((Enemy) l.views[i]);
+            }
+        }
+    }
+}
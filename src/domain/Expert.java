@@ -1,19 +1,21 @@
 package domain;
+
+import java.nio.ByteBuffer;
+
 /**
  * Controlador experto para el jugador IceCream.
  * Implementa una IA avanzada para la toma de decisiones en el juego.
  */
-public class Expert implements ControllerCream {
+public class Expert implements ControllerCream, TimingWheel.Timed {
 
     private IceCream player;
     private final GameMap map;
-    private final BadIceCream game;
+    private final WorldQuery world;
 
     private static final int CRIT_DIST = 3;
     private static final int DANGER_DIST = 7;
 
-    private int tick;
-    private final int speed = 2;
+    private static final double DECISIONS_PER_SECOND = 6.7;
 
     private Position lastPos;
     private int stuckTicks;
@@ -25,7 +27,7 @@ public class Expert implements ControllerCream {
      */
     public Expert(GameMap map, BadIceCream game) {
         this.map = map;
-        this.game = game;
+        this.world = game.getWorld();
     }
 
     /**
@@ -37,6 +39,17 @@ public class Expert implements ControllerCream {
         this.player = player;
     }
 
+    /**
+     * Activación programada por la rueda de la partida.
+     * @param timers rueda de la partida
+     * @return ticks hasta la siguiente decisión
+     */
+    @Override
+    public int onTimer(TimingWheel timers) {
+        update();
+        return timers.ticksPerStep(DECISIONS_PER_SECOND);
+    }
+
     /**
      * Ejecuta la lógica principal de decisión del controlador experto.
      */
@@ -46,29 +59,21 @@ public class Expert implements ControllerCream {
 
         Position pos = player.getPosition();
 
-        for (Enemy e : game.getEnemies()) {
-            if (dist(pos, e.getPosition()) <= CRIT_DIST &&
-                aligned(pos, e.getPosition())) {
-
-                Direction d = dirTo(e.getPosition());
+        for (Enemy e : world.enemiesWithin(pos, CRIT_DIST)) {
+            if (WorldQuery.aligned(pos, e.getPosition())) {
+                Direction d = WorldQuery.dirTo(pos, e.getPosition());
                 player.createIce(d);
                 player.createIce(d);
             }
         }
 
-        tick++;
-        boolean canMove = tick >= speed;
-        if (canMove) tick = 0;
-
         stuckTicks = pos.equals(lastPos) ? stuckTicks + 1 : 0;
         if (stuckTicks > 3) unstuck();
         lastPos = new Position(pos.getRow(), pos.getCol());
 
-        if (!canMove) return;
-
         Enemy near = closestEnemy();
         if (near != null) {
-            int d = dist(pos, near.getPosition());
+            int d = WorldQuery.dist(pos, near.getPosition());
             if (d <= CRIT_DIST || danger(pos) > 1200) {
                 flee(near);
                 return;
@@ -89,17 +94,7 @@ public class Expert implements ControllerCream {
      */
     private Enemy closestEnemy() {
         Position pos = player.getPosition();
-        Enemy best = null;
-        int min = DANGER_DIST + 1;
-
-        for (Enemy e : game.getEnemies()) {
-            int d = dist(pos, e.getPosition());
-            if (d < min) {
-                min = d;
-                best = e;
-            }
-        }
-        return min <= DANGER_DIST ? best : null;
+        return world.nearestEnemyDist(pos) <= DANGER_DIST ? world.nearestEnemy(pos) : null;
     }
 
     /**
@@ -109,37 +104,42 @@ public class Expert implements ControllerCream {
     private void flee(Enemy e) {
         Position pos = player.getPosition();
 
-        if (aligned(pos, e.getPosition())) {
-            player.createIce(dirTo(e.getPosition()));
+        if (WorldQuery.aligned(pos, e.getPosition())) {
+            player.createIce(WorldQuery.dirTo(pos, e.getPosition()));
         }
         move(safeDir());
     }
 
     /**
-     * Selecciona la fruta con mayor beneficio y menor riesgo.
+     * Selecciona la fruta con mayor beneficio y menor riesgo. Las frutas se recorren de la
+     * más cercana a la más lejana y la búsqueda termina cuando ni una fruta sin riesgo a esa
+     * distancia puede superar a la elegida.
      * @return fruta óptima o null si no conviene recoger ninguna
      */
     private Fruit bestFruit() {
         Position pos = player.getPosition();
-        Fruit best = null;
-        int bestScore = Integer.MIN_VALUE;
+        Fruit[] best = new Fruit[1];
+        int[] bestScore = {Integer.MIN_VALUE};
 
-        for (Fruit f : game.getFruits()) {
-            if (!f.isActive() || f.isEaten()) continue;
+        world.fruitsByDistance(pos, (f, d) -> {
+            if (200 - d * 4 + (d <= 3 ? 80 : 0) + 60 < bestScore[0]) return false;
+            if (!f.isActive() || f.isEaten()) return true;
 
-            int d = dist(pos, f.getPosition());
             int risk = danger(f.getPosition());
 
             int score = 200 - d * 4 - (risk / 15);
             if (d <= 3) score += 80;
             if (risk < 300) score += 60;
 
-            if (score > bestScore && risk < 2500) {
-                bestScore = score;
-                best = f;
+            // a igual puntaje gana la primera de la lista de la partida
+            boolean better = score > bestScore[0] || (score == bestScore[0] && f.getOrder() < best[0].getOrder());
+            if (better && risk < 2500) {
+                bestScore[0] = score;
+                best[0] = f;
             }
-        }
-        return best;
+            return true;
+        });
+        return best[0];
     }
 
     /**
@@ -165,7 +165,7 @@ public class Expert implements ControllerCream {
     private boolean move(Direction dir) {
         if (dir == null) return false;
 
-        Position next = nextPos(player.getPosition(), dir);
+        Position next = WorldQuery.step(player.getPosition(), dir);
         if (!map.isValid(next) || map.hasEnemy(next)) return false;
 
         Boxy box = map.getBlock(next);
@@ -187,7 +187,7 @@ public class Expert implements ControllerCream {
      */
     private void unstuck() {
         for (Direction d : Direction.values()) {
-            Position p = nextPos(player.getPosition(), d);
+            Position p = WorldQuery.step(player.getPosition(), d);
             if (map.isValid(p) && map.isBlocked(p)) {
                 player.destroyIce(d);
             }
@@ -214,7 +214,7 @@ public class Expert implements ControllerCream {
         int min = Integer.MAX_VALUE;
 
         for (Direction d : dirs) {
-            Position p = nextPos(player.getPosition(), d);
+            Position p = WorldQuery.step(player.getPosition(), d);
             int risk = danger(p);
 
             if (risk < min) {
@@ -236,9 +236,8 @@ public class Expert implements ControllerCream {
         if (map.isBlocked(p)) return 80;
 
         int level = 0;
-        for (Enemy e : game.getEnemies()) {
-            int d = dist(p, e.getPosition());
-            switch (d) {
+        for (Enemy e : world.enemiesWithin(p, 3)) {
+            switch (WorldQuery.dist(p, e.getPosition())) {
                 case 1 -> level += 3000;
                 case 2 -> level += 1200;
                 case 3 -> level += 400;
@@ -267,50 +266,22 @@ public class Expert implements ControllerCream {
     }
 
     /**
-     * Calcula la siguiente posición en una dirección.
-     * @param p posición base
-     * @param d dirección
-     * @return nueva posición
+     * Guarda la última posición y los ticks sin avanzar.
+     * @param out destino
      */
-    private Position nextPos(Position p, Direction d) {
-        return new Position(
-                p.getRow() + d.getRowDelta(),
-                p.getCol() + d.getColDelta()
-        );
-    }
-
-    /**
-     * Obtiene la dirección directa hacia una posición.
-     * @param target posición objetivo
-     * @return dirección hacia el objetivo
-     */
-    private Direction dirTo(Position target) {
-        Position pos = player.getPosition();
-        int dr = target.getRow() - pos.getRow();
-        int dc = target.getCol() - pos.getCol();
-
-        return Math.abs(dr) >= Math.abs(dc)
-                ? (dr > 0 ? Direction.DOWN : Direction.UP)
-                : (dc > 0 ? Direction.RIGHT : Direction.LEFT);
-    }
-
-    /**
-     * Indica si dos posiciones están alineadas en fila o columna.
-     * @param a primera posición
-     * @param b segunda posición
-     * @return true si están alineadas
-     */
-    private boolean aligned(Position a, Position b) {
-        return a.getRow() == b.getRow() || a.getCol() == b.getCol();
+    @Override
+    public void writeState(ByteBuffer out) {
+        GameSnapshot.putPos(out, lastPos);
+        out.putInt(stuckTicks);
     }
 
     /**
-     * Calcula la distancia Manhattan entre dos posiciones.
-     * @param a primera posición
-     * @param b segunda posición
-     * @return distancia Manhattan
+     * Restaura la última posición y los ticks sin avanzar.
+     * @param in origen
      */
-    private int dist(Position a, Position b) {
-        return Math.abs(a.getRow() - b.getRow()) + Math.abs(a.getCol() - b.getCol());
+    @Override
+    public void readState(ByteBuffer in) {
+        lastPos = GameSnapshot.getPos(in);
+        stuckTicks = in.getInt();
     }
-}
\ No newline at end of file
+}
@@ -1,22 +1,23 @@
 package domain;
+import java.nio.ByteBuffer;
 import java.util.*;
 
 /**
  * Controlador de IA que implementa un comportamiento temeroso para el jugador IceCream.
  * El jugador evita enemigos y busca frutas seguras.
  */
-public class Fearful implements ControllerCream {
+public class Fearful implements ControllerCream, TimingWheel.Timed {
 
     private IceCream player;
     private final GameMap map;
     private final BadIceCream game;
+    private final WorldQuery world;
 
     private static final int DANGER_DIST = 8;
     private static final int CRIT_DIST = 4;
     private static final int SAFE_FRUIT_DIST = 10;
 
-    private int tick;
-    private final int speed = 3;
+    private static final double DECISIONS_PER_SECOND = 3.3;
 
     private Position lastPos;
     private int stuckTicks;
@@ -29,6 +30,7 @@ public class Fearful implements ControllerCream {
     public Fearful(GameMap map, BadIceCream game) {
         this.map = map;
         this.game = game;
+        this.world = game.getWorld();
     }
 
     /**
@@ -40,15 +42,22 @@ public class Fearful implements ControllerCream {
         this.player = player;
     }
 
+    /**
+     * Activación programada por la rueda de la partida.
+     * @param timers rueda de la partida
+     * @return ticks hasta la siguiente decisión
+     */
+    @Override
+    public int onTimer(TimingWheel timers) {
+        update();
+        return timers.ticksPerStep(DECISIONS_PER_SECOND);
+    }
+
     /**
      * Ejecuta la lógica principal del comportamiento temeroso.
      */
     @Override
     public void update() {
-        tick++;
-        if (tick < speed) return;
-        tick = 0;
-
         if (player == null || !player.isAlive()) return;
         Position pos = player.getPosition();
 
@@ -84,15 +93,7 @@ public class Fearful implements ControllerCream {
      * @return lista de enemigos críticos
      */
     private List<Enemy> criticalEnemies() {
-        List<Enemy> list = new ArrayList<>();
-        Position pos = player.getPosition();
-
-        for (Enemy e : game.getEnemies()) {
-            if (dist(pos, e.getPosition()) <= CRIT_DIST) {
-                list.add(e);
-            }
-        }
-        return list;
+        return world.enemiesWithin(player.getPosition(), CRIT_DIST);
     }
 
     /**
@@ -103,8 +104,8 @@ public class Fearful implements ControllerCream {
         Position pos = player.getPosition();
 
         for (Enemy e : enemies) {
-            if (dist(pos, e.getPosition()) <= 2) {
-                Direction d = dirTo(e.getPosition());
+            if (WorldQuery.dist(pos, e.getPosition()) <= 2) {
+                Direction d = WorldQuery.dirTo(pos, e.getPosition());
                 if (d != null) player.createIce(d);
             }
         }
@@ -121,9 +122,8 @@ public class Fearful implements ControllerCream {
         List<Enemy> list = new ArrayList<>();
         Position pos = player.getPosition();
 
-        for (Enemy e : game.getEnemies()) {
-            int d = dist(pos, e.getPosition());
-            if (d > CRIT_DIST && d <= DANGER_DIST) {
+        for (Enemy e : world.enemiesWithin(pos, DANGER_DIST)) {
+            if (WorldQuery.dist(pos, e.getPosition()) > CRIT_DIST) {
                 list.add(e);
             }
         }
@@ -138,8 +138,8 @@ public class Fearful implements ControllerCream {
         Position pos = player.getPosition();
 
         for (Enemy e : enemies) {
-            if (aligned(pos, e.getPosition())) {
-                Direction d = dirTo(e.getPosition());
+            if (WorldQuery.aligned(pos, e.getPosition())) {
+                Direction d = WorldQuery.dirTo(pos, e.getPosition());
                 if (d != null) player.createIce(d);
             }
         }
@@ -160,14 +160,10 @@ public class Fearful implements ControllerCream {
         for (Fruit f : game.getFruits()) {
             if (!f.isActive() || f.isEaten()) continue;
 
-            int enemyDist = Integer.MAX_VALUE;
-            for (Enemy e : game.getEnemies()) {
-                enemyDist = Math.min(enemyDist, dist(f.getPosition(), e.getPosition()));
-            }
-
+            int enemyDist = world.nearestEnemyDist(f.getPosition());
             if (enemyDist < SAFE_FRUIT_DIST) continue;
 
-            int d = dist(pos, f.getPosition());
+            int d = WorldQuery.dist(pos, f.getPosition());
             int risk = pathRisk(pos, f.getPosition());
 
             int score = (50 - d) - (risk * 10) + (enemyDist * 2);
@@ -200,9 +196,8 @@ public class Fearful implements ControllerCream {
                     (int) (from.getCol() + t * (to.getCol() - from.getCol()))
             );
 
-            for (Enemy e : game.getEnemies()) {
-                int d = dist(p, e.getPosition());
-                if (d <= 3) risk += (4 - d);
+            for (Enemy e : world.enemiesWithin(p, 3)) {
+                risk += 4 - WorldQuery.dist(p, e.getPosition());
             }
         }
         return risk;
@@ -213,14 +208,12 @@ public class Fearful implements ControllerCream {
      * @param target posición objetivo
      */
     private void carefulMove(Position target) {
-        for (Enemy e : game.getEnemies()) {
-            if (dist(target, e.getPosition()) < DANGER_DIST) {
-                safePatrol();
-                return;
-            }
+        if (world.nearestEnemyDist(target) < DANGER_DIST) {
+            safePatrol();
+            return;
         }
 
-        Direction d = dirTo(target);
+        Direction d = WorldQuery.dirTo(player.getPosition(), target);
         tryMove(d);
     }
 
@@ -243,12 +236,12 @@ public class Fearful implements ControllerCream {
         Position pos = player.getPosition();
 
         for (Direction d : Direction.values()) {
-            Position next = nextPos(pos, d);
+            Position next = WorldQuery.step(pos, d);
             if (!map.isValid(next) || map.hasEnemy(next)) continue;
 
             int total = 0;
             for (Enemy e : enemies) {
-                total += dist(next, e.getPosition());
+                total += WorldQuery.dist(next, e.getPosition());
             }
 
             if (total > max) {
@@ -270,7 +263,7 @@ public class Fearful implements ControllerCream {
         Position pos = player.getPosition();
 
         for (Direction d : Direction.values()) {
-            Position next = nextPos(pos, d);
+            Position next = WorldQuery.step(pos, d);
             if (!map.isValid(next) || map.hasEnemy(next)) continue;
 
             int risk = posRisk(next, enemies);
@@ -293,7 +286,7 @@ public class Fearful implements ControllerCream {
 
         int risk = 0;
         for (Enemy e : enemies) {
-            int d = dist(pos, e.getPosition());
+            int d = WorldQuery.dist(pos, e.getPosition());
 
             if (d == 0) risk += 10000;
             else if (d == 1) risk += 5000;
@@ -302,7 +295,7 @@ public class Fearful implements ControllerCream {
             else if (d <= 5) risk += 100;
             else if (d <= 8) risk += 20;
 
-            if (aligned(pos, e.getPosition())) {
+            if (WorldQuery.aligned(pos, e.getPosition())) {
                 risk += 200 / Math.max(d, 1);
             }
         }
@@ -316,7 +309,7 @@ public class Fearful implements ControllerCream {
         Position pos = player.getPosition();
 
         for (Direction d : Direction.values()) {
-            Position p = nextPos(pos, d);
+            Position p = WorldQuery.step(pos, d);
             if (map.isValid(p) && map.isBlocked(p)) {
                 player.destroyIce(d);
                 player.move(d);
@@ -333,7 +326,7 @@ public class Fearful implements ControllerCream {
     private boolean tryMove(Direction d) {
         if (d == null) return false;
 
-        Position next = nextPos(player.getPosition(), d);
+        Position next = WorldQuery.step(player.getPosition(), d);
         boolean ok = player.move(d);
 
         if (!ok && map.isValid(next) && map.isBlocked(next)) {
@@ -344,51 +337,22 @@ public class Fearful implements ControllerCream {
     }
 
     /**
-     * Indica si dos posiciones están alineadas.
-     * @param a primera posición
-     * @param b segunda posición
-     * @return true si comparten fila o columna
-     */
-    private boolean aligned(Position a, Position b) {
-        return a.getRow() == b.getRow() || a.getCol() == b.getCol();
-    }
-
-    /**
-     * Calcula la dirección hacia una posición objetivo.
-     * @param target posición destino
-     * @return dirección hacia el objetivo
+     * Guarda la última posición y los ticks sin avanzar.
+     * @param out destino
      */
-    private Direction dirTo(Position target) {
-        Position pos = player.getPosition();
-        int dr = target.getRow() - pos.getRow();
-        int dc = target.getCol() - pos.getCol();
-
-        return Math.abs(dr) >= Math.abs(dc)
-                ? (dr > 0 ? Direction.DOWN : Direction.UP)
-                : (dc > 0 ? Direction.RIGHT : Direction.LEFT);
-    }
-
-    /**
-     * Calcula la distancia Manhattan entre dos posiciones.
-     * @param a primera posición
-     * @param b segunda posición
-     * @return distancia Manhattan
-     */
-    private int dist(Position a, Position b) {
-        return Math.abs(a.getRow() - b.getRow())
-             + Math.abs(a.getCol() - b.getCol());
+    @Override
+    public void writeState(ByteBuffer out) {
+        GameSnapshot.putPos(out, lastPos);
+        out.putInt(stuckTicks);
     }
 
     /**
-     * Calcula la posición resultante al moverse en una dirección.
-     * @param p posición base
-     * @param d dirección
-     * @return nueva posición
+     * Restaura la última posición y los ticks sin avanzar.
+     * @param in origen
      */
-    private Position nextPos(Position p, Direction d) {
-        return new Position(
-                p.getRow() + d.getRowDelta(),
-                p.getCol() + d.getColDelta()
-        );
+    @Override
+    public void readState(ByteBuffer in) {
+        lastPos = GameSnapshot.getPos(in);
+        stuckTicks = in.getInt();
     }
-}
\ No newline at end of file
+}
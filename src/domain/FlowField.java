@@ -0,0 +1,247 @@
+package domain;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Campo de flujo hacia los jugadores vivos, compartido por los enemigos que rompen hielo.
+ * Da para cada casilla el costo del mejor camino hasta el jugador más cercano: pisar
+ * piso cuesta 1, pasar por un bloque que se puede romper cuesta lo que tarda el enemigo en
+ * esperar, romperlo y avanzar, y los bloques que no se rompen no se cruzan. Se calcula con
+ * el algoritmo de Dial (Dijkstra con cubetas, porque los pesos son enteros pequeños) desde
+ * todos los jugadores a la vez, pero solo hasta donde lo piden las consultas: la búsqueda
+ * se detiene apenas quedan fijas las casillas consultadas y se retoma desde ahí si una
+ * consulta posterior llega más lejos, así que el trabajo queda acotado a la zona entre los
+ * jugadores y los enemigos que preguntan. Se reinicia cuando cambió algún bloque, algún
+ * jugador se movió o murió uno de los jugadores de origen; todos los enemigos que deciden
+ * entre dos cambios comparten la misma búsqueda.
+ * <p>
+ * El mapa lo crea en la primera consulta, así que los niveles sin estos enemigos no pagan
+ * sus arreglos.
+ */
+public final class FlowField {
+
+    /** Costo de una casilla a la que no se llega. */
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+    /** Costo de pisar una casilla libre. */
+    static final int FLOOR_COST = 1;
+    /** Costo de un bloque rompible: una decisión para detenerse, dos de espera, una para romperlo y una para avanzar. */
+    static final int BREAK_COST = 5;
+    private static final int BUCKETS = 8;
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final GameMap map;
+    private final int cols;
+    private final int[] dist;
+    private final int[] stamp;
+    private int epoch;
+    private final int[][] buckets = new int[BUCKETS][];
+    private final int[] sizes = new int[BUCKETS];
+    private final List<IceCream> sources = new ArrayList<>();
+    private int pending;
+    private int cursor;
+    private int next;
+
+    private long blockVersion = -1;
+    private long playerVersion = -1;
+    private long rebuilds;
+    private long settled;
+
+    /**
+     * @param map mapa de la partida
+     */
+    FlowField(GameMap map) {
+        this.map = map;
+        this.cols = map.getCols();
+        this.dist = new int[map.getRows() * cols];
+        this.stamp = new int[dist.length];
+        for (int i = 0; i < BUCKETS; i++) buckets[i] = new int[16];
+    }
+
+    /**
+     * Obtiene el costo del mejor camino desde una casilla hasta un jugador vivo.
+     * @param r fila
+     * @param c columna
+     * @return costo, o {@link #UNREACHABLE} si no hay camino
+     */
+    public int cost(int r, int c) {
+        refresh();
+        return settle(r * cols + c);
+    }
+
+    /**
+     * Elige la vecina por donde sigue el mejor camino hacia un jugador, sin contar las
+     * ocupadas por otro enemigo. A igual costo gana la primera en el orden de las direcciones.
+     * @param from posición del enemigo
+     * @return dirección elegida, o null si ninguna vecina lleva a un jugador
+     */
+    public Direction best(Position from) {
+        refresh();
+        Direction best = null;
+        long bestCost = UNREACHABLE;
+        for (Direction d : DIRECTIONS) {
+            int r = from.getRow() + d.getRowDelta();
+            int c = from.getCol() + d.getColDelta();
+            if (!map.isValid(r, c) || map.hasEnemy(r, c)) continue;
+            int enter = enterCost(r, c);
+            if (enter == 0) continue;
+            int cost = settle(r * cols + c);
+            if (cost == UNREACHABLE) continue;
+            if ((long) enter + cost < bestCost) {
+                bestCost = (long) enter + cost;
+                best = d;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return true si hay algún jugador vivo hacia el que fluir
+     */
+    public boolean hasTargets() {
+        refresh();
+        return !sources.isEmpty();
+    }
+
+    /**
+     * @return veces que se reinició la búsqueda
+     */
+    public long getRebuilds() {
+        return rebuilds;
+    }
+
+    /**
+     * @return casillas fijadas en total por todas las búsquedas
+     */
+    public long getSettled() {
+        return settled;
+    }
+
+    /**
+     * Reinicia la búsqueda si algo de lo que depende cambió desde la última. No se guarda
+     * por tick: así el campo es siempre función del estado actual y una partida restaurada
+     * desde una instantánea decide igual que la original.
+     */
+    private void refresh() {
+        if (blockVersion == map.getBlockVersion() && playerVersion == map.getPlayerVersion() && sourcesAlive()) return;
+        blockVersion = map.getBlockVersion();
+        playerVersion = map.getPlayerVersion();
+        restart();
+    }
+
+    /**
+     * @return true si los jugadores de origen de la búsqueda siguen vivos
+     */
+    private boolean sourcesAlive() {
+        for (IceCream p : sources) {
+            if (!p.isAlive()) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Empieza una búsqueda nueva desde todos los jugadores vivos. Las casillas de la
+     * búsqueda anterior quedan viejas por su marca, sin recorrer el mapa.
+     */
+    private void restart() {
+        rebuilds++;
+        if (++epoch == Integer.MAX_VALUE) {
+            Arrays.fill(stamp, 0);
+            epoch = 1;
+        }
+        Arrays.fill(sizes, 0);
+        pending = 0;
+        cursor = 0;
+        next = 0;
+
+        sources.clear();
+        map.forEachPlayer((r, c, p) -> {
+            if (!p.isAlive()) return;
+            sources.add(p);
+            int cell = r * cols + c;
+            if (distance(cell) != 0) reach(cell, 0);
+        });
+    }
+
+    /**
+     * Avanza la búsqueda hasta que el costo de una casilla quede fijo.
+     * @param cell índice plano de la casilla
+     * @return costo de la casilla, o {@link #UNREACHABLE} si no hay camino
+     */
+    private int settle(int cell) {
+        while (distance(cell) > cursor && expand()) {
+            // cada vuelta fija una casilla más
+        }
+        return distance(cell);
+    }
+
+    /**
+     * Saca la próxima casilla de la cubeta en curso y relaja sus vecinas. Con pesos de al
+     * menos 1, todo lo que tenga costo menor o igual al de la cubeta en curso ya es definitivo.
+     * @return false si la búsqueda ya recorrió todo lo alcanzable
+     */
+    private boolean expand() {
+        while (pending > 0) {
+            int b = cursor & (BUCKETS - 1);
+            if (next == sizes[b]) {
+                sizes[b] = 0;
+                next = 0;
+                cursor++;
+                continue;
+            }
+            int cell = buckets[b][next++];
+            pending--;
+            if (distance(cell) != cursor) continue;
+            int r = cell / cols;
+            int c = cell - r * cols;
+            int enter = enterCost(r, c);
+            if (enter == 0) continue;
+            settled++;
+            int nd = cursor + enter;
+            for (Direction dir : DIRECTIONS) {
+                int nr = r + dir.getRowDelta();
+                int nc = c + dir.getColDelta();
+                if (!map.isValid(nr, nc)) continue;
+                int n = nr * cols + nc;
+                if (nd < distance(n) && enterCost(nr, nc) != 0) reach(n, nd);
+            }
+            return true;
+        }
+        cursor = UNREACHABLE - 1;
+        return false;
+    }
+
+    /**
+     * @param cell índice plano de la casilla
+     * @return costo provisional de la casilla en la búsqueda actual
+     */
+    private int distance(int cell) {
+        return stamp[cell] == epoch ? dist[cell] : UNREACHABLE;
+    }
+
+    /**
+     * Baja el costo provisional de una casilla y la encola en su cubeta.
+     * @param cell índice plano de la casilla
+     * @param d costo nuevo
+     */
+    private void reach(int cell, int d) {
+        stamp[cell] = epoch;
+        dist[cell] = d;
+        int b = d & (BUCKETS - 1);
+        if (sizes[b] == buckets[b].length) buckets[b] = Arrays.copyOf(buckets[b], sizes[b] * 2);
+        buckets[b][sizes[b]++] = cell;
+        pending++;
+    }
+
+    /**
+     * @param r fila
+     * @param c columna
+     * @return costo de entrar a la casilla, 0 si no se puede cruzar
+     */
+    private int enterCost(int r, int c) {
+        Boxy b = map.getBlock(r, c);
+        if (b != null && b.isCreated() && b.canBeDestroyed()) return BREAK_COST;
+        return map.isBlocked(r, c) ? 0 : FLOOR_COST;
+    }
+}
@@ -1,5 +1,6 @@
 package domain;
-import java.util.Random;
+
+import java.nio.ByteBuffer;
 
 /**
  * Representa un enemigo Flowerpot dentro del mapa del juego.
@@ -7,17 +8,16 @@ import java.util.Random;
  */
 public class Flowerpot extends Enemy {
 
-    private static final long MODE_DURATION = 6000;
+    static final double MODE_DURATION = 6.0;
+    private static final double WANDER_SPEED = 3.3;
+    private static final double CHASE_SPEED = 6.7;
 
     private boolean chasingMode;
     private long modeTimer;
     @SuppressWarnings("unused")
     private BadIceCream game;
 
-    private int tick = 2;
-    private int speed = 2;
 
-    private final Random random;
     private Direction flowerpotDirection;
 
     /**
@@ -26,9 +26,8 @@ public class Flowerpot extends Enemy {
      */
     public Flowerpot(Position position) {
         super(EnemyType.flowerpot, position);
-        this.random = new Random();
         this.flowerpotDirection = Direction.UP;
-        this.modeTimer = System.currentTimeMillis();
+        this.modeTimer = 0;
     }
 
     /**
@@ -72,20 +71,13 @@ public class Flowerpot extends Enemy {
      */
     @Override
     public void doUpdate() {
-
-        tick++;
-        if (tick < speed) {
-            return;
-        }
-        tick = 0;
-
-        long now = System.currentTimeMillis();
+        TimingWheel timers = gameMap.getTimers();
+        long now = timers.now();
         long elapsed = now - modeTimer;
 
-        if (elapsed >= MODE_DURATION) {
+        if (elapsed >= timers.ticksFor(MODE_DURATION)) {
             chasingMode = !chasingMode;
             modeTimer = now;
-            speed = chasingMode ? 1 : 2;
         }
 
         if (!chasingMode) {
@@ -122,6 +114,23 @@ public class Flowerpot extends Enemy {
         moveAny();
     }
 
+    /**
+     * @return velocidad en casillas por segundo, el doble al perseguir
+     */
+    @Override
+    protected double cellsPerSecond() {
+        return chasingMode ? CHASE_SPEED : WANDER_SPEED;
+    }
+
+    /**
+     * @param timers rueda de la partida
+     * @return un tick: la maceta actúa apenas entra en la partida
+     */
+    @Override
+    public int firstDelay(TimingWheel timers) {
+        return 1;
+    }
+
     /**
      * Busca el jugador vivo más cercano en el mapa.
      * @return jugador más cercano o null si no hay jugadores vivos
@@ -201,12 +210,8 @@ public class Flowerpot extends Enemy {
      * Intenta moverse en cualquier dirección disponible.
      */
     private void moveAny() {
-        for (Direction dir : Direction.values()) {
-            if (moveInDirection(dir)) {
-                setAndMove(dir);
-                return;
-            }
-        }
+        int free = freeDirections();
+        if (free != 0) setAndMove(firstFree(free));
     }
 
     /**
@@ -262,7 +267,7 @@ public class Flowerpot extends Enemy {
      */
     private Direction getRandomDir() {
         Direction[] dirs = Direction.values();
-        return dirs[random.nextInt(dirs.length)];
+        return dirs[gameMap.getRandom().nextInt(dirs.length)];
     }
 
     /**
@@ -290,4 +295,65 @@ public class Flowerpot extends Enemy {
     public boolean isCharging() {
         return chasingMode;
     }
-}
\ No newline at end of file
+
+    /**
+     * @return tick en que empezó el modo actual
+     */
+    long getModeSince() {
+        return modeTimer;
+    }
+
+    /**
+     * Aplica un cambio de modo decidido por el almacén de entidades.
+     * @param chasing true si pasa a perseguir
+     * @param since tick del cambio
+     */
+    void applyMode(boolean chasing, long since) {
+        chasingMode = chasing;
+        modeTimer = since;
+    }
+
+    /**
+     * @return 1 si está persiguiendo
+     */
+    @Override
+    int replicaFlags() {
+        return chasingMode ? 1 : 0;
+    }
+
+    /**
+     * @param p posición replicada
+     * @param d dirección replicada
+     * @param flags 1 si está persiguiendo
+     */
+    @Override
+    void applyReplica(Position p, Direction d, int flags) {
+        flowerpotDirection = d;
+        chasingMode = (flags & 1) != 0;
+        super.applyReplica(p, d, flags);
+    }
+
+    /**
+     * Agrega el modo, su inicio y la dirección propia al estado guardado.
+     * @param out destino
+     */
+    @Override
+    void writeState(ByteBuffer out) {
+        super.writeState(out);
+        out.put((byte) (chasingMode ? 1 : 0));
+        out.putLong(modeTimer);
+        GameSnapshot.putDir(out, flowerpotDirection);
+    }
+
+    /**
+     * Restaura el modo, su inicio y la dirección propia.
+     * @param in origen
+     */
+    @Override
+    void readState(ByteBuffer in) {
+        super.readState(in);
+        chasingMode = in.get() != 0;
+        modeTimer = in.getLong();
+        flowerpotDirection = GameSnapshot.getDir(in);
+    }
+}
@@ -0,0 +1,199 @@
+package domain;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Base de los servidores que difunden tramas de estado: un solo hilo atiende con un
+ * selector no bloqueante el puerto de escucha y las conexiones. Acepta clientes, lee lo que
+ * envían, escribe sus colas y los desconecta; qué se lee y qué se envía lo decide cada
+ * servidor. La cola y la contrapresión de cada cliente están en {@link ClientConnection}.
+ * @param <C> tipo de conexión del servidor
+ */
+abstract class FrameServer<C extends ClientConnection> implements Runnable, Closeable {
+
+    private final Logger logger;
+    protected final Selector selector;
+    private final ServerSocketChannel server;
+    protected final List<C> clients = new ArrayList<>();
+    protected volatile boolean running;
+    private volatile int clientCount;
+
+    /**
+     * Abre el selector y el puerto de escucha.
+     * @param bind dirección de escucha (puerto 0 para uno libre)
+     * @param logger registro del servidor concreto
+     * @throws IOException si no se puede abrir el puerto
+     */
+    FrameServer(InetSocketAddress bind, Logger logger) throws IOException {
+        this.logger = logger;
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        server.configureBlocking(false);
+        server.bind(bind);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * @return puerto local de escucha
+     */
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * Detiene el servidor y cierra todas las conexiones.
+     */
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+    }
+
+    /**
+     * Inicia el bucle del servidor en un hilo propio.
+     * @param threadName nombre del hilo
+     * @return hilo del servidor
+     */
+    protected Thread startThread(String threadName) {
+        Thread t = new Thread(this, threadName);
+        t.setDaemon(true);
+        running = true;
+        t.start();
+        return t;
+    }
+
+    /**
+     * @return cantidad de clientes conectados, legible desde cualquier hilo
+     */
+    protected int connectedClients() {
+        return clientCount;
+    }
+
+    /**
+     * Crea la conexión de un cliente recién aceptado.
+     * @param channel canal del cliente, ya no bloqueante
+     * @param key registro del canal en el selector
+     * @return conexión
+     */
+    protected abstract C open(SocketChannel channel, SelectionKey key);
+
+    /**
+     * Envía a un cliente recién conectado lo que necesita para empezar.
+     * @param c conexión
+     * @throws IOException si falla la escritura
+     */
+    protected abstract void welcome(C c) throws IOException;
+
+    /**
+     * Lee lo que envió un cliente.
+     * @param c conexión
+     * @throws IOException si el cliente cerró la conexión o envió algo inválido
+     */
+    protected abstract void read(C c) throws IOException;
+
+    /**
+     * Se llama después de cerrar la conexión de un cliente.
+     * @param c conexión cerrada
+     */
+    protected void closed(C c) {
+        // sin recursos propios por defecto
+    }
+
+    /**
+     * Atiende las claves listas del selector.
+     * @throws IOException si falla el canal de escucha
+     */
+    protected void handleKeys() throws IOException {
+        Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+        while (it.hasNext()) {
+            SelectionKey key = it.next();
+            it.remove();
+            if (!key.isValid()) continue;
+
+            if (key.isAcceptable()) {
+                accept();
+                continue;
+            }
+
+            @SuppressWarnings("unchecked")
+            C c = (C) key.attachment();
+            try {
+                if (key.isReadable()) read(c);
+                if (key.isValid() && key.isWritable()) c.flush();
+            } catch (IOException e) {
+                disconnect(c, e);
+            }
+        }
+    }
+
+    /**
+     * Acepta un cliente, lo registra y le envía la bienvenida.
+     * @throws IOException si falla la aceptación
+     */
+    private void accept() throws IOException {
+        SocketChannel ch = server.accept();
+        if (ch == null) return;
+        ch.configureBlocking(false);
+        ch.setOption(StandardSocketOptions.TCP_NODELAY, true);
+
+        SelectionKey key = ch.register(selector, SelectionKey.OP_READ);
+        C c = open(ch, key);
+        key.attach(c);
+        clients.add(c);
+        clientCount = clients.size();
+
+        logger.info("Conectado: " + c.name());
+        try {
+            welcome(c);
+        } catch (IOException e) {
+            disconnect(c, e);
+        }
+    }
+
+    /**
+     * Cierra la conexión de un cliente que falló.
+     * @param c conexión
+     * @param cause error de lectura o escritura
+     */
+    protected void disconnect(C c, IOException cause) {
+        GameLog.log(logger, Level.FINE, cause, "Desconectado: {0}", c.name());
+        disconnect(c);
+    }
+
+    /**
+     * Cierra la conexión de un cliente y la saca de la lista.
+     * @param c conexión
+     */
+    private void disconnect(C c) {
+        c.close();
+        clients.remove(c);
+        clientCount = clients.size();
+        closed(c);
+    }
+
+    /**
+     * Cierra el selector, el canal de escucha y los clientes.
+     */
+    protected void closeQuietly() {
+        running = false;
+        for (C c : new ArrayList<>(clients)) disconnect(c);
+        try {
+            server.close();
+            selector.close();
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Error al cerrar el servidor", e);
+        }
+    }
+}
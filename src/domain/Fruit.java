@@ -1,10 +1,16 @@
 package domain;
 
+import java.nio.ByteBuffer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
 /**
  * Representa una fruta dentro del mapa del juego.
  * Define su tipo, estado, posición y comportamiento básico.
  */
-public abstract class Fruit {
+public abstract class Fruit implements TimingWheel.Timed {
+
+    private static final Logger LOGGER = Logger.getLogger(Fruit.class.getName());
 
     protected FruitType type;
     protected FruitState state;
@@ -14,6 +20,11 @@ public abstract class Fruit {
     protected int scoreValue;
     protected boolean frozen = false;
     protected boolean active = false;
+    private int order;
+    private EntityStore store;
+    private int slot = -1;
+    private GameMap placed;
+    private long hashKey;
 
     /**
      * Crea una fruta con sus atributos básicos.
@@ -41,6 +52,7 @@ public abstract class Fruit {
      */
     public void freeze() {
         frozen = true;
+        changed();
     }
 
     /**
@@ -48,6 +60,7 @@ public abstract class Fruit {
      */
     public void unfreeze() {
         frozen = false;
+        changed();
     }
 
     /**
@@ -71,6 +84,7 @@ public abstract class Fruit {
      */
     public void activate() {
         active = true;
+        changed();
     }
 
     /**
@@ -78,6 +92,7 @@ public abstract class Fruit {
      */
     public void deactivate() {
         active = false;
+        changed();
     }
 
     /**
@@ -110,6 +125,39 @@ public abstract class Fruit {
         update();
     }
 
+    /**
+     * Asigna el mapa del juego a la fruta. Las frutas que no lo usan lo ignoran.
+     * @param map mapa del juego
+     */
+    public void setGameMap(GameMap map) {
+    }
+
+    /**
+     * Obtiene cada cuántos ticks actúa la fruta por sí sola.
+     * @param timers rueda de la partida
+     * @return ticks entre activaciones, o 0 si la fruta no tiene comportamiento periódico
+     */
+    public int timerPeriod(TimingWheel timers) {
+        return 0;
+    }
+
+    /**
+     * Activación programada por la rueda de la partida. Una fruta comida deja de programarse;
+     * un fallo al actualizarla se registra sin detener la partida.
+     * @param timers rueda de la partida
+     * @return ticks hasta la siguiente activación, o 0 si ya fue comida
+     */
+    @Override
+    public int onTimer(TimingWheel timers) {
+        if (isEaten()) return 0;
+        try {
+            update();
+        } catch (RuntimeException ex) {
+            LOGGER.log(Level.WARNING, BadIceCreamException.FRUIT_FAILURE, ex);
+        }
+        return timerPeriod(timers);
+    }
+
     /**
      * Obtiene el tipo de fruta.
      * @return tipo de fruta
@@ -140,6 +188,75 @@ public abstract class Fruit {
      */
     public void setPosition(Position position) {
         this.position = position;
+        changed();
+    }
+
+    /**
+     * @return posición de la fruta en la lista de la partida, para desempatar consultas espaciales
+     */
+    int getOrder() {
+        return order;
+    }
+
+    /**
+     * @param order posición de la fruta en la lista de la partida
+     */
+    void setOrder(int order) {
+        this.order = order;
+        changed();
+    }
+
+    /**
+     * Enlaza la fruta con el almacén que la actualiza por lotes. Desde entonces el objeto
+     * es una vista: los cambios hechos desde fuera del almacén se le copian.
+     * @param store almacén de entidades
+     * @param slot ranura de la fruta en su carril
+     */
+    void attach(EntityStore store, int slot) {
+        this.store = store;
+        this.slot = slot;
+    }
+
+    /**
+     * @return ranura de la fruta en el almacén de entidades, o -1 si no está enlazada
+     */
+    int getSlot() {
+        return slot;
+    }
+
+    /**
+     * Enlaza la fruta con el mapa que la tiene en una casilla y recalcula su clave de
+     * Zobrist, o la desenlaza con null.
+     * @param map mapa que la contiene o null
+     */
+    void place(GameMap map) {
+        this.placed = map;
+        this.hashKey = map == null ? 0 : Zobrist.fruit(map.getCols(), this);
+    }
+
+    /**
+     * @return aporte de la fruta al hash del mapa, 0 si no está en ninguno
+     */
+    long getHashKey() {
+        return hashKey;
+    }
+
+    /**
+     * Cambia el estado de la fruta avisando el cambio.
+     * @param state nuevo estado
+     */
+    protected void setState(FruitState state) {
+        this.state = state;
+        changed();
+    }
+
+    /**
+     * Copia al almacén de entidades y al hash del mapa, si hay, un cambio de estado hecho
+     * desde fuera de ellos.
+     */
+    private void changed() {
+        if (store != null) store.pull(this);
+        if (placed != null) placed.fruitChanged(this);
     }
 
     /**
@@ -171,6 +288,7 @@ public abstract class Fruit {
      */
     public void eat() {
         this.state = FruitState.eaten;
+        changed();
     }
 
     /**
@@ -178,6 +296,7 @@ public abstract class Fruit {
      */
     public void reset() {
         this.state = FruitState.active;
+        changed();
     }
 
     /**
@@ -195,4 +314,42 @@ public abstract class Fruit {
     public boolean isAnimated() {
         return false;
     }
-}
\ No newline at end of file
+
+    /**
+     * Resume el estado de la fruta para la sincronización en red.
+     * @return ordinal del estado en los bits bajos, 4 si está activa, 8 si está congelada
+     */
+    int replicaFlags() {
+        return state.ordinal() | (active ? 4 : 0) | (frozen ? 8 : 0);
+    }
+
+    /**
+     * Aplica el estado recibido del servidor sin ejecutar la lógica de la fruta.
+     * @param p posición replicada
+     * @param flags bits de {@link #replicaFlags()}
+     */
+    void applyReplica(Position p, int flags) {
+        this.position = p;
+        this.state = FruitState.values()[flags & 3];
+        this.active = (flags & 4) != 0;
+        this.frozen = (flags & 8) != 0;
+        changed();
+    }
+
+    /**
+     * Escribe el estado completo de la fruta en una instantánea.
+     * @param out destino
+     */
+    void writeState(ByteBuffer out) {
+        GameSnapshot.putPos(out, position);
+        out.put((byte) replicaFlags());
+    }
+
+    /**
+     * Restaura el estado escrito con {@link #writeState}.
+     * @param in origen
+     */
+    void readState(ByteBuffer in) {
+        applyReplica(GameSnapshot.getPos(in), in.get());
+    }
+}
@@ -0,0 +1,258 @@
+package domain;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Cliente de una partida en red. Al conectarse recibe la configuración y la semilla del
+ * servidor y construye con ellas una réplica de la partida que nunca se simula localmente:
+ * solo recibe el estado de cada tick. El canal no es bloqueante, así que la interfaz puede
+ * consultar {@link #poll()} en cada cuadro sin detenerse. Si el servidor empieza otra partida
+ * envía un saludo nuevo y el cliente reemplaza la réplica. Cada trama aplicada se compara
+ * con la suma de verificación del servidor.
+ */
+public final class GameClient implements Closeable {
+
+    private final SocketChannel channel;
+    private int player;
+    private BadIceCream game;
+    private ByteBuffer in = ByteBuffer.allocate(16 * 1024);
+    private final ByteBuffer out = ByteBuffer.allocate(1024);
+    private long framesApplied;
+    private long checksumMismatches;
+    private long bytesReceived;
+
+    /**
+     * @param channel canal ya saludado
+     * @param player puesto asignado o -1 si solo observa
+     * @param game réplica de la partida
+     */
+    private GameClient(SocketChannel channel, int player, BadIceCream game) {
+        this.channel = channel;
+        this.player = player;
+        this.game = game;
+    }
+
+    /**
+     * Se conecta a un servidor, espera su saludo y construye la réplica de la partida.
+     * @param host dirección del servidor
+     * @param port puerto del servidor
+     * @return cliente conectado
+     * @throws IOException si falla la conexión o el saludo es inválido
+     */
+    public static GameClient connect(String host, int port) throws IOException {
+        SocketChannel ch = SocketChannel.open(new InetSocketAddress(host, port));
+        try {
+            ch.setOption(StandardSocketOptions.TCP_NODELAY, true);
+
+            ByteBuffer header = readFully(ch, StateCodec.HEADER);
+            int len = header.getInt();
+            byte type = header.get();
+            if (type != StateCodec.HELLO || len < 2 || len > StateCodec.MAX_FRAME) {
+                throw new IOException("Saludo inválido del servidor");
+            }
+
+            ByteBuffer hello = readFully(ch, len - 1);
+            int player = hello.get();
+            BadIceCream replica = replicaOf(hello);
+
+            ch.configureBlocking(false);
+            return new GameClient(ch, player, replica);
+        } catch (IOException | RuntimeException e) {
+            ch.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Construye la réplica descrita por un saludo cuyo primer byte ya fue leído.
+     * @param hello contenido del saludo a partir de la configuración
+     * @return réplica de la partida
+     * @throws IOException si el nivel no existe
+     */
+    private static BadIceCream replicaOf(ByteBuffer hello) throws IOException {
+        GameConfig cfg = StateCodec.readConfig(hello);
+        BadIceCream replica = LevelLoader.loadLevel(cfg.getLevel(), cfg);
+        if (replica == null) throw new IOException("Nivel desconocido: " + cfg.getLevel());
+        return replica;
+    }
+
+    /**
+     * Lee exactamente una cantidad de bytes de un canal bloqueante.
+     * @param ch canal
+     * @param n cantidad de bytes
+     * @return búfer listo para leer
+     * @throws IOException si el canal se cierra antes
+     */
+    private static ByteBuffer readFully(SocketChannel ch, int n) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(n);
+        while (buf.hasRemaining()) {
+            if (ch.read(buf) < 0) throw new EOFException("Conexión cerrada durante el saludo");
+        }
+        return buf.flip();
+    }
+
+    /**
+     * Envía las acciones pendientes y aplica sobre la réplica todas las tramas de estado
+     * completas que hayan llegado, sin bloquear.
+     * @return cantidad de tramas de estado aplicadas
+     * @throws IOException si el servidor cerró la conexión o envió una trama inválida
+     */
+    public int poll() throws IOException {
+        flush();
+
+        int applied = 0;
+        int n;
+        while ((n = channel.read(in)) > 0) {
+            bytesReceived += n;
+            applied += drain();
+            if (!in.hasRemaining()) grow();
+        }
+        if (n < 0) throw new EOFException("Conexión cerrada por el servidor");
+        return applied;
+    }
+
+    /**
+     * Aplica las tramas completas del búfer de entrada.
+     * @return cantidad de tramas de estado aplicadas
+     * @throws IOException si una trama es inválida
+     */
+    private int drain() throws IOException {
+        int applied = 0;
+        in.flip();
+        while (in.remaining() >= StateCodec.HEADER) {
+            int start = in.position();
+            int len = in.getInt(start);
+            if (len < 1 || len > StateCodec.MAX_FRAME) throw new IOException("Trama inválida: " + len);
+            if (in.remaining() < 4 + len) break;
+
+            byte type = in.get(start + 4);
+            if (type == StateCodec.STATE) {
+                if (!StateCodec.apply(in.slice(start + StateCodec.HEADER, len - 1), game)) checksumMismatches++;
+                framesApplied++;
+                applied++;
+            } else if (type == StateCodec.HELLO && len >= 2) {
+                ByteBuffer hello = in.slice(start + StateCodec.HEADER, len - 1);
+                player = hello.get();
+                game = replicaOf(hello);
+            }
+            in.position(start + 4 + len);
+        }
+        in.compact();
+        return applied;
+    }
+
+    /**
+     * Duplica el búfer de entrada cuando una trama no cabe en él.
+     */
+    private void grow() {
+        ByteBuffer bigger = ByteBuffer.allocate(in.capacity() * 2);
+        in.flip();
+        bigger.put(in);
+        in = bigger;
+    }
+
+    /**
+     * Envía una acción del jugador local. Si el canal está saturado la acción se descarta.
+     * @param action acción a enviar
+     * @return true si la acción quedó enviada o encolada
+     * @throws IOException si falla la escritura
+     */
+    public boolean send(PlayerAction action) throws IOException {
+        if (player < 0) return false;
+        if (out.remaining() < StateCodec.HEADER + 1) flush();
+        if (out.remaining() < StateCodec.HEADER + 1) return false;
+        StateCodec.encodeInput(out, action);
+        flush();
+        return true;
+    }
+
+    /**
+     * Escribe en el canal lo que quede pendiente de enviar.
+     * @throws IOException si falla la escritura
+     */
+    private void flush() throws IOException {
+        if (out.position() == 0) return;
+        out.flip();
+        channel.write(out);
+        out.compact();
+    }
+
+    /**
+     * @return réplica de la partida
+     */
+    public BadIceCream getGame() {
+        return game;
+    }
+
+    /**
+     * @return puesto asignado por el servidor o -1 si solo observa
+     */
+    public int getPlayerIndex() {
+        return player;
+    }
+
+    /**
+     * @return tramas de estado aplicadas desde la conexión
+     */
+    public long getFramesApplied() {
+        return framesApplied;
+    }
+
+    /**
+     * @return tramas cuya réplica resultante no coincidió con la suma de verificación del servidor
+     */
+    public long getChecksumMismatches() {
+        return checksumMismatches;
+    }
+
+    /**
+     * @return bytes recibidos desde la conexión, saludo inicial aparte
+     */
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    /**
+     * Cierra la conexión con el servidor.
+     * @throws IOException si falla el cierre
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // ==================== LÍNEA DE COMANDOS ====================
+
+    /**
+     * Espectador sin interfaz gráfica: se conecta, reconstruye la partida durante un tiempo
+     * y reporta las tramas aplicadas y las que no pasaron la verificación.
+     * Uso: {@code GameClient <host> <puerto> [segundos]}.
+     * @param args argumentos de la línea de comandos
+     * @throws IOException si falla la conexión
+     * @throws InterruptedException si se interrumpe la espera entre lecturas
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.err.println("Uso: GameClient <host> <puerto> [segundos]");
+            return;
+        }
+        long seconds = args.length > 2 ? Long.parseLong(args[2]) : 10;
+        try (GameClient client = connect(args[0], Integer.parseInt(args[1]))) {
+            long end = System.nanoTime() + seconds * 1_000_000_000L;
+            while (System.nanoTime() < end) {
+                client.poll();
+                Thread.sleep(5);
+            }
+            System.out.println("tramas=" + client.getFramesApplied()
+                    + " bytes=" + client.getBytesReceived()
+                    + " fallos_verificacion=" + client.getChecksumMismatches()
+                    + " ticks=" + client.getGame().getElapsedTicks());
+        }
+    }
+}
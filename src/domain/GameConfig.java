@@ -13,6 +13,11 @@ public class GameConfig {
     private Map<String, Integer> fruits;
     private Map<String, Integer> enemies;
     private Map<String, Integer> obstacles;
+    private Long seed;
+    private int tickRate = TimingWheel.DEFAULT_TICK_RATE;
+    private boolean coalesceInputs = true;
+    private long decisionBudgetNanos;
+    private boolean entityStore;
 
     /**
      * Crea una configuración vacía del juego.
@@ -118,4 +123,108 @@ public class GameConfig {
     public int getTotalObstacles() {
         return obstacles.values().stream().mapToInt(Integer::intValue).sum();
     }
-}
\ No newline at end of file
+
+    /**
+     * Obtiene la semilla de la partida.
+     * @return semilla o null si la partida usa una distribución aleatoria nueva
+     */
+    public Long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Fija la semilla de la partida para que la distribución sea reproducible.
+     * @param seed semilla o null para una distribución aleatoria nueva
+     */
+    public void setSeed(Long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Obtiene la frecuencia de simulación de la partida.
+     * @return ticks de simulación por segundo
+     */
+    public int getTickRate() {
+        return tickRate;
+    }
+
+    /**
+     * Fija la frecuencia de simulación, independiente del ritmo de dibujo.
+     * @param tickRate ticks de simulación por segundo
+     */
+    public void setTickRate(int tickRate) {
+        this.tickRate = tickRate;
+    }
+
+    /**
+     * @return true si las acciones repetidas de un jugador en un tick se combinan
+     */
+    public boolean isCoalesceInputs() {
+        return coalesceInputs;
+    }
+
+    /**
+     * Fija si se combinan las acciones de un mismo jugador que llegan en un tick. Al
+     * combinarlas se pierden pulsaciones: de cada jugador se aplica solo el último
+     * movimiento del tick y una vez cada acción de hielo, así que dos movimientos distintos
+     * en el mismo tick quedan en uno. Sin combinar se aplican todas en orden de llegada.
+     * @param coalesceInputs true para combinarlas
+     */
+    public void setCoalesceInputs(boolean coalesceInputs) {
+        this.coalesceInputs = coalesceInputs;
+    }
+
+    /**
+     * @return presupuesto por decisión de los controladores automáticos en nanosegundos,
+     *         0 si solo se mide
+     */
+    public long getDecisionBudgetNanos() {
+        return decisionBudgetNanos;
+    }
+
+    /**
+     * Fija el presupuesto por decisión de los controladores automáticos. Con presupuesto la
+     * partida deja de ser reproducible, así que no debe usarse en red ni en torneos.
+     * @param decisionBudgetNanos nanosegundos por decisión, 0 para solo medir
+     */
+    public void setDecisionBudgetNanos(long decisionBudgetNanos) {
+        this.decisionBudgetNanos = decisionBudgetNanos;
+    }
+
+    /**
+     * @return true si los enemigos y frutas con núcleo de actualización se actualizan por lotes
+     */
+    public boolean isEntityStore() {
+        return entityStore;
+    }
+
+    /**
+     * Activa la actualización por lotes de enemigos y frutas desde arreglos paralelos.
+     * No solo cambia la velocidad: cambia el resultado de la partida. Con el almacén, los
+     * trolls y las macetas no sacan sus giros del generador de la partida sino de un valor
+     * propio de cada entidad y tick, y las macetas dejan de sortear su dirección al
+     * cambiar de modo; además cambia el orden de las actualizaciones dentro de un tick.
+     * Por eso la misma semilla da partidas distintas con el almacén activado y sin él: cada
+     * variante es reproducible por sí misma, pero los resultados de torneos o repeticiones
+     * solo se comparan entre corridas con el mismo valor, y todos los pares de una partida
+     * en red deben usar el mismo.
+     * @param entityStore true para activarla
+     */
+    public void setEntityStore(boolean entityStore) {
+        this.entityStore = entityStore;
+    }
+
+    /**
+     * Lee una lista de cantidades con la forma {@code Tipo:cantidad,Tipo:cantidad}.
+     * @param text texto de la lista
+     * @return cantidades por tipo en el orden dado
+     */
+    public static Map<String, Integer> parseCounts(String text) {
+        Map<String, Integer> out = new LinkedHashMap<>();
+        for (String item : text.split(",")) {
+            String[] kv = item.trim().split(":");
+            if (kv.length == 2) out.put(kv[0], Integer.parseInt(kv[1]));
+        }
+        return out;
+    }
+}
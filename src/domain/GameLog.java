@@ -0,0 +1,106 @@
+package domain;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.logging.FileHandler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import java.util.logging.SimpleFormatter;
+
+/**
+ * Utilidades de log del juego: instala el manejador asíncrono sobre un archivo
+ * y ofrece registros parametrizados que solo se construyen si el nivel está habilitado.
+ * El nivel por defecto es INFO y puede cambiarse con la propiedad {@code badicecream.log.level}.
+ */
+public final class GameLog {
+
+    private static final int QUEUE_CAPACITY = 1024;
+
+    /**
+     * Evita la creación de instancias.
+     */
+    private GameLog() {
+    }
+
+    /**
+     * Configura un logger para escribir de forma asíncrona en un archivo.
+     * @param logger logger a configurar
+     * @param file ruta del archivo de log
+     * @throws IOException si no se puede abrir el archivo
+     */
+    public static void install(Logger logger, String file) throws IOException {
+        Path parent = Paths.get(file).toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        FileHandler fileHandler = new FileHandler(file, true);
+        fileHandler.setFormatter(new SimpleFormatter());
+
+        AsyncLogHandler async = new AsyncLogHandler(fileHandler, QUEUE_CAPACITY);
+        logger.addHandler(async);
+        logger.setUseParentHandlers(false); // evita log en consola
+        logger.setLevel(configuredLevel());
+
+        Runtime.getRuntime().addShutdownHook(new Thread(async::close, "badicecream-log-close"));
+    }
+
+    /**
+     * Obtiene el nivel configurado por propiedad del sistema.
+     * @return nivel de log a usar
+     */
+    private static Level configuredLevel() {
+        String name = System.getProperty("badicecream.log.level", "INFO");
+        try {
+            return Level.parse(name);
+        } catch (IllegalArgumentException e) {
+            return Level.INFO;
+        }
+    }
+
+    /**
+     * Registra un mensaje con un parámetro, sin formatear si el nivel está deshabilitado.
+     * @param logger logger destino
+     * @param level nivel del mensaje
+     * @param thrown excepción asociada o null
+     * @param pattern patrón con marcadores {@code {0}}
+     * @param p0 primer parámetro
+     */
+    public static void log(Logger logger, Level level, Throwable thrown, String pattern, Object p0) {
+        if (!logger.isLoggable(level)) return;
+        publish(logger, level, thrown, pattern, new Object[]{p0});
+    }
+
+    /**
+     * Registra un mensaje con dos parámetros, sin formatear si el nivel está deshabilitado.
+     * @param logger logger destino
+     * @param level nivel del mensaje
+     * @param thrown excepción asociada o null
+     * @param pattern patrón con marcadores {@code {0}} y {@code {1}}
+     * @param p0 primer parámetro
+     * @param p1 segundo parámetro
+     */
+    public static void log(Logger logger, Level level, Throwable thrown, String pattern, Object p0, Object p1) {
+        if (!logger.isLoggable(level)) return;
+        publish(logger, level, thrown, pattern, new Object[]{p0, p1});
+    }
+
+    /**
+     * Construye el registro y lo entrega al logger.
+     * @param logger logger destino
+     * @param level nivel del mensaje
+     * @param thrown excepción asociada o null
+     * @param pattern patrón del mensaje
+     * @param params parámetros del patrón
+     */
+    private static void publish(Logger logger, Level level, Throwable thrown, String pattern, Object[] params) {
+        LogRecord record = new LogRecord(level, pattern);
+        record.setLoggerName(logger.getName());
+        record.setParameters(params);
+        record.setThrown(thrown);
+        logger.log(record);
+    }
+}
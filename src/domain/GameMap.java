@@ -1,22 +1,49 @@
 package domain;
 
 import java.awt.Dimension;
+import java.awt.GraphicsEnvironment;
 import java.awt.Toolkit;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.IntConsumer;
 
 /**
  * Representa el mapa lógico del juego y gestiona bloques, frutas,
- * enemigos y jugadores.
+ * enemigos y jugadores. Las capas se guardan en cuadrículas por regiones,
+ * así que las zonas vacías de un mapa grande no ocupan memoria; una casilla
+ * sin bloque es piso. Los cambios de bloques se anotan en un diario de casillas
+ * que la sincronización en red consume una vez por tick.
  */
 public class GameMap {
 
+    private static final int HEADLESS_SIDE = 864;
+    private static final Direction[] DIRECTIONS = Direction.values();
+
     private final int rows;
     private final int cols;
     private final int cell;
-    private final Boxy[][] blocks;
-    private final Fruit[][] fruits;
-    private final Enemy[][] enemies;
-    private final IceCream[][] players;
-    private final BoxState[][] baseStates;
+    private final ChunkedGrid<Boxy> blocks;
+    private final ChunkedGrid<Fruit> fruits;
+    private final ChunkedGrid<Enemy> enemies;
+    private final ChunkedGrid<IceCream> players;
+    private final SpatialIndex<Fruit> fruitIndex;
+    private final SpatialIndex<Enemy> enemyIndex;
+    private final LineMask blockedMask;
+    private final LineMask sightMask;
+    private final ChunkedGrid<BoxState> baseStates;
+    private TimingWheel timers;
+    private GameRandom random = new GameRandom(System.nanoTime());
+    private final BitSet changed = new BitSet();
+    private int[] changedCells = new int[64];
+    private int changedCount;
+    private long enemyVersion;
+    private long blockVersion;
+    private long playerVersion;
+    private FlowField flowField;
+    private final NeighborMasks neighbors;
+    private long blockHash;
+    private long enemyHash;
+    private long fruitHash;
 
     /**
      * Crea un mapa con el tamaño indicado.
@@ -24,18 +51,26 @@ public class GameMap {
      * @param cols número de columnas
      */
     public GameMap(int rows, int cols) {
-        Dimension screen = Toolkit.getDefaultToolkit().getScreenSize();
-        int side = Math.min(screen.width, screen.height);
+        int side = HEADLESS_SIDE;
+        if (!GraphicsEnvironment.isHeadless()) {
+            Dimension screen = Toolkit.getDefaultToolkit().getScreenSize();
+            side = Math.min(screen.width, screen.height);
+        }
 
         this.rows = Math.max(3, rows);
         this.cols = Math.max(3, cols);
         this.cell = Math.max(8, side / 18);
 
-        blocks = new Boxy[this.rows][this.cols];
-        fruits = new Fruit[this.rows][this.cols];
-        enemies = new Enemy[this.rows][this.cols];
-        players = new IceCream[this.rows][this.cols];
-        baseStates = new BoxState[this.rows][this.cols];
+        blocks = new ChunkedGrid<>(this.rows, this.cols);
+        fruits = new ChunkedGrid<>(this.rows, this.cols);
+        enemies = new ChunkedGrid<>(this.rows, this.cols);
+        players = new ChunkedGrid<>(this.rows, this.cols);
+        baseStates = new ChunkedGrid<>(this.rows, this.cols);
+        fruitIndex = new SpatialIndex<>(this.rows, this.cols, Fruit::getOrder);
+        enemyIndex = new SpatialIndex<>(this.rows, this.cols, Enemy::getOrder);
+        blockedMask = new LineMask(this.rows, this.cols);
+        sightMask = new LineMask(this.rows, this.cols);
+        neighbors = new NeighborMasks(this.rows, this.cols);
     }
 
     /**
@@ -44,8 +79,97 @@ public class GameMap {
      * @param block bloque a colocar
      */
     public void setBlock(Position pos, Boxy block) {
-        if (isValid(pos)) {
-            blocks[pos.getRow()][pos.getCol()] = block;
+        if (isValid(pos)) replaceBlock(pos.getRow(), pos.getCol(), block);
+    }
+
+    /**
+     * Pone un bloque en una casilla, sacando antes del hash el bloque que había.
+     * @param r fila
+     * @param c columna
+     * @param block bloque nuevo o null
+     */
+    private void replaceBlock(int r, int c, Boxy block) {
+        Boxy old = blocks.get(r, c);
+        if (old != null) {
+            blockHash ^= Zobrist.block(r * cols + c, old.getHashedCode());
+            old.setHashedCode(0);
+        }
+        if (block != null) block.setGameMap(this);
+        blocks.set(r, c, block);
+        blockChanged(r, c);
+    }
+
+    /**
+     * Anota que el bloque de una casilla cambió de tipo o de estado.
+     * Cada casilla aparece a lo sumo una vez en el diario hasta que se consume;
+     * las máscaras de obstáculos se actualizan en cada cambio.
+     * @param r fila
+     * @param c columna
+     */
+    void blockChanged(int r, int c) {
+        Boxy b = blocks.get(r, c);
+        blockedMask.set(r, c, blocks(b));
+        sightMask.set(r, c, b != null && b.isCreated() && b.getType() != BoxType.ice);
+        markNeighbors(r, c, false, !blocks(b));
+        blockVersion++;
+        int idx = r * cols + c;
+        if (b != null) {
+            int code = Zobrist.blockCode(b);
+            blockHash ^= Zobrist.block(idx, b.getHashedCode()) ^ Zobrist.block(idx, code);
+            b.setHashedCode(code);
+        }
+        if (changed.get(idx)) return;
+        changed.set(idx);
+        if (changedCount == changedCells.length) changedCells = Arrays.copyOf(changedCells, changedCount * 2);
+        changedCells[changedCount++] = idx;
+    }
+
+    /**
+     * Entrega las casillas cuyo bloque cambió desde la última llamada y vacía el diario.
+     * @param sink receptor de índices de casilla (fila * columnas + columna)
+     */
+    public void drainChangedBlocks(IntConsumer sink) {
+        for (int i = 0; i < changedCount; i++) {
+            int idx = changedCells[i];
+            changed.clear(idx);
+            sink.accept(idx);
+        }
+        changedCount = 0;
+    }
+
+    /**
+     * Copia los bloques del mapa y sus estados, casilla por casilla, para una instantánea.
+     * Se guardan las referencias y no copias, porque la rueda de temporización y las
+     * cubiertas de hielo de las fogatas apuntan a esos mismos objetos.
+     * @param refs destino de los bloques, de tamaño filas * columnas
+     * @param states destino de los ordinales de estado
+     */
+    void saveBlocks(Boxy[] refs, byte[] states) {
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                int idx = r * cols + c;
+                Boxy b = blocks.get(r, c);
+                refs[idx] = b;
+                states[idx] = b == null ? 0 : (byte) b.getState().ordinal();
+            }
+        }
+    }
+
+    /**
+     * Restaura los bloques guardados con {@link #saveBlocks}. Las casillas que cambian
+     * quedan anotadas en el diario de cambios.
+     * @param refs bloques guardados
+     * @param states ordinales de estado guardados
+     */
+    void restoreBlocks(Boxy[] refs, byte[] states) {
+        BoxState[] values = BoxState.values();
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                int idx = r * cols + c;
+                Boxy b = refs[idx];
+                if (blocks.get(r, c) != b) replaceBlock(r, c, b);
+                if (b != null) b.restoreState(values[states[idx]]);
+            }
         }
     }
 
@@ -53,23 +177,14 @@ public class GameMap {
      * Guarda el estado inicial de los bloques del nivel. 
      */ 
     public void saveInitialBlockStates() { 
-        for (int r = 0; r < rows; r++) { 
-            for (int c = 0; c < cols; c++) { 
-                Boxy b = blocks[r][c]; 
-                baseStates[r][c] = (b != null) ? b.getState() : BoxState.inactive; 
-            } 
-        } 
+        saveBaseBlocks();
     }
 
     /**
      * Elimina todas las frutas del mapa.
      */
     public void removeAllFruits() { 
-        for (int r = 0; r < rows; r++) { 
-            for (int c = 0; c < cols; c++) { 
-                fruits[r][c] = null; 
-            } 
-        } 
+        dropFruits();
     }
 
     /**
@@ -78,8 +193,16 @@ public class GameMap {
      * @return true si es válida
      */
     public boolean isValid(Position pos) {
-        int r = pos.getRow();
-        int c = pos.getCol();
+        return isValid(pos.getRow(), pos.getCol());
+    }
+
+    /**
+     * Verifica si una casilla pertenece al mapa.
+     * @param r fila
+     * @param c columna
+     * @return true si es válida
+     */
+    public boolean isValid(int r, int c) {
         return r >= 0 && r < rows && c >= 0 && c < cols;
     }
 
@@ -89,19 +212,147 @@ public class GameMap {
      * @return true si no se puede atravesar
      */
     public boolean isBlocked(Position pos) {
-        Boxy b = blocks[pos.getRow()][pos.getCol()];
+        return blocks(blocks.get(pos.getRow(), pos.getCol()));
+    }
+
+    /**
+     * Indica si una casilla está bloqueada, según la máscara de obstáculos.
+     * @param r fila
+     * @param c columna
+     * @return true si no se puede atravesar
+     */
+    public boolean isBlocked(int r, int c) {
+        return blockedMask.get(r, c);
+    }
+
+    /**
+     * @param b bloque de una casilla, o null si es piso
+     * @return true si el bloque no se puede atravesar
+     */
+    private static boolean blocks(Boxy b) {
         if (b == null) return false;
         if (b.getType() == BoxType.fire || b.getType() == BoxType.bonfire) return false;
         return b.isCreated() || !b.canWalk();
     }
 
+    /**
+     * Indica hacia qué vecinas de una casilla se puede caminar: dentro del mapa y sin bloqueo.
+     * @param r fila
+     * @param c columna
+     * @return un bit por vecina, en la posición del ordinal de su {@link Direction}
+     */
+    public int openMask(int r, int c) {
+        return neighbors.open(r, c);
+    }
+
+    /**
+     * Indica qué vecinas de una casilla tienen un enemigo.
+     * @param r fila
+     * @param c columna
+     * @return un bit por vecina, en la posición del ordinal de su {@link Direction}
+     */
+    public int enemyMask(int r, int c) {
+        return neighbors.crowded(r, c);
+    }
+
+    /**
+     * Indica hacia qué vecinas de una casilla puede moverse un enemigo: dentro del mapa,
+     * sin bloqueo y sin otro enemigo.
+     * @param r fila
+     * @param c columna
+     * @return un bit por vecina, en la posición del ordinal de su {@link Direction}
+     */
+    public int walkMask(int r, int c) {
+        return neighbors.walk(r, c);
+    }
+
+    /**
+     * Actualiza, en las vecinas de una casilla, el bit que apunta hacia ella.
+     * @param r fila de la casilla que cambió
+     * @param c columna de la casilla que cambió
+     * @param enemy true para la máscara de enemigos, false para la de casillas abiertas
+     * @param set true para encender el bit
+     */
+    private void markNeighbors(int r, int c, boolean enemy, boolean set) {
+        for (Direction d : DIRECTIONS) {
+            int nr = r + d.getRowDelta();
+            int nc = c + d.getColDelta();
+            if (!isValid(nr, nc)) continue;
+            int bit = 1 << d.getOpposite().ordinal();
+            if (enemy) {
+                neighbors.setCrowded(nr, nc, bit, set);
+            } else {
+                neighbors.setOpen(nr, nc, bit, set);
+            }
+        }
+    }
+
+    /**
+     * Cuenta las casillas bloqueadas en línea recta entre dos posiciones alineadas,
+     * sin contar la de partida y contando la de llegada.
+     * @param from posición de partida
+     * @param to posición de llegada, en la misma fila o columna
+     * @return casillas bloqueadas del tramo
+     */
+    public int blockedBetween(Position from, Position to) {
+        int r0 = from.getRow();
+        int c0 = from.getCol();
+        int r1 = to.getRow();
+        int c1 = to.getCol();
+        if (r0 == r1) {
+            return c1 >= c0 ? blockedMask.countRow(r0, c0 + 1, c1) : blockedMask.countRow(r0, c1, c0 - 1);
+        }
+        if (c0 == c1) {
+            return r1 >= r0 ? blockedMask.countCol(c0, r0 + 1, r1) : blockedMask.countCol(c0, r1, r0 - 1);
+        }
+        throw new IllegalArgumentException("Posiciones no alineadas: (" + r0 + ", " + c0 + ") y (" + r1 + ", " + c1 + ")");
+    }
+
+    /**
+     * Indica si no hay casillas bloqueadas estrictamente entre dos posiciones alineadas.
+     * @param from posición de partida
+     * @param to posición de llegada, en la misma fila o columna
+     * @return true si la línea está despejada
+     */
+    public boolean clearLine(Position from, Position to) {
+        return blockedBetween(from, to) - (isValid(to) && isBlocked(to.getRow(), to.getCol()) ? 1 : 0) == 0;
+    }
+
+    /**
+     * Mide cuántas casillas se ven en línea recta desde una posición: hasta el primer bloque
+     * creado que no es hielo, incluido, o hasta el borde del mapa.
+     * @param from posición del observador
+     * @param d dirección
+     * @return casillas visibles
+     */
+    public int sightRange(Position from, Direction d) {
+        int hit = sightMask.distanceTo(from.getRow(), from.getCol(), d);
+        if (hit > 0) return hit;
+        return switch (d) {
+            case UP -> from.getRow();
+            case DOWN -> rows - 1 - from.getRow();
+            case LEFT -> from.getCol();
+            case RIGHT -> cols - 1 - from.getCol();
+        };
+    }
+
     /**
      * Indica si hay un enemigo en la posición.
      * @param pos posición a evaluar
      * @return true si existe un enemigo
      */
     public boolean hasEnemy(Position pos) {
-        return enemies[pos.getRow()][pos.getCol()] != null;
+        return hasEnemy(pos.getRow(), pos.getCol());
+    }
+
+    /**
+     * Indica si hay un enemigo en la casilla.
+     * @param r fila
+     * @param c columna
+     * @return true si existe un enemigo
+     */
+    public boolean hasEnemy(int r, int c) {
+        return enemies.get(r, c) != null;
     }
 
     /**
@@ -110,7 +361,7 @@ public class GameMap {
      * @return true si existe una fruta
      */
     public boolean hasFruit(Position pos) {
-        return fruits[pos.getRow()][pos.getCol()] != null;
+        return fruits.get(pos.getRow(), pos.getCol()) != null;
     }
 
     /**
@@ -119,7 +370,17 @@ public class GameMap {
      * @return true si existe un jugador vivo
      */
     public boolean hasPlayer(Position pos) {
-        IceCream p = players[pos.getRow()][pos.getCol()];
+        return hasPlayer(pos.getRow(), pos.getCol());
+    }
+
+    /**
+     * Indica si hay un jugador vivo en la casilla.
+     * @param r fila
+     * @param c columna
+     * @return true si existe un jugador vivo
+     */
+    public boolean hasPlayer(int r, int c) {
+        IceCream p = players.get(r, c);
         return p != null && p.isAlive();
     }
 
@@ -142,12 +403,13 @@ public class GameMap {
 
         if (hasPlayer(to)) {
             IceCream p = getPlayer(to);
-            p.die();
+            p.die(DeathCause.enemy);
         }
 
-        enemies[from.getRow()][from.getCol()] = null;
-        enemies[to.getRow()][to.getCol()] = e;
+        putEnemy(from.getRow(), from.getCol(), null);
+        putEnemy(to.getRow(), to.getCol(), e);
         e.setPosition(to);
+        enemyVersion++;
 
         return true;
     }
@@ -168,9 +430,10 @@ public class GameMap {
         if (!isValid(to)) return false;
         if (isBlocked(to)) return false;
 
-        players[from.getRow()][from.getCol()] = null;
-        players[to.getRow()][to.getCol()] = p;
+        players.set(from.getRow(), from.getCol(), null);
+        players.set(to.getRow(), to.getCol(), p);
         p.setPosition(to);
+        playerVersion++;
 
         return true;
     }
@@ -181,7 +444,7 @@ public class GameMap {
      */
     public void placeBlock(Position pos) {
         if (!isValid(pos)) return;
-        Boxy b = blocks[pos.getRow()][pos.getCol()];
+        Boxy b = blocks.get(pos.getRow(), pos.getCol());
         if (b != null && b.canBeCreated()) b.create();
     }
 
@@ -191,7 +454,7 @@ public class GameMap {
      */
     public void clearBlock(Position pos) {
         if (!isValid(pos)) return;
-        Boxy b = blocks[pos.getRow()][pos.getCol()];
+        Boxy b = blocks.get(pos.getRow(), pos.getCol());
         if (b != null && b.canBeDestroyed()) b.destroy();
     }
 
@@ -201,7 +464,8 @@ public class GameMap {
      */
     public void addEnemy(Enemy e) {
         Position p = e.getPosition();
-        if (isValid(p)) enemies[p.getRow()][p.getCol()] = e;
+        if (isValid(p)) putEnemy(p.getRow(), p.getCol(), e);
+        enemyVersion++;
     }
 
     /**
@@ -210,7 +474,7 @@ public class GameMap {
      */
     public void addFruit(Fruit f) {
         Position p = f.getPosition();
-        if (isValid(p)) fruits[p.getRow()][p.getCol()] = f;
+        if (isValid(p)) putFruit(p.getRow(), p.getCol(), f);
     }
 
     /**
@@ -219,7 +483,8 @@ public class GameMap {
      */
     public void addPlayer(IceCream p) {
         Position pos = p.getPosition();
-        if (isValid(pos)) players[pos.getRow()][pos.getCol()] = p;
+        if (isValid(pos)) players.set(pos.getRow(), pos.getCol(), p);
+        playerVersion++;
     }
 
     /**
@@ -227,47 +492,161 @@ public class GameMap {
      * @param pos posición de la fruta
      */
     public void removeFruit(Position pos) {
-        if (isValid(pos)) fruits[pos.getRow()][pos.getCol()] = null;
+        if (isValid(pos)) putFruit(pos.getRow(), pos.getCol(), null);
+    }
+
+    /**
+     * Cambia la fruta de una casilla manteniendo el índice espacial.
+     * @param r fila
+     * @param c columna
+     * @param f fruta nueva o null para vaciar la casilla
+     */
+    private void putFruit(int r, int c, Fruit f) {
+        Fruit old = fruits.get(r, c);
+        if (old == f) return;
+        if (old != null) {
+            fruitIndex.remove(r, c, old);
+            fruitHash ^= old.getHashKey();
+            old.place(null);
+        }
+        fruits.set(r, c, f);
+        if (f != null) {
+            fruitIndex.add(r, c, f);
+            f.place(this);
+            fruitHash ^= f.getHashKey();
+        }
+    }
+
+    /**
+     * Cambia el enemigo de una casilla manteniendo el índice espacial.
+     * @param r fila
+     * @param c columna
+     * @param e enemigo nuevo o null para vaciar la casilla
+     */
+    private void putEnemy(int r, int c, Enemy e) {
+        Enemy old = enemies.get(r, c);
+        if (old == e) return;
+        if (old != null) enemyIndex.remove(r, c, old);
+        enemies.set(r, c, e);
+        if (e != null) enemyIndex.add(r, c, e);
+        if ((old == null) != (e == null)) markNeighbors(r, c, true, e != null);
+        enemyHash ^= Zobrist.enemy(r * cols + c, old) ^ Zobrist.enemy(r * cols + c, e);
     }
 
     /**
      * Elimina todas las entidades dinámicas.
      */
     public void clearEntities() {
-        for (int r = 0; r < rows; r++) {
-            for (int c = 0; c < cols; c++) {
-                enemies[r][c] = null;
-                fruits[r][c] = null;
-                players[r][c] = null;
-            }
-        }
+        enemies.clear();
+        enemyIndex.clear();
+        neighbors.clearCrowded();
+        enemyHash = 0;
+        enemyVersion++;
+        dropFruits();
+        players.clear();
+        playerVersion++;
     }
 
     /**
      * Restaura los bloques a su estado inicial.
      */
     public void resetBlocks() {
-        for (int r = 0; r < rows; r++) {
-            for (int c = 0; c < cols; c++) {
-                Boxy b = blocks[r][c];
-                if (b == null) continue;
-                BoxState s = baseStates[r][c];
-                if (s == BoxState.created && !b.isCreated()) b.create();
-                if (s != BoxState.created && b.isCreated()) b.destroy();
-            }
-        }
+        blocks.forEach((r, c, b) -> {
+            BoxState s = baseStates.get(r, c);
+            if (s == BoxState.created && !b.isCreated()) b.create();
+            if (s != BoxState.created && b.isCreated()) b.destroy();
+        });
     }
 
     /**
      * Guarda el estado inicial de los bloques.
      */
     public void saveBaseBlocks() {
-        for (int r = 0; r < rows; r++) {
-            for (int c = 0; c < cols; c++) {
-                Boxy b = blocks[r][c];
-                baseStates[r][c] = b != null ? b.getState() : BoxState.inactive;
-            }
-        }
+        baseStates.clear();
+        blocks.forEach((r, c, b) -> baseStates.set(r, c, b.getState()));
+    }
+
+    /**
+     * Contador que cambia cada vez que un enemigo entra al mapa o se mueve, para que las
+     * consultas recordadas sepan cuándo descartar sus resultados.
+     * @return versión de las posiciones de los enemigos
+     */
+    long getEnemyVersion() {
+        return enemyVersion;
+    }
+
+    /**
+     * Contador que cambia cada vez que cambia el tipo o el estado de algún bloque.
+     * @return versión de los bloques
+     */
+    long getBlockVersion() {
+        return blockVersion;
+    }
+
+    /**
+     * Contador que cambia cada vez que un jugador entra al mapa o se mueve.
+     * @return versión de las posiciones de los jugadores
+     */
+    long getPlayerVersion() {
+        return playerVersion;
+    }
+
+    /**
+     * Recorre los jugadores que están en el mapa, vivos o no.
+     * @param visitor acción a aplicar sobre cada jugador
+     */
+    void forEachPlayer(ChunkedGrid.CellVisitor<? super IceCream> visitor) {
+        players.forEach(visitor);
+    }
+
+    /**
+     * Actualiza el hash del mapa cuando cambia el estado o la posición de una fruta que
+     * está en una casilla.
+     * @param f fruta que cambió
+     */
+    void fruitChanged(Fruit f) {
+        fruitHash ^= f.getHashKey();
+        f.place(this);
+        fruitHash ^= f.getHashKey();
+    }
+
+    /**
+     * Obtiene el hash de Zobrist de lo que guarda el mapa: bloques con su estado, enemigos
+     * por casilla y frutas con su posición y estado. Se mantiene con XOR en cada cambio,
+     * así que leerlo no recorre el mapa; dos mapas con el mismo contenido dan el mismo valor.
+     * @return hash del mapa
+     */
+    public long getZobrist() {
+        return blockHash ^ enemyHash ^ fruitHash;
+    }
+
+    /**
+     * @return hash de Zobrist de los bloques y su estado
+     */
+    long getBlockHash() {
+        return blockHash;
+    }
+
+    /**
+     * @return campo de flujo hacia los jugadores, compartido por los enemigos que rompen hielo
+     */
+    public FlowField getFlowField() {
+        if (flowField == null) flowField = new FlowField(this);
+        return flowField;
+    }
+
+    /**
+     * @return índice espacial de las frutas que están en el mapa
+     */
+    public SpatialIndex<Fruit> getFruitIndex() {
+        return fruitIndex;
+    }
+
+    /**
+     * @return índice espacial de los enemigos que están en el mapa
+     */
+    public SpatialIndex<Enemy> getEnemyIndex() {
+        return enemyIndex;
     }
 
     /**
@@ -286,6 +665,39 @@ public class GameMap {
         return cols;
     }
 
+    /**
+     * Asocia la rueda de temporización de la partida.
+     * @param timers rueda de la partida
+     */
+    public void setTimers(TimingWheel timers) {
+        this.timers = timers;
+    }
+
+    /**
+     * Asigna el generador aleatorio de la partida.
+     * @param random generador compartido por las entidades del mapa
+     */
+    public void setRandom(GameRandom random) {
+        this.random = random;
+    }
+
+    /**
+     * Obtiene el generador aleatorio de la partida.
+     * @return generador compartido por las entidades del mapa
+     */
+    public GameRandom getRandom() {
+        return random;
+    }
+
+    /**
+     * Obtiene la rueda de temporización de la partida, donde se programan
+     * enemigos, frutas y bloques con comportamiento periódico.
+     * @return rueda de la partida
+     */
+    public TimingWheel getTimers() {
+        return timers;
+    }
+
     /**
      * Obtiene el tamaño de una celda.
      * @return tamaño de celda
@@ -300,7 +712,17 @@ public class GameMap {
      * @return bloque correspondiente
      */
     public Boxy getBlock(Position pos) {
-        return blocks[pos.getRow()][pos.getCol()];
+        return blocks.get(pos.getRow(), pos.getCol());
+    }
+
+    /**
+     * Obtiene el bloque de una casilla sin crear posiciones intermedias.
+     * @param r fila
+     * @param c columna
+     * @return bloque correspondiente o null si es piso
+     */
+    public Boxy getBlock(int r, int c) {
+        return blocks.get(r, c);
     }
 
     /**
@@ -309,7 +731,17 @@ public class GameMap {
      * @return fruta correspondiente
      */
     public Fruit getFruit(Position pos) {
-        return fruits[pos.getRow()][pos.getCol()];
+        return fruits.get(pos.getRow(), pos.getCol());
+    }
+
+    /**
+     * Obtiene la fruta de una casilla.
+     * @param r fila
+     * @param c columna
+     * @return fruta correspondiente o null
+     */
+    public Fruit getFruit(int r, int c) {
+        return fruits.get(r, c);
     }
 
     /**
@@ -318,7 +750,7 @@ public class GameMap {
      * @return enemigo correspondiente
      */
     public Enemy getEnemy(Position pos) {
-        return enemies[pos.getRow()][pos.getCol()];
+        return enemies.get(pos.getRow(), pos.getCol());
     }
 
     /**
@@ -327,17 +759,41 @@ public class GameMap {
      * @return jugador correspondiente
      */
     public IceCream getPlayer(Position pos) {
-        return players[pos.getRow()][pos.getCol()];
+        return players.get(pos.getRow(), pos.getCol());
+    }
+
+    /**
+     * Obtiene el jugador en una casilla.
+     * @param r fila
+     * @param c columna
+     * @return jugador correspondiente
+     */
+    public IceCream getPlayer(int r, int c) {
+        return players.get(r, c);
     }
 
     /**
      * Elimina todas las frutas del mapa.
      */
     public void clearFruits() {
-        for (int r = 0; r < rows; r++) {
-            for (int c = 0; c < cols; c++) {
-                fruits[r][c] = null;
-            }
-        }
-    }   
+        dropFruits();
+    }
+
+    /**
+     * Vacía las casillas de frutas, desenlazando cada fruta del hash del mapa.
+     */
+    private void dropFruits() {
+        fruits.forEach((r, c, f) -> f.place(null));
+        fruits.clear();
+        fruitIndex.clear();
+        fruitHash = 0;
+    }
+
+    /**
+     * Recorre los bloques existentes del mapa; las casillas de piso no se visitan.
+     * @param visitor acción a aplicar sobre cada bloque
+     */
+    public void forEachBlock(ChunkedGrid.CellVisitor<? super Boxy> visitor) {
+        blocks.forEach(visitor);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,295 @@
+package domain;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Contadores en vivo del juego publicados por JMX.
+ * Los contadores usan {@link LongAdder} para que instrumentar el ciclo de juego
+ * cueste apenas un incremento sin contención.
+ */
+public final class GameMetrics implements GameMetricsMBean {
+
+    private static final Logger LOGGER = Logger.getLogger(GameMetrics.class.getName());
+    private static final String OBJECT_NAME = "domain:type=GameMetrics";
+    private static final GameMetrics INSTANCE = new GameMetrics();
+
+    private final LongAdder ticks = new LongAdder();
+    private final LatencyHistogram tickTimes = new LatencyHistogram();
+    private final LongAdder playerMoves = new LongAdder();
+    private final LongAdder iceCreated = new LongAdder();
+    private final LongAdder iceDestroyed = new LongAdder();
+    private final Map<DeathCause, LongAdder> deaths = new EnumMap<>(DeathCause.class);
+    private final LongAdder[] fruitsPerWave = new LongAdder[FruitType.values().length];
+
+    private final Map<String, DecisionTimes> decisions = new ConcurrentHashMap<>();
+
+    private volatile BadIceCream observed;
+
+    /**
+     * Tiempos de decisión de un tipo de controlador.
+     */
+    private static final class DecisionTimes {
+        private final LatencyHistogram times = new LatencyHistogram();
+        private final LongAdder overruns = new LongAdder();
+        private final LongAdder fallbacks = new LongAdder();
+    }
+
+    static {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+        } catch (JMException | SecurityException e) {
+            LOGGER.log(Level.WARNING, "No se pudo registrar el MBean de métricas", e);
+        }
+    }
+
+    /**
+     * Crea los contadores vacíos.
+     */
+    private GameMetrics() {
+        for (DeathCause c : DeathCause.values()) {
+            deaths.put(c, new LongAdder());
+        }
+        for (int i = 0; i < fruitsPerWave.length; i++) {
+            fruitsPerWave[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Obtiene la instancia compartida de métricas.
+     * @return métricas del juego
+     */
+    public static GameMetrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Define la partida cuyas entidades se reportan en los medidores.
+     * @param game partida observada
+     */
+    public void observe(BadIceCream game) {
+        this.observed = game;
+    }
+
+    /**
+     * Registra un ciclo de juego completado.
+     * @param nanos duración del ciclo
+     */
+    public void tick(long nanos) {
+        ticks.increment();
+        tickTimes.record(nanos);
+    }
+
+    /**
+     * Registra un movimiento exitoso de un jugador.
+     */
+    public void playerMoved() {
+        playerMoves.increment();
+    }
+
+    /**
+     * Registra bloques de hielo creados.
+     * @param count cantidad de bloques
+     */
+    public void iceCreated(int count) {
+        if (count > 0) iceCreated.add(count);
+    }
+
+    /**
+     * Registra bloques de hielo destruidos.
+     * @param count cantidad de bloques
+     */
+    public void iceDestroyed(int count) {
+        if (count > 0) iceDestroyed.add(count);
+    }
+
+    /**
+     * Registra la muerte de un jugador.
+     * @param cause causa de la muerte
+     */
+    public void death(DeathCause cause) {
+        deaths.get(cause).increment();
+    }
+
+    /**
+     * Registra una fruta comida.
+     * @param wave oleada en la que se comió
+     */
+    public void fruitEaten(int wave) {
+        if (wave >= 0 && wave < fruitsPerWave.length) {
+            fruitsPerWave[wave].increment();
+        }
+    }
+
+    /**
+     * Registra una decisión de un controlador automático.
+     * @param type tipo de controlador
+     * @param nanos duración de la decisión
+     * @param overrun true si superó su presupuesto
+     */
+    public void decision(String type, long nanos, boolean overrun) {
+        DecisionTimes d = decisions.computeIfAbsent(type, k -> new DecisionTimes());
+        d.times.record(nanos);
+        if (overrun) d.overruns.increment();
+    }
+
+    /**
+     * Registra una decisión de respaldo tomada en lugar de la del controlador.
+     * @param type tipo de controlador
+     */
+    public void decisionFallback(String type) {
+        decisions.computeIfAbsent(type, k -> new DecisionTimes()).fallbacks.increment();
+    }
+
+    /**
+     * Obtiene el histograma de tiempos de decisión de un tipo de controlador.
+     * @param type tipo de controlador, por ejemplo {@code Expert}
+     * @return histograma o null si ese tipo aún no decidió
+     */
+    public LatencyHistogram decisionTimes(String type) {
+        DecisionTimes d = decisions.get(type);
+        return d == null ? null : d.times;
+    }
+
+    @Override
+    public long getTicks() {
+        return ticks.sum();
+    }
+
+    @Override
+    public long getAverageTickNanos() {
+        return tickTimes.mean();
+    }
+
+    @Override
+    public long getP99TickNanos() {
+        return tickTimes.percentile(0.99);
+    }
+
+    @Override
+    public long getPlayerMoves() {
+        return playerMoves.sum();
+    }
+
+    @Override
+    public long getIceCreated() {
+        return iceCreated.sum();
+    }
+
+    @Override
+    public long getIceDestroyed() {
+        return iceDestroyed.sum();
+    }
+
+    @Override
+    public long getDeathsByEnemy() {
+        return deaths.get(DeathCause.enemy).sum();
+    }
+
+    @Override
+    public long getDeathsByDangerousFruit() {
+        return deaths.get(DeathCause.dangerousFruit).sum();
+    }
+
+    @Override
+    public long getDeathsByBonfire() {
+        return deaths.get(DeathCause.bonfire).sum();
+    }
+
+    @Override
+    public long getDeathsByTimeout() {
+        return deaths.get(DeathCause.timeout).sum();
+    }
+
+    @Override
+    public long[] getFruitsEatenPerWave() {
+        long[] out = new long[fruitsPerWave.length];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = fruitsPerWave[i].sum();
+        }
+        return out;
+    }
+
+    @Override
+    public int getAlivePlayers() {
+        BadIceCream g = observed;
+        if (g == null) return 0;
+        int alive = 0;
+        for (IceCream p : g.getPlayers()) {
+            if (p.isAlive()) alive++;
+        }
+        return alive;
+    }
+
+    @Override
+    public int getLiveEnemies() {
+        BadIceCream g = observed;
+        return g == null ? 0 : g.getEnemies().size();
+    }
+
+    @Override
+    public int getActiveFruits() {
+        BadIceCream g = observed;
+        if (g == null) return 0;
+        int active = 0;
+        for (Fruit f : g.getFruits()) {
+            if (f.isActive() && !f.isEaten()) active++;
+        }
+        return active;
+    }
+
+    @Override
+    public String[] getControllerDecisions() {
+        Map<String, DecisionTimes> sorted = new TreeMap<>(decisions);
+        String[] out = new String[sorted.size()];
+        int i = 0;
+        for (Map.Entry<String, DecisionTimes> e : sorted.entrySet()) {
+            DecisionTimes d = e.getValue();
+            out[i++] = String.format(Locale.ROOT, "%s: decisiones=%d media=%dns p50=%dns p99=%dns excesos=%d respaldos=%d",
+                    e.getKey(), d.times.count(), d.times.mean(), d.times.percentile(0.5), d.times.percentile(0.99),
+                    d.overruns.sum(), d.fallbacks.sum());
+        }
+        return out;
+    }
+
+    @Override
+    public long getDecisionOverruns() {
+        long n = 0;
+        for (DecisionTimes d : decisions.values()) n += d.overruns.sum();
+        return n;
+    }
+
+    @Override
+    public long getDecisionFallbacks() {
+        long n = 0;
+        for (DecisionTimes d : decisions.values()) n += d.fallbacks.sum();
+        return n;
+    }
+
+    @Override
+    public void reset() {
+        ticks.reset();
+        tickTimes.reset();
+        playerMoves.reset();
+        iceCreated.reset();
+        iceDestroyed.reset();
+        for (LongAdder a : deaths.values()) a.reset();
+        for (LongAdder a : fruitsPerWave) a.reset();
+        for (DecisionTimes d : decisions.values()) {
+            d.times.reset();
+            d.overruns.reset();
+            d.fallbacks.reset();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package domain;
+
+/**
+ * Interfaz de gestión JMX con los contadores y medidores de la partida en curso.
+ * Visible desde JConsole o VisualVM bajo {@code domain:type=GameMetrics}.
+ */
+public interface GameMetricsMBean {
+
+    /**
+     * @return ciclos de juego ejecutados
+     */
+    long getTicks();
+
+    /**
+     * @return duración promedio de un ciclo en nanosegundos
+     */
+    long getAverageTickNanos();
+
+    /**
+     * @return percentil 99 aproximado de la duración de un ciclo en nanosegundos
+     */
+    long getP99TickNanos();
+
+    /**
+     * @return movimientos exitosos de jugadores
+     */
+    long getPlayerMoves();
+
+    /**
+     * @return bloques de hielo creados por jugadores
+     */
+    long getIceCreated();
+
+    /**
+     * @return bloques de hielo destruidos por jugadores
+     */
+    long getIceDestroyed();
+
+    /**
+     * @return muertes causadas por enemigos
+     */
+    long getDeathsByEnemy();
+
+    /**
+     * @return muertes causadas por frutas peligrosas
+     */
+    long getDeathsByDangerousFruit();
+
+    /**
+     * @return muertes causadas por fogatas
+     */
+    long getDeathsByBonfire();
+
+    /**
+     * @return muertes por tiempo agotado
+     */
+    long getDeathsByTimeout();
+
+    /**
+     * @return frutas comidas en cada oleada, indexadas por número de oleada
+     */
+    long[] getFruitsEatenPerWave();
+
+    /**
+     * @return jugadores vivos en la partida observada
+     */
+    int getAlivePlayers();
+
+    /**
+     * @return enemigos en la partida observada
+     */
+    int getLiveEnemies();
+
+    /**
+     * @return frutas activas sin comer en la partida observada
+     */
+    int getActiveFruits();
+
+    /**
+     * @return por tipo de controlador automático: decisiones, duración media, p50 y p99,
+     *         decisiones que superaron su presupuesto y decisiones de respaldo
+     */
+    String[] getControllerDecisions();
+
+    /**
+     * @return decisiones de controladores que superaron su presupuesto
+     */
+    long getDecisionOverruns();
+
+    /**
+     * @return decisiones de respaldo tomadas para compensar excesos de presupuesto
+     */
+    long getDecisionFallbacks();
+
+    /**
+     * Reinicia todos los contadores.
+     */
+    void reset();
+}
@@ -0,0 +1,83 @@
+package domain;
+
+/**
+ * Generador pseudoaleatorio de una partida (xorshift64*). Todas las decisiones al azar de
+ * enemigos, frutas y controladores salen de aquí, así que dos partidas con la misma semilla
+ * y las mismas acciones evolucionan igual. Su estado es un solo {@code long}, lo que permite
+ * guardarlo y restaurarlo en cada instantánea sin costo.
+ */
+public final class GameRandom {
+
+    private long state;
+
+    /**
+     * Crea un generador con una semilla.
+     * @param seed semilla de la partida
+     */
+    public GameRandom(long seed) {
+        setSeed(seed);
+    }
+
+    /**
+     * Reinicia el generador con una semilla. La semilla se mezcla con SplitMix64
+     * para que semillas cercanas no produzcan secuencias parecidas.
+     * @param seed semilla
+     */
+    public void setSeed(long seed) {
+        long z = seed + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z ^= z >>> 31;
+        state = z == 0 ? 0x9E3779B97F4A7C15L : z;
+    }
+
+    /**
+     * @return siguiente valor de 64 bits
+     */
+    public long nextLong() {
+        long x = state;
+        x ^= x >>> 12;
+        x ^= x << 25;
+        x ^= x >>> 27;
+        state = x;
+        return x * 0x2545F4914F6CDD1DL;
+    }
+
+    /**
+     * Obtiene un entero uniforme en un rango.
+     * @param bound límite superior exclusivo, mayor que cero
+     * @return valor entre 0 (inclusive) y bound (exclusive)
+     */
+    public int nextInt(int bound) {
+        return (int) (((nextLong() >>> 32) * bound) >>> 32);
+    }
+
+    /**
+     * @return valor uniforme entre 0 (inclusive) y 1 (exclusive)
+     */
+    public double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * @return true o false con igual probabilidad
+     */
+    public boolean nextBoolean() {
+        return nextLong() < 0;
+    }
+
+    /**
+     * @return estado interno, para guardarlo en una instantánea
+     */
+    public long getState() {
+        return state;
+    }
+
+    /**
+     * Restaura el estado guardado en una instantánea.
+     * @param state estado interno
+     */
+    public void setState(long state) {
+        this.state = state;
+    }
+}
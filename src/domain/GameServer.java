@@ -0,0 +1,315 @@
+package domain;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Servidor autoritativo de una partida en red. Un solo hilo atiende todas las conexiones
+ * con un selector no bloqueante y simula la partida a su frecuencia fija: al inicio de cada
+ * tick aplica las acciones recibidas en orden de llegada, avanza la partida y difunde el
+ * estado codificado una sola vez para todos los clientes.
+ * Los primeros clientes ocupan los puestos de los jugadores; los demás solo observan.
+ * Un cliente que no alcanza a leer pierde sus tramas pendientes y recibe un fotograma clave,
+ * según la contrapresión de {@link ClientConnection}.
+ */
+public final class GameServer extends FrameServer<GameServer.Connection> {
+
+    private static final Logger LOGGER = Logger.getLogger(GameServer.class.getName());
+    private static final int MAX_CATCH_UP = 5;
+    private static final int MAX_INPUT_FRAME = 64;
+    private static final int MAX_INPUTS_PER_TICK = 32;
+    private static final int OUT_LIMIT = 256 * 1024;
+
+    private final BadIceCream game;
+    private final GameConfig config;
+    private final StateCodec codec;
+    private final Connection[] seats;
+    private final long stepNanos;
+    private final LatencyHistogram tickCost = new LatencyHistogram();
+    private int[] inputs = new int[64];
+    private int inputCount;
+
+    /**
+     * Conexión de un cliente con su puesto y su búfer de entrada.
+     */
+    static final class Connection extends ClientConnection {
+        private final int player;
+        private final ByteBuffer in = ByteBuffer.allocate(MAX_INPUT_FRAME * 4);
+        private int inputsThisTick;
+        private boolean needsKeyframe = true;
+
+        /**
+         * @param channel canal del cliente
+         * @param key registro en el selector
+         * @param player puesto asignado o -1 si solo observa
+         */
+        private Connection(SocketChannel channel, SelectionKey key, int player) {
+            super(channel, key, player >= 0 ? "jugador " + (player + 1) : "espectador", OUT_LIMIT);
+            this.player = player;
+        }
+    }
+
+    /**
+     * Crea el servidor de una partida ya cargada y abre el puerto de escucha.
+     * @param game partida autoritativa
+     * @param config configuración con la que se cargó la partida; debe tener semilla
+     * @param bind dirección de escucha (puerto 0 para uno libre)
+     * @throws IOException si no se puede abrir el puerto
+     */
+    public GameServer(BadIceCream game, GameConfig config, InetSocketAddress bind) throws IOException {
+        super(seeded(config, bind), LOGGER);
+        this.game = game;
+        this.config = config;
+        this.codec = new StateCodec(game);
+        this.seats = new Connection[game.getPlayers().size()];
+        this.stepNanos = 1_000_000_000L / game.getTickRate();
+    }
+
+    /**
+     * Comprueba, antes de abrir el puerto, que la partida tenga semilla fija.
+     * @param config configuración de la partida
+     * @param bind dirección de escucha
+     * @return la misma dirección de escucha
+     */
+    private static InetSocketAddress seeded(GameConfig config, InetSocketAddress bind) {
+        if (config.getSeed() == null) {
+            throw new IllegalArgumentException("La partida en red necesita una semilla fija");
+        }
+        return bind;
+    }
+
+    /**
+     * Inicia el servidor en un hilo propio.
+     * @return hilo del servidor
+     */
+    public Thread start() {
+        return startThread("bad-ice-cream-server");
+    }
+
+    /**
+     * Bucle del servidor: atiende la red mientras espera el siguiente tick y
+     * recupera a lo sumo {@value #MAX_CATCH_UP} ticks si se atrasa.
+     */
+    @Override
+    public void run() {
+        running = true;
+        long next = System.nanoTime() + stepNanos;
+        try {
+            while (running) {
+                long wait = next - System.nanoTime();
+                if (wait > 0) selector.select(Math.max(1, wait / 1_000_000));
+                else selector.selectNow();
+                handleKeys();
+
+                long now = System.nanoTime();
+                int steps = 0;
+                while (now >= next && steps < MAX_CATCH_UP) {
+                    tick();
+                    next += stepNanos;
+                    steps++;
+                }
+                if (now >= next) next = now + stepNanos;
+            }
+        } catch (IOException | RuntimeException e) {
+            if (running) LOGGER.log(Level.SEVERE, "El servidor de la partida se detuvo", e);
+        } finally {
+            closeQuietly();
+        }
+    }
+
+    /**
+     * @return cantidad de clientes conectados
+     */
+    public int getClientCount() {
+        return connectedClients();
+    }
+
+    /**
+     * @return costo medio de un tick del servidor en nanosegundos, red incluida
+     */
+    public long getMeanTickNanos() {
+        return tickCost.mean();
+    }
+
+    /**
+     * @return percentil 99 del costo de un tick en nanosegundos
+     */
+    public long getP99TickNanos() {
+        return tickCost.percentile(0.99);
+    }
+
+    /**
+     * @return costo medio de un tick repartido entre los clientes conectados
+     */
+    public long getTickNanosPerClient() {
+        return tickCost.mean() / Math.max(1, connectedClients());
+    }
+
+    // ==================== TICK ====================
+
+    /**
+     * Ejecuta un tick: acciones, simulación y difusión del estado. Las tramas del códec se
+     * copian una vez por tick para que todos los clientes compartan los mismos bytes.
+     */
+    private void tick() {
+        long start = System.nanoTime();
+
+        for (int i = 0; i < inputCount; i += 2) {
+            PlayerAction action = PlayerAction.fromCode(inputs[i + 1]);
+            if (action == null) continue;
+            try {
+                action.apply(game, inputs[i]);
+            } catch (BadIceCreamException e) {
+                GameLog.log(LOGGER, Level.WARNING, e, "Acción {0} rechazada para el jugador {1}", action, inputs[i]);
+            }
+        }
+        inputCount = 0;
+
+        game.updateGame();
+
+        ByteBuffer delta = codec.encodeDelta();
+        if (!clients.isEmpty()) delta = ClientConnection.copyOf(delta);
+        ByteBuffer keyframe = null;
+        for (int i = 0; i < clients.size(); i++) {
+            Connection c = clients.get(i);
+            c.inputsThisTick = 0;
+            try {
+                if (c.needsKeyframe) {
+                    if (keyframe == null) keyframe = ClientConnection.copyOf(codec.encodeKeyframe());
+                    c.needsKeyframe = false;
+                    c.send(keyframe.duplicate(), true);
+                } else if (!c.send(delta.duplicate(), false)) {
+                    c.needsKeyframe = true;
+                }
+            } catch (IOException e) {
+                disconnect(c, e);
+                i--;
+            }
+        }
+
+        tickCost.record(System.nanoTime() - start);
+    }
+
+    // ==================== RED ====================
+
+    /**
+     * Asigna al cliente el primer puesto libre; si no hay, solo observa.
+     * @param channel canal del cliente
+     * @param key registro en el selector
+     * @return conexión
+     */
+    @Override
+    protected Connection open(SocketChannel channel, SelectionKey key) {
+        int player = -1;
+        for (int i = 0; i < seats.length; i++) {
+            if (seats[i] == null) {
+                player = i;
+                break;
+            }
+        }
+        Connection c = new Connection(channel, key, player);
+        if (player >= 0) seats[player] = c;
+        return c;
+    }
+
+    /**
+     * Envía el saludo con el puesto asignado; el fotograma clave sale en el próximo tick.
+     * @param c conexión
+     * @throws IOException si falla la escritura
+     */
+    @Override
+    protected void welcome(Connection c) throws IOException {
+        c.send(StateCodec.encodeHello(c.player, config), true);
+    }
+
+    /**
+     * Lee las tramas de acciones disponibles de un cliente.
+     * @param c conexión
+     * @throws IOException si el cliente cerró la conexión o envió una trama inválida
+     */
+    @Override
+    protected void read(Connection c) throws IOException {
+        ByteBuffer in = c.in;
+        int n;
+        while ((n = c.channel().read(in)) > 0) {
+            in.flip();
+            while (in.remaining() >= StateCodec.HEADER) {
+                int len = in.getInt(in.position());
+                if (len < 1 || len > MAX_INPUT_FRAME) throw new IOException("Trama de entrada inválida: " + len);
+                if (in.remaining() < 4 + len) break;
+
+                byte type = in.get(in.position() + 4);
+                if (type == StateCodec.INPUT && len >= 2) {
+                    queueInput(c, in.get(in.position() + StateCodec.HEADER));
+                }
+                in.position(in.position() + 4 + len);
+            }
+            in.compact();
+        }
+        if (n < 0) throw new IOException("Conexión cerrada por el cliente");
+    }
+
+    /**
+     * Encola una acción para el siguiente tick si el cliente ocupa un puesto.
+     * @param c conexión de origen
+     * @param code código de la acción
+     */
+    private void queueInput(Connection c, int code) {
+        if (c.player < 0 || c.inputsThisTick >= MAX_INPUTS_PER_TICK) return;
+        c.inputsThisTick++;
+        if (inputCount + 2 > inputs.length) inputs = Arrays.copyOf(inputs, inputs.length * 2);
+        inputs[inputCount++] = c.player;
+        inputs[inputCount++] = code;
+    }
+
+    /**
+     * Libera el puesto del cliente desconectado.
+     * @param c conexión cerrada
+     */
+    @Override
+    protected void closed(Connection c) {
+        if (c.player >= 0 && seats[c.player] == c) seats[c.player] = null;
+    }
+
+    // ==================== LÍNEA DE COMANDOS ====================
+
+    /**
+     * Inicia un servidor dedicado sin interfaz gráfica.
+     * Uso: {@code GameServer <puerto> <nivel> [frutas] [enemigos]}, donde las listas
+     * tienen la forma {@code Banana:8,Grape:8} y {@code Troll:2}.
+     * @param args argumentos de la línea de comandos
+     * @throws IOException si no se puede abrir el puerto
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Uso: GameServer <puerto> <nivel> [frutas] [enemigos]");
+            return;
+        }
+        int port = Integer.parseInt(args[0]);
+        int level = Integer.parseInt(args[1]);
+        Map<String, Integer> fruits = GameConfig.parseCounts(args.length > 2 ? args[2] : "Banana:8,Grape:8");
+        Map<String, Integer> enemies = GameConfig.parseCounts(args.length > 3 ? args[3] : "Troll:1");
+
+        GameConfig cfg = new GameConfig("PlayerVSPlayer", "Vanilla", "Chocolate", level,
+                fruits, enemies, new LinkedHashMap<>());
+        cfg.setSeed(System.nanoTime());
+
+        BadIceCream game = LevelLoader.loadLevel(level, cfg);
+        if (game == null) {
+            System.err.println("No existe el nivel " + level);
+            return;
+        }
+
+        GameServer srv = new GameServer(game, cfg, new InetSocketAddress(port));
+        LOGGER.info("Servidor escuchando en el puerto " + srv.getPort());
+        srv.run();
+    }
+}
@@ -0,0 +1,87 @@
+package domain;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Instantánea reutilizable del estado completo de una partida: entidades, controladores,
+ * bloques, rueda de temporización y generador aleatorio. Los búferes se reutilizan y solo
+ * crecen cuando la partida crece, así que puede tomarse una por tick.
+ */
+public final class GameSnapshot {
+
+    private static final int NO_DIR = -1;
+    private static final int NO_POS = Integer.MIN_VALUE;
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    ByteBuffer data = ByteBuffer.allocate(1024);
+    Boxy[] blocks = new Boxy[0];
+    byte[] blockStates = new byte[0];
+    final TimingWheel.Snapshot wheel = new TimingWheel.Snapshot();
+    long random;
+    private long tick = -1;
+
+    /**
+     * @return tick de la partida al que corresponde la instantánea, -1 si está vacía
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * @param tick tick de la partida al que corresponde la instantánea
+     */
+    void setTick(long tick) {
+        this.tick = tick;
+    }
+
+    /**
+     * Prepara el búfer de datos para escribir al menos cierta cantidad de bytes.
+     * @param size bytes necesarios
+     * @return búfer vacío listo para escribir
+     */
+    ByteBuffer begin(int size) {
+        if (data.capacity() < size) data = ByteBuffer.allocate(Math.max(size, data.capacity() * 2));
+        data.clear();
+        return data;
+    }
+
+    /**
+     * Escribe una posición, que puede ser null.
+     * @param out destino
+     * @param p posición o null
+     */
+    static void putPos(ByteBuffer out, Position p) {
+        out.putInt(p == null ? NO_POS : p.getRow());
+        out.putInt(p == null ? 0 : p.getCol());
+    }
+
+    /**
+     * Lee una posición escrita con {@link #putPos}.
+     * @param in origen
+     * @return posición o null
+     */
+    static Position getPos(ByteBuffer in) {
+        int r = in.getInt();
+        int c = in.getInt();
+        return r == NO_POS ? null : new Position(r, c);
+    }
+
+    /**
+     * Escribe una dirección, que puede ser null.
+     * @param out destino
+     * @param d dirección o null
+     */
+    static void putDir(ByteBuffer out, Direction d) {
+        out.put((byte) (d == null ? NO_DIR : d.ordinal()));
+    }
+
+    /**
+     * Lee una dirección escrita con {@link #putDir}.
+     * @param in origen
+     * @return dirección o null
+     */
+    static Direction getDir(ByteBuffer in) {
+        int code = in.get();
+        return code == NO_DIR ? null : DIRECTIONS[code];
+    }
+}
@@ -1,17 +1,18 @@
 package domain;
+import java.nio.ByteBuffer;
 import java.util.*;
 
 /**
  * IA agresiva enfocada en recolectar frutas.
  */
-public class Hungry implements ControllerCream {
+public class Hungry implements ControllerCream, TimingWheel.Timed {
 
     private IceCream player;
     private final GameMap map;
     private final BadIceCream game;
+    private final WorldQuery world;
 
-    private int tick;
-    private final int speed = 3;
+    private static final double DECISIONS_PER_SECOND = 3.3;
 
     private Position lastPos;
     private int stuckTicks;
@@ -25,6 +26,7 @@ public class Hungry implements ControllerCream {
     public Hungry(GameMap map, BadIceCream game) {
         this.map = map;
         this.game = game;
+        this.world = game.getWorld();
     }
 
     /**
@@ -37,14 +39,21 @@ public class Hungry implements ControllerCream {
     }
 
     /**
-     * Actualiza el comportamiento de la IA en cada ciclo.
+     * Activación programada por la rueda de la partida.
+     * @param timers rueda de la partida
+     * @return ticks hasta la siguiente decisión
      */
     @Override
-    public void update() {
-        tick++;
-        if (tick < speed) return;
-        tick = 0;
+    public int onTimer(TimingWheel timers) {
+        update();
+        return timers.ticksPerStep(DECISIONS_PER_SECOND);
+    }
 
+    /**
+     * Toma una decisión de movimiento de la IA.
+     */
+    @Override
+    public void update() {
         if (player == null || !player.isAlive()) return;
         Position current = player.getPosition();
 
@@ -72,18 +81,21 @@ public class Hungry implements ControllerCream {
     }
 
     /**
-     * Selecciona la fruta más conveniente según distancia y obstáculos.
+     * Selecciona la fruta más conveniente según distancia y obstáculos. Las frutas se
+     * recorren de la más cercana a la más lejana y la búsqueda termina cuando ni la mejor
+     * fruta posible a esa distancia, sin obstáculos y con el bono de objetivo, puede superar
+     * a la elegida.
      * @return fruta objetivo o null si no hay frutas válidas
      */
     private Fruit chooseFruit() {
-        Fruit best = null;
-        int bestScore = Integer.MIN_VALUE;
+        Fruit[] best = new Fruit[1];
+        int[] bestScore = {Integer.MIN_VALUE};
         Position cur = player.getPosition();
 
-        for (Fruit f : game.getFruits()) {
-            if (f.isEaten() || !f.isActive()) continue;
+        world.fruitsByDistance(cur, (f, dist) -> {
+            if (100 - dist * 2 + 30 < bestScore[0]) return false;
+            if (f.isEaten() || !f.isActive()) return true;
 
-            int dist = distance(cur, f.getPosition());
             int blocks = countBlocks(cur, f.getPosition());
             int score = (100 - dist * 2) - (blocks * 5);
 
@@ -91,36 +103,35 @@ public class Hungry implements ControllerCream {
                 score += 30;
             }
 
-            if (score > bestScore) {
-                bestScore = score;
-                best = f;
+            // a igual puntaje gana la primera de la lista de la partida
+            if (score > bestScore[0] || (score == bestScore[0] && f.getOrder() < best[0].getOrder())) {
+                bestScore[0] = score;
+                best[0] = f;
             }
-        }
-        return best;
+            return true;
+        });
+        return best[0];
     }
 
     /**
-     * Cuenta obstáculos aproximados entre dos posiciones.
+     * Cuenta obstáculos aproximados entre dos posiciones. En fila o columna es la cuenta
+     * exacta de la máscara del mapa; en diagonal se muestrea una casilla por paso del eje largo.
      * @param from posición inicial
      * @param to posición destino
      * @return cantidad estimada de obstáculos
      */
     private int countBlocks(Position from, Position to) {
+        if (WorldQuery.aligned(from, to)) return map.blockedBetween(from, to);
+
+        int dr = to.getRow() - from.getRow();
+        int dc = to.getCol() - from.getCol();
+        int steps = Math.max(Math.abs(dr), Math.abs(dc));
         int blocks = 0;
-        int steps = Math.max(
-                Math.abs(to.getRow() - from.getRow()),
-                Math.abs(to.getCol() - from.getCol())
-        );
 
         for (int i = 1; i <= steps; i++) {
-            float t = (float) i / steps;
-            int r = (int) (from.getRow() + t * (to.getRow() - from.getRow()));
-            int c = (int) (from.getCol() + t * (to.getCol() - from.getCol()));
-            Position p = new Position(r, c);
-
-            if (map.isValid(p) && map.isBlocked(p)) {
-                blocks++;
-            }
+            int r = from.getRow() + Math.floorDiv(dr * i, steps);
+            int c = from.getCol() + Math.floorDiv(dc * i, steps);
+            if (map.isBlocked(r, c)) blocks++;
         }
         return blocks;
     }
@@ -243,19 +254,21 @@ public class Hungry implements ControllerCream {
         List<DirScore> options = new ArrayList<>();
         Position cur = player.getPosition();
 
+        int open = map.openMask(cur.getRow(), cur.getCol());
+        int enemies = map.enemyMask(cur.getRow(), cur.getCol());
+
         for (Direction d : Direction.values()) {
-            Position next = new Position(
-                    cur.getRow() + d.getRowDelta(),
-                    cur.getCol() + d.getColDelta()
-            );
+            int r = cur.getRow() + d.getRowDelta();
+            int c = cur.getCol() + d.getColDelta();
 
-            if (!map.isValid(next)) continue;
+            if (!map.isValid(r, c)) continue;
+            int bit = 1 << d.ordinal();
             int score = 0;
-            if (!map.isBlocked(next)) score += 100;
-            if (map.hasEnemy(next)) score -= 1000;
+            if ((open & bit) != 0) score += 100;
+            if ((enemies & bit) != 0) score -= 1000;
 
             if (lastPos != null) {
-                score += distance(next, lastPos) * 10;
+                score += (Math.abs(r - lastPos.getRow()) + Math.abs(c - lastPos.getCol())) * 10;
             }
 
             options.add(new DirScore(d, score));
@@ -285,20 +298,10 @@ public class Hungry implements ControllerCream {
             }
         }
 
-        Direction d = Direction.values()[new Random().nextInt(4)];
+        Direction d = Direction.values()[map.getRandom().nextInt(4)];
         player.createIce(d);
     }
 
-    /**
-     * Calcula la distancia Manhattan entre dos posiciones.
-     * @param a primera posición
-     * @param b segunda posición
-     * @return distancia calculada
-     */
-    private int distance(Position a, Position b) {
-        return Math.abs(a.getRow() - b.getRow()) + Math.abs(a.getCol() - b.getCol());
-    }
-
     private static class DirScore {
         Direction dir;
         int score;
@@ -308,4 +311,26 @@ public class Hungry implements ControllerCream {
             this.score = score;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Guarda la última posición, los ticks sin avanzar y la fruta objetivo.
+     * @param out destino
+     */
+    @Override
+    public void writeState(ByteBuffer out) {
+        GameSnapshot.putPos(out, lastPos);
+        out.putInt(stuckTicks);
+        GameSnapshot.putPos(out, targetFruit);
+    }
+
+    /**
+     * Restaura la última posición, los ticks sin avanzar y la fruta objetivo.
+     * @param in origen
+     */
+    @Override
+    public void readState(ByteBuffer in) {
+        lastPos = GameSnapshot.getPos(in);
+        stuckTicks = in.getInt();
+        targetFruit = GameSnapshot.getPos(in);
+    }
+}
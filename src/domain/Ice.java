@@ -1,5 +1,9 @@
 package domain;
 
+/**
+ * Representa un bloque de hielo. Cada casilla conserva su bloque de hielo una vez creado:
+ * congelar y descongelar solo cambian su estado, sin crear objetos nuevos.
+ */
 public class Ice extends Boxy {
 
     private final Boxy baseBlock;
@@ -39,11 +43,10 @@ public class Ice extends Boxy {
      */
     @Override
     public void onDestroy(GameMap map) {
+        destroy();
         if (baseBlock != null && baseBlock.getType() == BoxType.bonfire) {
             map.setBlock(position, baseBlock);
             baseBlock.onUnfreeze();
-        } else {
-            map.clearBlock(position);
         }
     }
 
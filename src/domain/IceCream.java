@@ -1,5 +1,7 @@
 package domain;
 
+import java.nio.ByteBuffer;
+
 /**
  * Representa al jugador principal del juego, un helado.
  */
@@ -16,8 +18,8 @@ public class IceCream implements SpriteProvider {
 
     private boolean creatingIce = false;
     private boolean destroyingIce = false;
-    private long actionEndTime = 0;
-    private static final long ACTION_TIME = 150;
+    private long actionEndTick = 0;
+    private static final double ACTION_TIME = 0.15;
 
 
     /**
@@ -70,16 +72,12 @@ public class IceCream implements SpriteProvider {
     }
 
     /**
-     * Actualiza el comportamiento del jugador.
+     * Actualiza el estado visual del jugador. Las decisiones de los controladores
+     * automáticos las dispara la rueda de la partida.
      */
     public void update() {
-        if (ctrl != null && alive) {
-            ctrl.update();
-        }
-
-        long now = System.currentTimeMillis();
-    
-        if (now > actionEndTime) {
+        TimingWheel timers = map == null ? null : map.getTimers();
+        if (timers == null || timers.now() > actionEndTick) {
             creatingIce = false;
             destroyingIce = false;
         }
@@ -87,6 +85,14 @@ public class IceCream implements SpriteProvider {
         moving = false;
     }
 
+    /**
+     * Marca el final de la animación de crear o romper hielo, medido en ticks de la partida.
+     */
+    private void startAction() {
+        TimingWheel timers = map.getTimers();
+        if (timers != null) actionEndTick = timers.now() + timers.ticksFor(ACTION_TIME);
+    }
+
     /**
      * Asocia el jugador con el mapa del juego.
      * @param map mapa del juego
@@ -127,9 +133,13 @@ public class IceCream implements SpriteProvider {
     }
 
     /**
-     * Marca al jugador como muerto.
+     * Marca al jugador como muerto y registra la causa.
+     * @param cause causa de la muerte
      */
-    public void die() {
+    public void die(DeathCause cause) {
+        if (alive) {
+            GameMetrics.get().death(cause);
+        }
         alive = false;
     }
 
@@ -173,7 +183,11 @@ public class IceCream implements SpriteProvider {
     public boolean move(Direction d) {
         if (map == null || !alive) return false;
         this.dir = d;
-        return map.movePlayer(this, d);
+        boolean moved = map.movePlayer(this, d);
+        if (moved) {
+            GameMetrics.get().playerMoved();
+        }
+        return moved;
     }
 
     /**
@@ -223,50 +237,55 @@ public class IceCream implements SpriteProvider {
         this. dir = d;
         creatingIce = true;
         destroyingIce = false;
-        actionEndTime = System.currentTimeMillis() + ACTION_TIME;
+        startAction();
 
         int count = 0;
-        Position p = pos;
+        int r = pos.getRow();
+        int c = pos.getCol();
 
         while (true) {
-            Position next = new Position(
-                p.getRow() + d.getRowDelta(),
-                p.getCol() + d.getColDelta()
-            );
+            r += d.getRowDelta();
+            c += d.getColDelta();
 
-            if (!map.isValid(next)) break;
-            if (map.hasEnemy(next) || map.hasPlayer(next)) break;
+            if (!map.isValid(r, c)) break;
+            if (map.hasEnemy(r, c) || map.hasPlayer(r, c)) break;
 
-            Boxy b = map.getBlock(next);
+            Boxy b = map.getBlock(r, c);
 
             if (b != null && b.getType() == BoxType.fire) {
-                p = next;
                 continue;
             }
 
             if (b != null && b.getType() == BoxType.bonfire && b.getState() == BoxState.on) {
-                map.setBlock(next, new Ice(next, BoxState.created, b));
+                Ice cover = ((Bonfire) b).getCover();
+                cover.create();
+                map.setBlock(cover.getPosition(), cover);
                 b.onFreeze();
                 count++;
-                p = next;
                 continue;
             }
 
             if ((b != null && b.isCreated()) || (b != null && b.getType() == BoxType.iron)) break;
 
-            if ( b == null || b.getType() == BoxType.floor || b.canBeCreated() ) {
-                if (map.hasFruit(next)) {
-                    map.getFruit(next).freeze();
+            if (b == null || b.getType() == BoxType.floor || b.canBeCreated()) {
+                Fruit f = map.getFruit(r, c);
+                if (f != null) {
+                    f.freeze();
+                }
+                if (b instanceof Ice) {
+                    b.create();
+                } else {
+                    // primera vez que se congela la casilla: el bloque queda y luego solo cambia de estado
+                    Position cell = new Position(r, c);
+                    map.setBlock(cell, new Ice(cell, BoxState.created));
                 }
-                map.setBlock(next, new Ice(next, BoxState.created));
                 count++;
             } else {
                 break;
             }
-
-            p = next;
         }
 
+        GameMetrics.get().iceCreated(count);
         return count;
     }
 
@@ -281,32 +300,31 @@ public class IceCream implements SpriteProvider {
         this.dir = d;
         destroyingIce = true;
         creatingIce = false;
-        actionEndTime = System.currentTimeMillis() + ACTION_TIME;
+        startAction();
 
         int count = 0;
-        Position p = pos;
+        int r = pos.getRow();
+        int c = pos.getCol();
 
         while (true) {
-            Position next = new Position(
-                p.getRow() + d.getRowDelta(),
-                p.getCol() + d.getColDelta()
-            );
+            r += d.getRowDelta();
+            c += d.getColDelta();
 
-            if (!map.isValid(next)) break;
+            if (!map.isValid(r, c)) break;
 
-            Boxy b = map.getBlock(next);
+            Boxy b = map.getBlock(r, c);
             if (b == null || !b.canBeDestroyed() || b.getType() == BoxType.iron) break;
 
-            if (map.hasFruit(next)) {
-                map.getFruit(next).unfreeze();
+            Fruit f = map.getFruit(r, c);
+            if (f != null) {
+                f.unfreeze();
             }
 
             b.onDestroy(map);
-            map.clearBlock(next);
             count++;
-            p = next;
         }
 
+        GameMetrics.get().iceDestroyed(count);
         return count;
     }
 
@@ -388,4 +406,50 @@ public class IceCream implements SpriteProvider {
     public void alive() { 
         this.alive = true; 
     }
-}
\ No newline at end of file
+
+    /**
+     * Resume el estado visual del jugador para la sincronización en red.
+     * @return bits: 1 vivo, 2 creando hielo, 4 rompiendo hielo, 8 en movimiento
+     */
+    int replicaFlags() {
+        return (alive ? 1 : 0) | (creatingIce ? 2 : 0) | (destroyingIce ? 4 : 0) | (moving ? 8 : 0);
+    }
+
+    /**
+     * Aplica el estado recibido del servidor sin ejecutar la lógica del jugador.
+     * @param p posición replicada
+     * @param d dirección replicada
+     * @param flags bits de {@link #replicaFlags()}
+     * @param s puntaje replicado
+     */
+    void applyReplica(Position p, Direction d, int flags, int s) {
+        this.pos = p;
+        this.dir = d;
+        this.alive = (flags & 1) != 0;
+        this.creatingIce = (flags & 2) != 0;
+        this.destroyingIce = (flags & 4) != 0;
+        this.moving = (flags & 8) != 0;
+        this.score = s;
+    }
+
+    /**
+     * Escribe el estado completo del jugador en una instantánea.
+     * @param out destino
+     */
+    void writeState(ByteBuffer out) {
+        GameSnapshot.putPos(out, pos);
+        GameSnapshot.putDir(out, dir);
+        out.put((byte) replicaFlags());
+        out.putInt(score);
+        out.putLong(actionEndTick);
+    }
+
+    /**
+     * Restaura el estado escrito con {@link #writeState}.
+     * @param in origen
+     */
+    void readState(ByteBuffer in) {
+        applyReplica(GameSnapshot.getPos(in), GameSnapshot.getDir(in), in.get(), in.getInt());
+        actionEndTick = in.getLong();
+    }
+}
@@ -0,0 +1,151 @@
+package domain;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Cola de acciones de jugadores entre los hilos que las producen (teclado, red) y el hilo
+ * que simula. Cualquier hilo puede encolar sin bloqueos; solo el hilo que simula las
+ * aplica, al inicio de cada tick, así que la partida tiene un único escritor.
+ * Las acciones viajan por un {@link RingBuffer} empaquetadas con su jugador; si el anillo
+ * se llena la acción se descarta en lugar de bloquear al productor.
+ * Además puede combinar las acciones repetidas de un tick, para que la repetición del
+ * teclado no acumule movimientos: de cada jugador se aplica solo el último movimiento y
+ * una vez cada acción de hielo, en el orden en que llegaron.
+ */
+public final class InputQueue {
+
+    /** Capacidad por defecto del anillo. */
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private static final Logger LOGGER = Logger.getLogger(InputQueue.class.getName());
+    private static final int CODE_BITS = 8;
+    private static final int CODE_MASK = (1 << CODE_BITS) - 1;
+    private static final int MOVE_KIND = 1;
+
+    private final RingBuffer<Integer> ring;
+    private final LongAdder dropped = new LongAdder();
+    private final boolean coalesce;
+
+    // estado del consumidor
+    private int[] pending = new int[16];
+    private int[] kindsThisTick = new int[2];
+    private volatile long coalesced;
+
+    /**
+     * Crea una cola con la capacidad por defecto que combina las acciones repetidas.
+     */
+    public InputQueue() {
+        this(DEFAULT_CAPACITY, true);
+    }
+
+    /**
+     * Crea una cola.
+     * @param capacity acciones pendientes como máximo; se redondea a potencia de dos
+     * @param coalesce true para combinar las acciones repetidas de un jugador en un tick
+     */
+    public InputQueue(int capacity, boolean coalesce) {
+        if (capacity < 2) throw new IllegalArgumentException("Capacidad inválida: " + capacity);
+        this.ring = new RingBuffer<>(capacity);
+        this.coalesce = coalesce;
+    }
+
+    /**
+     * Encola una acción. Puede llamarse desde cualquier hilo.
+     * @param player índice del jugador
+     * @param action acción
+     * @return false si la cola estaba llena y la acción se descartó
+     */
+    public boolean offer(int player, PlayerAction action) {
+        if (player < 0 || action == null) throw new IllegalArgumentException("Acción inválida para el jugador " + player);
+        if (ring.offer(player << CODE_BITS | action.ordinal())) return true;
+        dropped.increment();
+        return false;
+    }
+
+    /**
+     * Aplica sobre la partida las acciones encoladas, en orden de llegada. Si la cola
+     * combina acciones, de cada jugador se descartan los movimientos anteriores al último y
+     * las repeticiones de una misma acción de hielo. Solo debe llamarla el hilo que simula,
+     * al inicio de cada tick.
+     * @param game partida
+     * @return acciones aplicadas
+     */
+    public int drainTo(BadIceCream game) {
+        int players = game.getPlayers().size();
+        int count = 0;
+        Integer packed;
+        while ((packed = ring.poll()) != null) {
+            if (count == pending.length) pending = Arrays.copyOf(pending, count * 2);
+            pending[count++] = packed;
+        }
+        if (coalesce) combine(count, players);
+
+        int applied = 0;
+        for (int i = 0; i < count; i++) {
+            if (pending[i] < 0) continue;
+            int player = pending[i] >>> CODE_BITS;
+            PlayerAction action = PlayerAction.fromCode(pending[i] & CODE_MASK);
+            if (action == null || player >= players) continue;
+            try {
+                action.apply(game, player);
+                applied++;
+            } catch (BadIceCreamException e) {
+                GameLog.log(LOGGER, Level.WARNING, e, "Acción {0} rechazada para el jugador {1}", action, player);
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Marca con -1 las acciones del tick que se combinan con una posterior del mismo tipo
+     * y jugador. Todos los movimientos son del mismo tipo; cada acción de hielo es el suyo.
+     * @param count acciones del tick en {@link #pending}
+     * @param players jugadores de la partida
+     */
+    private void combine(int count, int players) {
+        if (kindsThisTick.length < players) kindsThisTick = new int[players];
+        Arrays.fill(kindsThisTick, 0);
+
+        int skipped = 0;
+        for (int i = count - 1; i >= 0; i--) {
+            int player = pending[i] >>> CODE_BITS;
+            PlayerAction action = PlayerAction.fromCode(pending[i] & CODE_MASK);
+            if (action == null || player >= players) continue;
+            int kind = action.isMove() ? MOVE_KIND : 1 << action.ordinal();
+            if ((kindsThisTick[player] & kind) != 0) {
+                pending[i] = -1;
+                skipped++;
+            } else {
+                kindsThisTick[player] |= kind;
+            }
+        }
+        if (skipped > 0) coalesced += skipped;
+    }
+
+    /**
+     * Descarta las acciones pendientes, por ejemplo al reiniciar la partida.
+     * Solo debe llamarla el hilo que simula.
+     */
+    public void clear() {
+        while (ring.poll() != null) {
+            // descartar
+        }
+    }
+
+    /**
+     * @return acciones descartadas porque la cola estaba llena
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return acciones descartadas al combinarlas con una posterior del mismo tick
+     */
+    public long getCoalesced() {
+        return coalesced;
+    }
+}
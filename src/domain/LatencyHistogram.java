@@ -0,0 +1,106 @@
+package domain;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma log-lineal de duraciones en nanosegundos.
+ * Cada potencia de dos se divide en cuatro sub-rangos, lo que da percentiles con
+ * un error relativo menor al 25% usando memoria constante y registros sin bloqueos.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKETS = 4;
+    private static final int BUCKETS = SUB_BUCKETS + 61 * SUB_BUCKETS;
+
+    private final AtomicLongArray counts;
+    private final LongAdder total;
+    private final LongAdder sum;
+
+    /**
+     * Crea un histograma vacío.
+     */
+    public LatencyHistogram() {
+        this.counts = new AtomicLongArray(BUCKETS);
+        this.total = new LongAdder();
+        this.sum = new LongAdder();
+    }
+
+    /**
+     * Registra una duración.
+     * @param nanos duración medida en nanosegundos
+     */
+    public void record(long nanos) {
+        long v = Math.max(0, nanos);
+        counts.incrementAndGet(index(v));
+        total.increment();
+        sum.add(v);
+    }
+
+    /**
+     * @return cantidad de muestras registradas
+     */
+    public long count() {
+        return total.sum();
+    }
+
+    /**
+     * @return promedio de las muestras en nanosegundos
+     */
+    public long mean() {
+        long n = total.sum();
+        return n == 0 ? 0 : sum.sum() / n;
+    }
+
+    /**
+     * Calcula un percentil aproximado.
+     * @param q cuantil entre 0 y 1
+     * @return límite superior del sub-rango que contiene el percentil
+     */
+    public long percentile(double q) {
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) n += counts.get(i);
+        if (n == 0) return 0;
+
+        long target = Math.max(1, (long) Math.ceil(q * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= target) return upperBound(i);
+        }
+        return upperBound(BUCKETS - 1);
+    }
+
+    /**
+     * Descarta todas las muestras.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+        total.reset();
+        sum.reset();
+    }
+
+    /**
+     * Calcula el sub-rango de un valor.
+     * @param v valor no negativo
+     * @return índice del sub-rango
+     */
+    private static int index(long v) {
+        if (v < SUB_BUCKETS) return (int) v;
+        int exp = 63 - Long.numberOfLeadingZeros(v);
+        int sub = (int) (v >>> (exp - 2)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + (exp - 2) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Obtiene el mayor valor que cae en un sub-rango.
+     * @param i índice del sub-rango
+     * @return límite superior del sub-rango
+     */
+    private static long upperBound(int i) {
+        if (i < SUB_BUCKETS) return i;
+        int exp = (i - SUB_BUCKETS) / SUB_BUCKETS + 2;
+        int sub = (i - SUB_BUCKETS) % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + sub + 1) << (exp - 2)) - 1;
+    }
+}
@@ -1,11 +1,17 @@
 package domain;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Clase responsable de cargar niveles desde archivos y aplicar configuraciones.
+ * Cada nivel se lee y analiza una sola vez; las cargas siguientes parten de la plantilla en caché.
  */
 public class LevelLoader {
 
+    private static final Map<Integer, LevelTemplate> TEMPLATES = new ConcurrentHashMap<>();
+
     /**
      * Carga un nivel desde archivo y aplica la configuración indicada.
      * @param level número del nivel a cargar
@@ -13,35 +19,72 @@ public class LevelLoader {
      * @return instancia del juego lista para jugar o null si falla
      */
     public static BadIceCream loadLevel(int level, GameConfig cfg) {
-        String file = "mapa" + level + ".txt";
-        String baseMap = readMap(file);
+        LevelTemplate template = getTemplate(level);
+
+        if (template == null) {
+            return null;
+        }
+
+        char[] cells = template.copyCells();
+        applyConfig(template, cells, cfg);
+        return MapParser.parseMap(template, cells, cfg);
+    }
 
-        if (baseMap.isEmpty()) {
+    /**
+     * Obtiene la plantilla analizada de un nivel, leyéndola del archivo solo la primera vez.
+     * @param level número del nivel
+     * @return plantilla del nivel o null si el archivo no existe
+     */
+    public static LevelTemplate getTemplate(int level) {
+        LevelTemplate cached = TEMPLATES.get(level);
+        if (cached != null) {
+            return cached;
+        }
+
+        LevelTemplate template = lexMap("mapa" + level + ".txt");
+        if (template == null || template.getRows() == 0) {
             return null;
         }
 
-        String finalMap = applyConfig(baseMap, cfg);
-        return MapParser.parseMap(finalMap, cfg);
+        TEMPLATES.putIfAbsent(level, template);
+        return TEMPLATES.get(level);
     }
 
     /**
-     * Aplica la configuración del juego sobre el mapa base.
-     * @param map mapa original
+     * Analiza un mapa del directorio de recursos directamente desde el flujo, sin pasar por texto.
+     * @param file nombre del archivo del mapa
+     * @return plantilla del mapa o null si no existe o falla la lectura
+     */
+    private static LevelTemplate lexMap(String file) {
+        try (InputStream is = LevelLoader.class.getResourceAsStream("/Resources/maps/" + file)) {
+            if (is == null) {
+                return null;
+            }
+            return MapLexer.lex(new InputStreamReader(is, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Aplica la configuración sobre una copia de la cuadrícula, sustituyendo
+     * solo las casillas de aparición de los jugadores.
+     * @param template plantilla del nivel
+     * @param cells copia de la cuadrícula a modificar
      * @param cfg configuración del juego
-     * @return mapa modificado según la configuración
      */
-    public static String applyConfig(String map, GameConfig cfg) {
-        String result = map;
-
-        result = result.replace('X', charPlayer(cfg.getCharacter1()));
-
-        result = result.replace(
-                'Y',
-                cfg.getCharacter2() == null || cfg.getCharacter2().equals("null")
-                        ? '0'
-                        : charPlayer(cfg.getCharacter2())
-        );
-        return result;
+    public static void applyConfig(LevelTemplate template, char[] cells, GameConfig cfg) {
+        int slotX = template.getPlayerSlot(0);
+        if (slotX >= 0) {
+            cells[slotX] = charPlayer(cfg.getCharacter1());
+        }
+
+        int slotY = template.getPlayerSlot(1);
+        if (slotY >= 0) {
+            cells[slotY] = cfg.getCharacter2() == null || cfg.getCharacter2().equals("null")
+                    ? '0'
+                    : charPlayer(cfg.getCharacter2());
+        }
     }
 
     /**
@@ -0,0 +1,167 @@
+package domain;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * Plantilla inmutable de un nivel ya analizado. Guarda la cuadrícula de caracteres
+ * en un arreglo compacto por filas junto con las casillas de aparición de los jugadores
+ * y las casillas vacías, para que cargar el nivel de nuevo no requiera leer ni dividir texto.
+ */
+public final class LevelTemplate {
+
+    private final int rows;
+    private final int cols;
+    private final char[] cells;
+    private final int[] playerSlots;
+    private final int[] emptyCells;
+    private final int[] malformedRows;
+    private volatile int[] components;
+
+    /**
+     * Crea una plantilla a partir de una cuadrícula ya construida por el analizador.
+     * @param rows número de filas
+     * @param cols número de columnas
+     * @param cells caracteres del mapa ordenados por filas
+     * @param playerSlots casillas de aparición de X e Y (-1 si no existen)
+     * @param emptyCells casillas vacías ordenadas por filas
+     * @param malformedRows filas que no tenían el ancho esperado o contenían glifos desconocidos
+     */
+    LevelTemplate(int rows, int cols, char[] cells, int[] playerSlots, int[] emptyCells, int[] malformedRows) {
+        this.rows = rows;
+        this.cols = cols;
+        this.cells = cells;
+        this.playerSlots = playerSlots.clone();
+        this.emptyCells = emptyCells;
+        this.malformedRows = malformedRows;
+    }
+
+    /**
+     * Analiza el texto de un mapa. Las filas más cortas que la primera se completan con piso.
+     * @param text contenido del mapa, una fila por línea
+     * @return plantilla del nivel
+     */
+    public static LevelTemplate fromText(String text) {
+        return MapLexer.lex(CharBuffer.wrap(text));
+    }
+
+    /**
+     * Indica si un carácter representa una casilla libre para distribuir elementos.
+     * @param ch carácter del mapa
+     * @return true si la casilla está vacía
+     */
+    static boolean isEmpty(char ch) {
+        return ch == '0' || ch == 'F' || ch == 'G';
+    }
+
+    /**
+     * @return número de filas
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * @return número de columnas
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Obtiene una copia de la cuadrícula para aplicarle la configuración.
+     * @return copia de los caracteres del mapa
+     */
+    public char[] copyCells() {
+        return cells.clone();
+    }
+
+    /**
+     * Obtiene la casilla de aparición de un jugador.
+     * @param player índice del jugador (0 para X, 1 para Y)
+     * @return índice de la casilla o -1 si el mapa no la define
+     */
+    public int getPlayerSlot(int player) {
+        return playerSlots[player];
+    }
+
+    /**
+     * Obtiene las casillas vacías del mapa base, ordenadas por filas.
+     * @return copia de los índices de casillas vacías
+     */
+    public int[] getEmptyCells() {
+        return emptyCells.clone();
+    }
+
+    /**
+     * Obtiene la componente conexa de una casilla. El hierro es un muro; el hielo
+     * cuenta como transitable porque los jugadores pueden romperlo.
+     * Las componentes se calculan una sola vez por plantilla.
+     * @param cell índice de la casilla (fila * columnas + columna)
+     * @return identificador de la componente o -1 si la casilla es hierro
+     */
+    public int getComponent(int cell) {
+        int[] comp = components;
+        if (comp == null) {
+            comp = computeComponents();
+            components = comp;
+        }
+        return comp[cell];
+    }
+
+    /**
+     * Etiqueta las componentes conexas con un recorrido en anchura sobre la cuadrícula.
+     * @return componente de cada casilla, -1 para el hierro
+     */
+    private int[] computeComponents() {
+        int[] comp = new int[cells.length];
+        Arrays.fill(comp, -1);
+        int[] queue = new int[cells.length];
+        int next = 0;
+
+        for (int start = 0; start < cells.length; start++) {
+            if (comp[start] >= 0 || cells[start] == 'H') continue;
+
+            int head = 0;
+            int tail = 0;
+            comp[start] = next;
+            queue[tail++] = start;
+
+            while (head < tail) {
+                int cell = queue[head++];
+                int r = cell / cols;
+                int c = cell % cols;
+                if (r > 0) tail = visit(comp, queue, tail, cell - cols, next);
+                if (r < rows - 1) tail = visit(comp, queue, tail, cell + cols, next);
+                if (c > 0) tail = visit(comp, queue, tail, cell - 1, next);
+                if (c < cols - 1) tail = visit(comp, queue, tail, cell + 1, next);
+            }
+            next++;
+        }
+        return comp;
+    }
+
+    /**
+     * Encola una casilla vecina si es transitable y aún no tiene componente.
+     * @param comp componentes asignadas
+     * @param queue cola del recorrido
+     * @param tail final actual de la cola
+     * @param cell casilla vecina
+     * @param id componente en construcción
+     * @return nuevo final de la cola
+     */
+    private int visit(int[] comp, int[] queue, int tail, int cell, int id) {
+        if (comp[cell] >= 0 || cells[cell] == 'H') return tail;
+        comp[cell] = id;
+        queue[tail] = cell;
+        return tail + 1;
+    }
+
+    /**
+     * Obtiene las filas que el analizador tuvo que corregir.
+     * @return copia de los índices de filas mal formadas
+     */
+    public int[] getMalformedRows() {
+        return malformedRows.clone();
+    }
+}
@@ -0,0 +1,162 @@
+package domain;
+
+/**
+ * Máscara de bits de las casillas del mapa que cumplen una condición, guardada dos veces:
+ * por filas y por columnas. Así las consultas sobre un tramo recto, contar casillas
+ * marcadas o encontrar la primera en una dirección, recorren palabras de 64 casillas en
+ * lugar de casillas sueltas.
+ */
+final class LineMask {
+
+    private final int rows;
+    private final int cols;
+    private final int rowWords;
+    private final int colWords;
+    private final long[] byRow;
+    private final long[] byCol;
+
+    /**
+     * Crea una máscara vacía.
+     * @param rows filas del mapa
+     * @param cols columnas del mapa
+     */
+    LineMask(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+        this.rowWords = (cols + 63) >>> 6;
+        this.colWords = (rows + 63) >>> 6;
+        this.byRow = new long[rows * rowWords];
+        this.byCol = new long[cols * colWords];
+    }
+
+    /**
+     * Marca o desmarca una casilla.
+     * @param r fila
+     * @param c columna
+     * @param value true para marcarla
+     */
+    void set(int r, int c, boolean value) {
+        int rw = r * rowWords + (c >>> 6);
+        int cw = c * colWords + (r >>> 6);
+        if (value) {
+            byRow[rw] |= 1L << c;
+            byCol[cw] |= 1L << r;
+        } else {
+            byRow[rw] &= ~(1L << c);
+            byCol[cw] &= ~(1L << r);
+        }
+    }
+
+    /**
+     * @param r fila
+     * @param c columna
+     * @return true si la casilla está marcada
+     */
+    boolean get(int r, int c) {
+        return (byRow[r * rowWords + (c >>> 6)] & 1L << c) != 0;
+    }
+
+    /**
+     * Cuenta las casillas marcadas de un tramo de fila.
+     * @param r fila
+     * @param c0 primera columna, incluida
+     * @param c1 última columna, incluida
+     * @return casillas marcadas
+     */
+    int countRow(int r, int c0, int c1) {
+        return count(byRow, r * rowWords, Math.max(0, c0), Math.min(cols - 1, c1));
+    }
+
+    /**
+     * Cuenta las casillas marcadas de un tramo de columna.
+     * @param c columna
+     * @param r0 primera fila, incluida
+     * @param r1 última fila, incluida
+     * @return casillas marcadas
+     */
+    int countCol(int c, int r0, int r1) {
+        return count(byCol, c * colWords, Math.max(0, r0), Math.min(rows - 1, r1));
+    }
+
+    /**
+     * Busca la primera casilla marcada avanzando desde una casilla, sin incluirla.
+     * @param r fila de partida
+     * @param c columna de partida
+     * @param d dirección
+     * @return distancia a la primera casilla marcada, o 0 si no hay ninguna hasta el borde
+     */
+    int distanceTo(int r, int c, Direction d) {
+        int dr = d.getRowDelta();
+        int dc = d.getColDelta();
+        int hit;
+        if (dr == 0) {
+            int base = r * rowWords;
+            hit = dc > 0 ? next(byRow, base, c + 1, cols - 1) : prev(byRow, base, c - 1, 0);
+            return hit < 0 ? 0 : Math.abs(hit - c);
+        }
+        int base = c * colWords;
+        hit = dr > 0 ? next(byCol, base, r + 1, rows - 1) : prev(byCol, base, r - 1, 0);
+        return hit < 0 ? 0 : Math.abs(hit - r);
+    }
+
+    /**
+     * @param bits palabras de la línea
+     * @param base primera palabra de la línea
+     * @param lo primer índice, incluido
+     * @param hi último índice, incluido
+     * @return bits encendidos en el rango
+     */
+    private static int count(long[] bits, int base, int lo, int hi) {
+        if (lo > hi) return 0;
+        int w0 = lo >>> 6;
+        int w1 = hi >>> 6;
+        long first = -1L << lo;
+        long last = -1L >>> (63 - (hi & 63));
+        if (w0 == w1) return Long.bitCount(bits[base + w0] & first & last);
+        int n = Long.bitCount(bits[base + w0] & first);
+        for (int w = w0 + 1; w < w1; w++) n += Long.bitCount(bits[base + w]);
+        return n + Long.bitCount(bits[base + w1] & last);
+    }
+
+    /**
+     * @param bits palabras de la línea
+     * @param base primera palabra de la línea
+     * @param from primer índice a revisar
+     * @param limit último índice a revisar
+     * @return primer bit encendido en [from, limit] o -1
+     */
+    private static int next(long[] bits, int base, int from, int limit) {
+        if (from > limit) return -1;
+        int w = from >>> 6;
+        long word = bits[base + w] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                int i = (w << 6) + Long.numberOfTrailingZeros(word);
+                return i <= limit ? i : -1;
+            }
+            if (++w > limit >>> 6) return -1;
+            word = bits[base + w];
+        }
+    }
+
+    /**
+     * @param bits palabras de la línea
+     * @param base primera palabra de la línea
+     * @param from primer índice a revisar, hacia atrás
+     * @param limit último índice a revisar
+     * @return último bit encendido en [limit, from] o -1
+     */
+    private static int prev(long[] bits, int base, int from, int limit) {
+        if (from < limit) return -1;
+        int w = from >>> 6;
+        long word = bits[base + w] & (-1L >>> (63 - (from & 63)));
+        while (true) {
+            if (word != 0) {
+                int i = (w << 6) + 63 - Long.numberOfLeadingZeros(word);
+                return i >= limit ? i : -1;
+            }
+            if (--w < limit >>> 6) return -1;
+            word = bits[base + w];
+        }
+    }
+}
@@ -3,270 +3,312 @@ package domain;
 import java.util.*;
 
 /**
- * Clase responsable de distribuir elementos (frutas, enemigos, obstáculos) 
+ * Clase responsable de distribuir elementos (frutas, enemigos, obstáculos)
  * en el mapa de manera equilibrada y estratégica.
+ * Las casillas libres se llevan en un conjunto de bits y se agrupan en tres franjas
+ * (superior, media e inferior). Cada elección es un paso de Fisher-Yates parcial sobre
+ * la franja, y las casillas que ya ocupó otro elemento se descartan al salir sorteadas,
+ * así que colocar k elementos cuesta O(k + franjas) en lugar de recorrer el mapa.
  */
 public class MapDistributor {
 
+    private static final int TOP = 0;
+    private static final int MID = 1;
+    private static final int BOT = 2;
+    private static final int MIN_ENEMY_DISTANCE = 5;
+
     private final Random rnd;
+    private final int cols;
+    private final BitSet free;
+    private final int[][] zones;
+    private final int[] live;
+    private CellFilter reachable;
 
     /**
-     * Constructor de la clase MapDistributor.
+     * Filtro de casillas candidatas.
      */
-    public MapDistributor() {
-        this.rnd = new Random();
+    @FunctionalInterface
+    private interface CellFilter {
+        /**
+         * @param cell índice de la casilla (fila * columnas + columna)
+         * @return true si la casilla puede usarse
+         */
+        boolean accept(int cell);
     }
 
     /**
-     * Encuentra todas las posiciones vacías en el mapa.
-     * @param lines líneas del mapa representadas como cadenas
-     * @return lista de posiciones vacías
-     */
-    public List<Position> findEmpty(String[] lines) {
-        List<Position> empty = new ArrayList<>();
-
-        for (int r = 0; r < lines.length; r++) {
-            String line = lines[r];
-            for (int c = 0; c < line.length(); c++) {
-                if (line.charAt(c) == '0') {
-                    empty.add(new Position(r, c));
-                }
-            }
-        }
-        return empty;
-    }
-
-    /**
-     * Divide las posiciones en zonas del mapa.
-     * @param pos lista de posiciones a dividir
+     * Constructor de la clase MapDistributor.
      * @param rows número de filas del mapa
      * @param cols número de columnas del mapa
-     * @return mapa de zonas con sus respectivas posiciones
+     * @param empty casillas vacías disponibles (fila * columnas + columna)
+     * @param rnd generador aleatorio de la partida
      */
-    public Map<String, List<Position>> splitZones(List<Position> pos, int rows, int cols) {
-        Map<String, List<Position>> zones = new HashMap<>();
-
-        zones.put("TOP", new ArrayList<>());
-        zones.put("MID", new ArrayList<>());
-        zones.put("BOT", new ArrayList<>());
-        zones.put("LEFT", new ArrayList<>());
-        zones.put("RIGHT", new ArrayList<>());
+    public MapDistributor(int rows, int cols, int[] empty, Random rnd) {
+        this.rnd = rnd;
+        this.cols = cols;
+        this.free = new BitSet(rows * cols);
 
         int topLim = rows / 3;
         int botLim = (rows * 2) / 3;
-        int leftLim = cols / 3;
-        int rightLim = (cols * 2) / 3;
 
-        for (Position p : pos) {
-            int r = p.getRow();
-            int c = p.getCol();
+        int[] counts = new int[3];
+        for (int cell : empty) {
+            if (free.get(cell)) continue;
+            free.set(cell);
+            counts[zoneOf(cell / cols, topLim, botLim)]++;
+        }
 
-            if (r < topLim) zones.get("TOP").add(p);
-            else if (r > botLim) zones.get("BOT").add(p);
-            else zones.get("MID").add(p);
+        this.zones = new int[3][];
+        this.live = new int[3];
+        for (int z = 0; z < 3; z++) zones[z] = new int[counts[z]];
 
-            if (c < leftLim) zones.get("LEFT").add(p);
-            else if (c > rightLim) zones.get("RIGHT").add(p);
+        for (int cell = free.nextSetBit(0); cell >= 0; cell = free.nextSetBit(cell + 1)) {
+            int z = zoneOf(cell / cols, topLim, botLim);
+            zones[z][live[z]++] = cell;
         }
-        return zones;
     }
 
     /**
-     * Distribuye las frutas en el mapa.
-     * @param cfg configuración del juego
-     * @param empty posiciones vacías disponibles
-     * @param rows número de filas del mapa
-     * @param cols número de columnas del mapa
+     * Restringe frutas y enemigos a las componentes conexas donde aparecen los jugadores,
+     * para que ningún elemento quede encerrado tras hierro.
+     * @param template plantilla del nivel con sus componentes
      * @param players posiciones de los jugadores
-     * @return mapa de posiciones a tipos de frutas distribuidas
      */
-    public Map<Position, String> placeFruits(GameConfig cfg, List<Position> empty,
-                                             int rows, int cols, List<Position> players) {
-        Map<Position, String> out = new HashMap<>();
-        Map<String, List<Position>> zones = splitZones(empty, rows, cols);
-
-        Map<String, Integer> fruits = cfg.getFruits();
-        int total = cfg.getTotalFruits();
-
-        List<String> fruitList = new ArrayList<>();
-        for (Map.Entry<String, Integer> e : fruits.entrySet()) {
-            for (int i = 0; i < e.getValue(); i++) {
-                fruitList.add(e.getKey());
-            }
+    public void restrictToReachable(LevelTemplate template, List<Position> players) {
+        if (players.isEmpty()) {
+            reachable = null;
+            return;
         }
 
-        Collections.shuffle(fruitList, rnd);
-        List<Position> picked;
+        int[] comps = new int[players.size()];
+        for (int i = 0; i < comps.length; i++) {
+            Position p = players.get(i);
+            comps[i] = template.getComponent(p.getRow() * cols + p.getCol());
+        }
 
-        if (total <= 4) picked = cornerPick(zones, total);
-        else if (total <= 12) picked = balancedPick(zones, total);
-        else picked = fullPick(empty, total, players);
+        reachable = cell -> {
+            int comp = template.getComponent(cell);
+            for (int pc : comps) {
+                if (pc == comp) return true;
+            }
+            return false;
+        };
+    }
 
-        for (int i = 0; i < Math.min(fruitList.size(), picked.size()); i++) {
-            out.put(picked.get(i), fruitList.get(i));
-        }
-        return out;
+    /**
+     * Determina la franja de una fila.
+     * @param row fila de la casilla
+     * @param topLim límite de la franja superior
+     * @param botLim límite de la franja inferior
+     * @return índice de la franja
+     */
+    private static int zoneOf(int row, int topLim, int botLim) {
+        if (row < topLim) return TOP;
+        if (row > botLim) return BOT;
+        return MID;
     }
 
     /**
-     * Distribuye los enemigos en el mapa.
+     * Distribuye las frutas en el mapa.
      * @param cfg configuración del juego
-     * @param empty posiciones vacías disponibles
-     * @param rows número de filas del mapa
-     * @param cols número de columnas del mapa
      * @param players posiciones de los jugadores
-     * @param fruitsPlaced frutas ya colocadas en el mapa
-     * @return mapa de posiciones a tipos de enemigos distribuidos
+     * @return mapa de posiciones a tipos de frutas distribuidas
      */
-    public Map<Position, String> placeEnemies(GameConfig cfg, List<Position> empty,
-                                              int rows, int cols, List<Position> players,
-                                              Map<Position, String> fruitsPlaced) {
-        Map<Position, String> out = new HashMap<>();
-
-        List<Position> free = new ArrayList<>(empty);
-        free.removeAll(fruitsPlaced.keySet());
+    public Map<Position, String> placeFruits(GameConfig cfg, List<Position> players) {
+        List<String> fruitList = expand(cfg.getFruits());
+        Collections.shuffle(fruitList, rnd);
 
-        Map<String, Integer> enemies = cfg.getEnemies();
-        int total = cfg.getTotalEnemies();
+        int total = cfg.getTotalFruits();
+        int[] picked;
 
-        List<String> enemyList = new ArrayList<>();
-        for (Map.Entry<String, Integer> e : enemies.entrySet()) {
-            for (int i = 0; i < e.getValue(); i++) {
-                enemyList.add(e.getKey());
-            }
-        }
+        if (total <= 4) picked = cornerPick(total, reachable);
+        else if (total <= 12) picked = balancedPick(total, reachable);
+        else picked = fullPick(total, reachable);
 
-        List<Position> far = filterFar(free, players, 5);
-        Map<String, List<Position>> zones = splitZones(far, rows, cols);
-        List<Position> picked = balancedPick(zones, total);
+        return assign(picked, fruitList);
+    }
 
-        for (int i = 0; i < Math.min(enemyList.size(), picked.size()); i++) {
-            out.put(picked.get(i), enemyList.get(i));
-        }
-        return out;
+    /**
+     * Distribuye los enemigos en el mapa, lejos de los jugadores.
+     * @param cfg configuración del juego
+     * @param players posiciones de los jugadores
+     * @return mapa de posiciones a tipos de enemigos distribuidos
+     */
+    public Map<Position, String> placeEnemies(GameConfig cfg, List<Position> players) {
+        List<String> enemyList = expand(cfg.getEnemies());
+        CellFilter far = cell -> isFar(cell, players);
+        CellFilter filter = reachable == null ? far : cell -> reachable.accept(cell) && far.accept(cell);
+        int[] picked = balancedPick(cfg.getTotalEnemies(), filter);
+        return assign(picked, enemyList);
     }
 
     /**
-     * Distribuye los obstáculos en el mapa.
+     * Distribuye los obstáculos en las casillas que siguen libres.
      * @param cfg configuración del juego
-     * @param empty posiciones vacías disponibles
-     * @param fruitsPlaced frutas ya colocadas en el mapa
-     * @param enemiesPlaced enemigos ya colocados en el mapa
      * @return mapa de posiciones a tipos de obstáculos distribuidos
      */
-    public Map<Position, String> placeObstacles(GameConfig cfg, List<Position> empty,
-                                                Map<Position, String> fruitsPlaced,
-                                                Map<Position, String> enemiesPlaced) {
-        Map<Position, String> out = new HashMap<>();
-
-        List<Position> free = new ArrayList<>(empty);
-        free.removeAll(fruitsPlaced.keySet());
-        free.removeAll(enemiesPlaced.keySet());
+    public Map<Position, String> placeObstacles(GameConfig cfg) {
+        List<String> obsList = expand(cfg.getObstacles());
+        return assign(fullPick(obsList.size(), null), obsList);
+    }
 
-        Map<String, Integer> obs = cfg.getObstacles();
-        List<String> obsList = new ArrayList<>();
+    // ==================== HELPERS ====================
 
-        for (Map.Entry<String, Integer> e : obs.entrySet()) {
+    /**
+     * Expande un mapa de tipos y cantidades en una lista con un elemento por unidad.
+     * @param counts cantidades por tipo
+     * @return lista de tipos repetidos según su cantidad
+     */
+    private List<String> expand(Map<String, Integer> counts) {
+        List<String> out = new ArrayList<>();
+        for (Map.Entry<String, Integer> e : counts.entrySet()) {
             for (int i = 0; i < e.getValue(); i++) {
-                obsList.add(e.getKey());
+                out.add(e.getKey());
             }
         }
+        return out;
+    }
 
-        Collections.shuffle(free, rnd);
-
-        for (int i = 0; i < Math.min(obsList.size(), free.size()); i++) {
-            out.put(free.get(i), obsList.get(i));
+    /**
+     * Asocia las casillas elegidas con los tipos a colocar.
+     * @param picked casillas elegidas
+     * @param types tipos a colocar
+     * @return mapa de posiciones a tipos
+     */
+    private Map<Position, String> assign(int[] picked, List<String> types) {
+        Map<Position, String> out = new LinkedHashMap<>();
+        for (int i = 0; i < Math.min(types.size(), picked.length); i++) {
+            out.put(new Position(picked[i] / cols, picked[i] % cols), types.get(i));
         }
         return out;
     }
 
-    // ==================== HELPERS ====================
-
     /**
-     * Selecciona posiciones en las esquinas del mapa.
-     * @param zones zonas del mapa divididas
+     * Selecciona posiciones en las esquinas del mapa, alternando franja superior e inferior.
      * @param count número de posiciones a seleccionar
-     * @return lista de posiciones seleccionadas
+     * @param filter condición adicional de las casillas o null
+     * @return casillas seleccionadas
      */
-    private List<Position> cornerPick(Map<String, List<Position>> zones, int count) {
-        List<Position> out = new ArrayList<>();
-        List<Position> top = new ArrayList<>(zones.get("TOP"));
-        List<Position> bot = new ArrayList<>(zones.get("BOT"));
-
-        Collections.shuffle(top, rnd);
-        Collections.shuffle(bot, rnd);
+    private int[] cornerPick(int count, CellFilter filter) {
+        int[] out = new int[count];
+        int n = 0;
 
         for (int i = 0; i < count; i++) {
-            if (i % 2 == 0 && !top.isEmpty()) out.add(top.remove(0));
-            else if (!bot.isEmpty()) out.add(bot.remove(0));
-            else if (!top.isEmpty()) out.add(top.remove(0));
+            int cell = -1;
+            if (i % 2 == 0) cell = take(TOP, filter);
+            if (cell < 0) cell = take(BOT, filter);
+            if (cell < 0) cell = take(TOP, filter);
+            if (cell >= 0) out[n++] = cell;
         }
-        return out;
+        restore();
+        return Arrays.copyOf(out, n);
     }
 
     /**
-     * Selecciona posiciones de manera equilibrada en el mapa.
-     * @param zones zonas del mapa divididas
+     * Selecciona posiciones de manera equilibrada entre las tres franjas.
      * @param count número de posiciones a seleccionar
-     * @return lista de posiciones seleccionadas
+     * @param filter condición adicional de las casillas o null
+     * @return casillas seleccionadas
      */
-    private List<Position> balancedPick(Map<String, List<Position>> zones, int count) {
-        List<Position> out = new ArrayList<>();
-
-        List<Position> top = new ArrayList<>(zones.get("TOP"));
-        List<Position> mid = new ArrayList<>(zones.get("MID"));
-        List<Position> bot = new ArrayList<>(zones.get("BOT"));
-
-        Collections.shuffle(top, rnd);
-        Collections.shuffle(mid, rnd);
-        Collections.shuffle(bot, rnd);
-
+    private int[] balancedPick(int count, CellFilter filter) {
         int per = count / 3;
         int rem = count % 3;
-
-        out.addAll(top.subList(0, Math.min(per + (rem > 0 ? 1 : 0), top.size())));
-        out.addAll(mid.subList(0, Math.min(per + (rem > 1 ? 1 : 0), mid.size())));
-        out.addAll(bot.subList(0, Math.min(per, bot.size())));
-        return out;
+        int[] quota = {per + (rem > 0 ? 1 : 0), per + (rem > 1 ? 1 : 0), per};
+
+        int[] out = new int[count];
+        int n = 0;
+        for (int z = 0; z < 3; z++) {
+            for (int i = 0; i < quota[z]; i++) {
+                int cell = take(z, filter);
+                if (cell < 0) break;
+                out[n++] = cell;
+            }
+        }
+        restore();
+        return Arrays.copyOf(out, n);
     }
 
     /**
-     * Selecciona posiciones libremente en el mapa.
-     * @param pos lista de posiciones a seleccionar
+     * Selecciona posiciones libres de forma uniforme en todo el mapa.
      * @param count número de posiciones a seleccionar
-     * @param players posiciones de los jugadores
-     * @return lista de posiciones seleccionadas
+     * @param filter condición adicional de las casillas o null
+     * @return casillas seleccionadas
      */
-    private List<Position> fullPick(List<Position> pos, int count,
-                                    @SuppressWarnings("unused") List<Position> players) {
-        List<Position> free = new ArrayList<>(pos);
-        Collections.shuffle(free, rnd);
-        return free.subList(0, Math.min(count, free.size()));
+    private int[] fullPick(int count, CellFilter filter) {
+        int[] out = new int[count];
+        int n = 0;
+
+        while (n < count) {
+            int total = live[TOP] + live[MID] + live[BOT];
+            if (total == 0) break;
+
+            int k = rnd.nextInt(total);
+            int z = k < live[TOP] ? TOP : k < live[TOP] + live[MID] ? MID : BOT;
+            int cell = takeAt(z, z == TOP ? k : z == MID ? k - live[TOP] : k - live[TOP] - live[MID], filter);
+            if (cell >= 0) out[n++] = cell;
+        }
+        restore();
+        return Arrays.copyOf(out, n);
+    }
+
+    /**
+     * Extrae al azar una casilla libre de una franja que cumpla el filtro.
+     * @param zone franja de origen
+     * @param filter condición adicional o null
+     * @return casilla elegida o -1 si la franja se agotó
+     */
+    private int take(int zone, CellFilter filter) {
+        while (live[zone] > 0) {
+            int cell = takeAt(zone, rnd.nextInt(live[zone]), filter);
+            if (cell >= 0) return cell;
+        }
+        return -1;
     }
 
     /**
-     * Filtra posiciones que estén lejos de los jugadores.
-     * @param pos lista de posiciones a filtrar
+     * Paso de Fisher-Yates parcial: mueve la casilla sorteada al final de la parte viva
+     * de la franja. Si sigue libre y cumple el filtro queda ocupada; si no, solo se aparta
+     * hasta la siguiente selección.
+     * @param zone franja de origen
+     * @param i índice sorteado dentro de la parte viva
+     * @param filter condición adicional o null
+     * @return casilla ocupada o -1 si fue descartada
+     */
+    private int takeAt(int zone, int i, CellFilter filter) {
+        int[] pool = zones[zone];
+        int last = --live[zone];
+        int cell = pool[i];
+        pool[i] = pool[last];
+        pool[last] = cell;
+
+        if (!free.get(cell)) return -1;
+        if (filter != null && !filter.accept(cell)) return -1;
+
+        free.clear(cell);
+        return cell;
+    }
+
+    /**
+     * Devuelve a las franjas las casillas apartadas. Las ocupadas se descartarán
+     * perezosamente cuando vuelvan a salir sorteadas.
+     */
+    private void restore() {
+        for (int z = 0; z < 3; z++) live[z] = zones[z].length;
+    }
+
+    /**
+     * Indica si una casilla está lejos de todos los jugadores.
+     * @param cell casilla a evaluar
      * @param players posiciones de los jugadores
-     * @param minDist distancia mínima requerida
-     * @return lista de posiciones filtradas
+     * @return true si la distancia a cada jugador es al menos la mínima
      */
-    private List<Position> filterFar(List<Position> pos, List<Position> players, int minDist) {
-        List<Position> out = new ArrayList<>();
-
-        for (Position p : pos) {
-            boolean ok = true;
-
-            for (Position pl : players) {
-                int d = Math.abs(p.getRow() - pl.getRow())
-                      + Math.abs(p.getCol() - pl.getCol());
-                if (d < minDist) {
-                    ok = false;
-                    break;
-                }
-            }
-            if (ok) out.add(p);
+    private boolean isFar(int cell, List<Position> players) {
+        int r = cell / cols;
+        int c = cell % cols;
+        for (Position pl : players) {
+            int d = Math.abs(r - pl.getRow()) + Math.abs(c - pl.getCol());
+            if (d < MIN_ENEMY_DISTANCE) return false;
         }
-        return out;
+        return true;
     }
 }
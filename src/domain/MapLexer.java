@@ -0,0 +1,180 @@
+package domain;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Analizador léxico de mapas en una sola pasada. Recorre el texto por bloques sin construir
+ * cadenas intermedias, clasifica cada glifo con una tabla de 128 entradas y produce directamente
+ * la plantilla del nivel. Soporta mapas muy grandes leídos desde cualquier {@link Reader}.
+ * Las filas con una longitud distinta a la primera o con glifos desconocidos se reportan
+ * como mal formadas; se completan con piso o se recortan para mantener la cuadrícula rectangular.
+ */
+public final class MapLexer {
+
+    private static final Logger LOGGER = Logger.getLogger(MapLexer.class.getName());
+    private static final int CHUNK = 8192;
+    private static final int MAX_REPORTS = 20;
+
+    private static final byte UNKNOWN = 0;
+    private static final byte CELL = 1;
+    private static final byte EMPTY = 2;
+    private static final byte SLOT_X = 3;
+    private static final byte SLOT_Y = 4;
+
+    private static final byte[] GLYPHS = new byte[128];
+
+    static {
+        for (char ch : "HKL1CSVRJE ".toCharArray()) GLYPHS[ch] = CELL;
+        for (char ch : "0FG".toCharArray()) GLYPHS[ch] = EMPTY;
+        GLYPHS['X'] = SLOT_X;
+        GLYPHS['Y'] = SLOT_Y;
+    }
+
+    private char[] cells = new char[1024];
+    private int size;
+    private int cols = -1;
+    private int rows;
+    private int rowLen;
+    private boolean rowMalformed;
+    private final int[] slots = {-1, -1};
+    private int[] empty = new int[256];
+    private int emptyCount;
+    private int[] malformed = new int[8];
+    private int malformedCount;
+
+    /**
+     * Evita la creación externa; cada análisis usa su propia instancia.
+     */
+    private MapLexer() {
+    }
+
+    /**
+     * Analiza un mapa leyendo el flujo por bloques.
+     * @param in lector del mapa, una fila por línea
+     * @return plantilla del nivel
+     * @throws IOException si falla la lectura
+     */
+    public static LevelTemplate lex(Reader in) throws IOException {
+        MapLexer lexer = new MapLexer();
+        char[] buf = new char[CHUNK];
+        int n;
+        while ((n = in.read(buf, 0, CHUNK)) >= 0) {
+            lexer.feed(buf, 0, n);
+        }
+        return lexer.finish();
+    }
+
+    /**
+     * Analiza un mapa que ya está en memoria.
+     * @param text contenido del mapa
+     * @return plantilla del nivel
+     */
+    public static LevelTemplate lex(CharBuffer text) {
+        MapLexer lexer = new MapLexer();
+        if (text.hasArray()) {
+            lexer.feed(text.array(), text.arrayOffset() + text.position(), text.remaining());
+        } else {
+            char[] buf = new char[CHUNK];
+            CharBuffer src = text.duplicate();
+            while (src.hasRemaining()) {
+                int n = Math.min(CHUNK, src.remaining());
+                src.get(buf, 0, n);
+                lexer.feed(buf, 0, n);
+            }
+        }
+        return lexer.finish();
+    }
+
+    /**
+     * Procesa un bloque de caracteres.
+     * @param buf arreglo de origen
+     * @param off posición inicial
+     * @param len cantidad de caracteres
+     */
+    private void feed(char[] buf, int off, int len) {
+        for (int i = off, end = off + len; i < end; i++) {
+            char ch = buf[i];
+            if (ch == '\n') {
+                endRow();
+            } else if (ch != '\r') {
+                accept(ch);
+            }
+        }
+    }
+
+    /**
+     * Agrega un glifo a la fila actual.
+     * @param ch glifo leído
+     */
+    private void accept(char ch) {
+        if (cols >= 0 && rowLen >= cols) {
+            rowMalformed = true;
+            rowLen++;
+            return;
+        }
+
+        byte kind = ch < 128 ? GLYPHS[ch] : UNKNOWN;
+        if (kind == UNKNOWN) {
+            rowMalformed = true;
+            ch = ' ';
+        }
+
+        int idx = size;
+        if (kind == EMPTY) {
+            if (emptyCount == empty.length) empty = Arrays.copyOf(empty, emptyCount * 2);
+            empty[emptyCount++] = idx;
+        } else if (kind == SLOT_X && slots[0] < 0) {
+            slots[0] = idx;
+        } else if (kind == SLOT_Y && slots[1] < 0) {
+            slots[1] = idx;
+        }
+
+        if (size == cells.length) cells = Arrays.copyOf(cells, size * 2);
+        cells[size++] = ch;
+        rowLen++;
+    }
+
+    /**
+     * Cierra la fila actual, completándola con piso si es más corta que la primera.
+     */
+    private void endRow() {
+        if (cols < 0) {
+            if (rowLen == 0) return;
+            cols = rowLen;
+        }
+        if (rowLen < cols) {
+            rowMalformed = true;
+            while (rowLen < cols) accept(' ');
+        }
+        if (rowMalformed) {
+            if (malformedCount == malformed.length) malformed = Arrays.copyOf(malformed, malformedCount * 2);
+            malformed[malformedCount++] = rows;
+        }
+        rows++;
+        rowLen = 0;
+        rowMalformed = false;
+    }
+
+    /**
+     * Termina el análisis y construye la plantilla.
+     * @return plantilla del nivel
+     */
+    private LevelTemplate finish() {
+        if (rowLen > 0 || rowMalformed) endRow();
+        if (cols < 0) cols = 0;
+
+        if (malformedCount > 0 && LOGGER.isLoggable(Level.WARNING)) {
+            int shown = Math.min(malformedCount, MAX_REPORTS);
+            GameLog.log(LOGGER, Level.WARNING, null, "Mapa con {0} filas mal formadas, primeras: {1}",
+                    malformedCount, Arrays.toString(Arrays.copyOf(malformed, shown)));
+        }
+
+        return new LevelTemplate(rows, cols, Arrays.copyOf(cells, rows * cols), slots,
+                Arrays.copyOf(empty, emptyCount), Arrays.copyOf(malformed, malformedCount));
+    }
+}
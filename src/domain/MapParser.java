@@ -1,14 +1,70 @@
 package domain;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 /**
  * Analiza una representación textual del mapa y crea la instancia del juego correspondiente.
  */
 public class MapParser {
 
+    /**
+     * Constructor de una casilla: crea exactamente el bloque que le corresponde al glifo.
+     */
+    @FunctionalInterface
+    private interface CellBuilder {
+        /**
+         * Crea el contenido de la casilla y lo registra en el mapa.
+         * @param pos posición dentro del mapa
+         * @param map mapa del juego
+         * @param players lista de jugadores detectados
+         */
+        void build(Position pos, GameMap map, List<IceCream> players);
+    }
+
+    private static final CellBuilder[] BUILDERS = new CellBuilder[128];
+    private static final boolean[] PLAYER_GLYPHS = new boolean[128];
+
+    static {
+        BUILDERS['H'] = (pos, map, players) -> map.setBlock(pos, new Iron(pos, BoxState.indestructible));
+        BUILDERS['1'] = (pos, map, players) -> map.setBlock(pos, new Ice(pos, BoxState.created));
+        BUILDERS['K'] = (pos, map, players) -> {
+            Fire f = new Fire(pos, BoxState.on);
+            f.setGameMap(map);
+            map.setBlock(pos, f);
+        };
+        BUILDERS['L'] = (pos, map, players) -> {
+            Bonfire b = new Bonfire(pos, BoxState.on);
+            b.setGameMap(map);
+            map.setBlock(pos, b);
+        };
+        BUILDERS['C'] = player(null);
+        BUILDERS['S'] = player(null);
+        BUILDERS['V'] = player(null);
+        BUILDERS['R'] = player("hungry");
+        BUILDERS['J'] = player("fearful");
+        BUILDERS['E'] = player("expert");
+
+        for (char ch : "CSVRJE".toCharArray()) PLAYER_GLYPHS[ch] = true;
+    }
+
+    /**
+     * Crea el constructor de una casilla de aparición: un jugador sobre el piso.
+     * @param flavor sabor inicial del jugador o null para dejar el predeterminado
+     * @return constructor de la casilla
+     */
+    private static CellBuilder player(String flavor) {
+        return (pos, map, players) -> {
+            IceCream p = new IceCream(pos);
+            p.setGameMap(map);
+            if (flavor != null) p.setFlavor(flavor);
+            players.add(p);
+        };
+    }
+
     /**
      * Construye una instancia del juego a partir de un mapa en texto y la configuración inicial.
      * Interpreta cada carácter del mapa, crea los objetos correspondientes y los registra en el juego.
@@ -17,56 +73,64 @@ public class MapParser {
      * @return instancia completamente inicializada del juego
      */
     public static BadIceCream parseMap(String mapText, GameConfig config) {
+        LevelTemplate template = LevelTemplate.fromText(mapText);
+        return parseMap(template, template.copyCells(), config);
+    }
 
-        String[] lines = mapText.split("\n");
-        int rows = lines.length;
-        int cols = lines[0].length();
+    /**
+     * Construye una instancia del juego a partir de una plantilla de nivel ya analizada.
+     * @param template plantilla del nivel con sus casillas vacías precalculadas
+     * @param cells cuadrícula del nivel con la configuración ya aplicada
+     * @param config configuración del juego (sabores, jugadores, etc.)
+     * @return instancia completamente inicializada del juego
+     */
+    public static BadIceCream parseMap(LevelTemplate template, char[] cells, GameConfig config) {
+        int rows = template.getRows();
+        int cols = template.getCols();
 
         GameMap map = new GameMap(rows, cols);
-        MapDistributor dist = new MapDistributor();
 
         List<IceCream> players = new ArrayList<>();
         List<Character> playerTypes = new ArrayList<>();
         List<Position> playerPos = new ArrayList<>();
-        List<Position> emptyPos = new ArrayList<>();
+
+        int[] empty = template.getEmptyCells();
+        int slotY = template.getPlayerSlot(1);
+        if (slotY >= 0 && LevelTemplate.isEmpty(cells[slotY])) {
+            empty = Arrays.copyOf(empty, empty.length + 1);
+            empty[empty.length - 1] = slotY;
+        }
+        Random rnd = config.getSeed() != null ? new Random(config.getSeed()) : new Random();
+        MapDistributor dist = new MapDistributor(rows, cols, empty, rnd);
 
         for (int r = 0; r < rows; r++) {
-            String line = lines[r];
-            for (int c = 0; c < line.length() && c < cols; c++) {
-                char ch = line.charAt(c);
-                Position pos = new Position(r, c);
+            for (int c = 0; c < cols; c++) {
+                char ch = cells[r * cols + c];
+                CellBuilder builder = ch < 128 ? BUILDERS[ch] : null;
+                if (builder == null) continue; // piso implícito: la casilla no ocupa memoria
 
-                if ("CSVRJE".indexOf(ch) >= 0) {
+                Position pos = new Position(r, c);
+                if (PLAYER_GLYPHS[ch]) {
                     playerTypes.add(ch);
                     playerPos.add(pos);
                 }
 
-                if (ch == '0' || ch == 'F' || ch == 'G') {
-                    emptyPos.add(pos);
-                }
-
-                parseCell(ch, pos, map, players);
+                builder.build(pos, map, players);
             }
         }
 
-        Map<Position, String> fruitMap = dist.placeFruits(
-                config, emptyPos, rows, cols, playerPos
-        );
-
-        Map<Position, String> enemyMap = dist.placeEnemies(
-                config, emptyPos, rows, cols, playerPos, fruitMap
-        );
-
-        Map<Position, String> obsMap = dist.placeObstacles(
-                config, emptyPos, fruitMap, enemyMap
-        );
+        dist.restrictToReachable(template, playerPos);
+        Map<Position, String> fruitMap = dist.placeFruits(config, playerPos);
+        Map<Position, String> enemyMap = dist.placeEnemies(config, playerPos);
+        Map<Position, String> obsMap = dist.placeObstacles(config);
 
         List<Fruit> fruits = buildFruits(fruitMap);
         List<Enemy> enemies = buildEnemies(enemyMap);
         buildObstacles(obsMap, map);
 
         map.saveInitialBlockStates();
-        BadIceCream game = new BadIceCream(map);
+        BadIceCream game = new BadIceCream(map, config.getTickRate(), rnd.nextLong());
+        if (config.isEntityStore()) game.useEntityStore();
 
         for (int i = 0; i < players.size(); i++) {
             IceCream p = players.get(i);
@@ -102,6 +166,7 @@ public class MapParser {
                 case 'E' -> ctrl = new Expert(map, game);
                 default -> throw new IllegalArgumentException("Unknown player type: " + type);
             }
+            if (!(ctrl instanceof Player)) ctrl = new BudgetedController(ctrl, config.getDecisionBudgetNanos());
 
             ctrl.setPlayer(p);
             p.setController(ctrl);
@@ -126,60 +191,6 @@ public class MapParser {
         return game;
     }
 
-    /**
-     * Interpreta un carácter del mapa y crea el objeto correspondiente en la posición indicada.
-     * @param ch carácter leído del mapa
-     * @param pos posición dentro del mapa
-     * @param map mapa del juego
-     * @param players lista de jugadores detectados
-     */
-    private static void parseCell(
-            char ch,
-            Position pos,
-            GameMap map,
-            List<IceCream> players) {
-
-        map.setBlock(pos, new Floor(pos, BoxState.inactive));
-
-        switch (ch) {
-            case 'H' -> map.setBlock(pos, new Iron(pos, BoxState.indestructible));
-            case '1' -> map.setBlock(pos, new Ice(pos, BoxState.created));
-            case 'K' -> {
-                Fire f = new Fire(pos, BoxState.on);
-                f.setGameMap(map);
-                map.setBlock(pos, f);
-            }
-            case 'L' -> {
-                Bonfire b = new Bonfire(pos, BoxState.on);
-                b.setGameMap(map);
-                map.setBlock(pos, b);
-            }
-            case 'C', 'S', 'V' -> {
-                IceCream p = new IceCream(pos);
-                p.setGameMap(map);
-                players.add(p);
-            }
-            case 'R' -> {
-                IceCream p = new IceCream(pos);
-                p.setGameMap(map);
-                p.setFlavor("hungry");
-                players.add(p);
-            }
-            case 'J' -> {
-                IceCream p = new IceCream(pos);
-                p.setGameMap(map);
-                p.setFlavor("fearful");
-                players.add(p);
-            }
-            case 'E' -> {
-                IceCream p = new IceCream(pos);
-                p.setGameMap(map);
-                p.setFlavor("expert");
-                players.add(p);
-            }
-        }
-    }
-
     /**
      * Crea las frutas según la distribución proporcionada.
      * @param distribucion mapa de posiciones a tipos de frutas
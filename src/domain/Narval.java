@@ -1,6 +1,7 @@
 package domain;
 
-import java.util.Random;
+import java.nio.ByteBuffer;
+
 
 /**
  * Representa un enemigo Narval dentro del mapa del juego.
@@ -10,11 +11,9 @@ public class Narval extends Enemy {
 
     private boolean charging;
     private Direction chargeDir;
-    private final Random rng;
 
-    private int tick;
-    private final int walkDelay;
-    private final int chargeDelay;
+    private static final double WALK_SPEED = 3.3;
+    private static final double CHARGE_SPEED = 6.7;
 
     /**
      * Crea un enemigo Narval en la posición indicada.
@@ -24,10 +23,6 @@ public class Narval extends Enemy {
         super(EnemyType.narval, pos);
         this.charging = false;
         this.chargeDir = null;
-        this.rng = new Random();
-        this.tick = 0;
-        this.walkDelay = 2;
-        this.chargeDelay = 0;
         this.currentDirection = Direction.DOWN;
     }
 
@@ -62,12 +57,6 @@ public class Narval extends Enemy {
      */
     @Override
     public void doUpdate() {
-        int delay = charging ? chargeDelay : walkDelay;
-
-        tick++;
-        if (tick < delay) return;
-        tick = 0;
-
         if (charging) {
             if (canCharge()) {
                 chargeStep();
@@ -88,6 +77,14 @@ public class Narval extends Enemy {
         patrol();
     }
 
+    /**
+     * @return velocidad en casillas por segundo, el doble al cargar
+     */
+    @Override
+    protected double cellsPerSecond() {
+        return charging ? CHARGE_SPEED : WALK_SPEED;
+    }
+
     /**
      * Verifica si la carga puede continuar en la dirección actual.
      * @return true si puede seguir cargando, false en caso contrario
@@ -148,29 +145,21 @@ public class Narval extends Enemy {
     }
 
     /**
-     * Verifica si hay un jugador vivo en línea recta en una dirección.
+     * Verifica si hay un jugador vivo en línea recta en una dirección, hasta el primer
+     * bloque que tapa la vista, incluido.
      * @param dir dirección a evaluar
      * @return true si hay un jugador visible, false en caso contrario
      */
     private boolean playerAhead(Direction dir) {
-        Position cur = new Position(position.getRow(), position.getCol());
-
-        while (true) {
-            cur = new Position(
-                    cur.getRow() + dir.getRowDelta(),
-                    cur.getCol() + dir.getColDelta()
-            );
+        int range = gameMap.sightRange(position, dir);
+        int r = position.getRow();
+        int c = position.getCol();
 
-            if (!gameMap.isValid(cur)) return false;
-
-            IceCream p = gameMap.getPlayer(cur);
+        for (int k = 1; k <= range; k++) {
+            IceCream p = gameMap.getPlayer(r + k * dir.getRowDelta(), c + k * dir.getColDelta());
             if (p != null && p.isAlive()) return true;
-
-            Boxy b = gameMap.getBlock(cur);
-            if (b != null && b.isCreated() && b.getType() != BoxType.ice) {
-                return false;
-            }
         }
+        return false;
     }
 
     /**
@@ -186,7 +175,7 @@ public class Narval extends Enemy {
                 ? new Direction[]{Direction.LEFT, Direction.RIGHT}
                 : new Direction[]{Direction.UP, Direction.DOWN};
 
-        if (rng.nextBoolean() && sides.length == 2) {
+        if (gameMap.getRandom().nextBoolean() && sides.length == 2) {
             Direction tmp = sides[0];
             sides[0] = sides[1];
             sides[1] = tmp;
@@ -241,4 +230,45 @@ public class Narval extends Enemy {
     public boolean isCharging() {
         return charging;
     }
-}
\ No newline at end of file
+
+    /**
+     * @return 1 si está cargando
+     */
+    @Override
+    int replicaFlags() {
+        return charging ? 1 : 0;
+    }
+
+    /**
+     * @param p posición replicada
+     * @param d dirección replicada
+     * @param flags 1 si está cargando
+     */
+    @Override
+    void applyReplica(Position p, Direction d, int flags) {
+        super.applyReplica(p, d, flags);
+        charging = (flags & 1) != 0;
+    }
+
+    /**
+     * Agrega la embestida en curso al estado guardado.
+     * @param out destino
+     */
+    @Override
+    void writeState(ByteBuffer out) {
+        super.writeState(out);
+        out.put((byte) (charging ? 1 : 0));
+        GameSnapshot.putDir(out, chargeDir);
+    }
+
+    /**
+     * Restaura la embestida en curso.
+     * @param in origen
+     */
+    @Override
+    void readState(ByteBuffer in) {
+        super.readState(in);
+        charging = in.get() != 0;
+        chargeDir = GameSnapshot.getDir(in);
+    }
+}
@@ -0,0 +1,181 @@
+package domain;
+
+/**
+ * Máscaras de vecinas de cada casilla del mapa, un bit por dirección en la posición de su
+ * ordinal: en los cuatro bits bajos las vecinas a las que se puede caminar (dentro del mapa
+ * y sin bloqueo) y en los cuatro altos las que tienen un enemigo. Se guardan por regiones
+ * de 32x32 casillas, como {@link ChunkedGrid}, que se reservan solo cuando una casilla deja
+ * de tener el valor que le corresponde a un mapa vacío; en una región sin reservar las
+ * vecinas abiertas salen de los bordes del mapa y no hay enemigos.
+ */
+final class NeighborMasks {
+
+    private static final int SHIFT = ChunkedGrid.SHIFT;
+    private static final int SIZE = ChunkedGrid.SIZE;
+    private static final int MASK = SIZE - 1;
+    private static final int CROWDED_SHIFT = 4;
+    private static final int DIR_BITS = 0xF;
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final int rows;
+    private final int cols;
+    private final int chunkCols;
+    private final byte[][] chunks;
+
+    /**
+     * Crea las máscaras de un mapa vacío.
+     * @param rows filas del mapa
+     * @param cols columnas del mapa
+     */
+    NeighborMasks(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+        this.chunkCols = (cols + MASK) >> SHIFT;
+        this.chunks = new byte[((rows + MASK) >> SHIFT) * chunkCols][];
+    }
+
+    /**
+     * @param r fila
+     * @param c columna
+     * @return vecinas a las que se puede caminar
+     */
+    int open(int r, int c) {
+        byte[] chunk = chunks[chunk(r, c)];
+        return chunk == null ? bounds(r, c) : chunk[cell(r, c)] & DIR_BITS;
+    }
+
+    /**
+     * @param r fila
+     * @param c columna
+     * @return vecinas con un enemigo
+     */
+    int crowded(int r, int c) {
+        byte[] chunk = chunks[chunk(r, c)];
+        return chunk == null ? 0 : chunk[cell(r, c)] >> CROWDED_SHIFT & DIR_BITS;
+    }
+
+    /**
+     * @param r fila
+     * @param c columna
+     * @return vecinas abiertas y sin enemigo
+     */
+    int walk(int r, int c) {
+        byte[] chunk = chunks[chunk(r, c)];
+        if (chunk == null) return bounds(r, c);
+        int v = chunk[cell(r, c)];
+        return v & ~(v >> CROWDED_SHIFT) & DIR_BITS;
+    }
+
+    /**
+     * @param r fila
+     * @param c columna
+     * @param bit bit de la dirección de la vecina
+     * @param set true si se puede caminar hacia ella
+     */
+    void setOpen(int r, int c, int bit, boolean set) {
+        update(r, c, bit, set);
+    }
+
+    /**
+     * @param r fila
+     * @param c columna
+     * @param bit bit de la dirección de la vecina
+     * @param set true si la vecina tiene un enemigo
+     */
+    void setCrowded(int r, int c, int bit, boolean set) {
+        update(r, c, bit << CROWDED_SHIFT, set);
+    }
+
+    /**
+     * Borra las marcas de enemigos de todas las regiones reservadas.
+     */
+    void clearCrowded() {
+        for (byte[] chunk : chunks) {
+            if (chunk == null) continue;
+            for (int i = 0; i < chunk.length; i++) chunk[i] &= DIR_BITS;
+        }
+    }
+
+    /**
+     * @return regiones con memoria asignada
+     */
+    int allocatedChunks() {
+        int n = 0;
+        for (byte[] chunk : chunks) {
+            if (chunk != null) n++;
+        }
+        return n;
+    }
+
+    /**
+     * Cambia un bit de una casilla, reservando su región solo si el valor nuevo difiere
+     * del de un mapa vacío.
+     * @param r fila
+     * @param c columna
+     * @param bit bit ya desplazado a su mitad del byte
+     * @param set true para encenderlo
+     */
+    private void update(int r, int c, int bit, boolean set) {
+        int idx = chunk(r, c);
+        byte[] chunk = chunks[idx];
+        if (chunk == null) {
+            if (set == ((bounds(r, c) & bit) != 0)) return;
+            chunk = allocate(idx);
+        }
+        int i = cell(r, c);
+        chunk[i] = (byte) (set ? chunk[i] | bit : chunk[i] & ~bit);
+    }
+
+    /**
+     * Reserva una región con los valores de un mapa vacío.
+     * @param idx índice de la región
+     * @return región reservada
+     */
+    private byte[] allocate(int idx) {
+        byte[] chunk = new byte[SIZE * SIZE];
+        int baseRow = (idx / chunkCols) << SHIFT;
+        int baseCol = (idx % chunkCols) << SHIFT;
+        for (int i = 0; i < chunk.length; i++) {
+            int r = baseRow + (i >> SHIFT);
+            int c = baseCol + (i & MASK);
+            if (r < rows && c < cols) chunk[i] = (byte) bounds(r, c);
+        }
+        chunks[idx] = chunk;
+        return chunk;
+    }
+
+    /**
+     * @param r fila
+     * @param c columna
+     * @return vecinas que quedan dentro del mapa
+     */
+    private int bounds(int r, int c) {
+        int mask = 0;
+        for (Direction d : DIRECTIONS) {
+            int nr = r + d.getRowDelta();
+            int nc = c + d.getColDelta();
+            if (nr >= 0 && nr < rows && nc >= 0 && nc < cols) mask |= 1 << d.ordinal();
+        }
+        return mask;
+    }
+
+    /**
+     * @param r fila
+     * @param c columna
+     * @return índice de la región de la casilla
+     * @throws IndexOutOfBoundsException si la casilla está fuera del mapa
+     */
+    private int chunk(int r, int c) {
+        ChunkedGrid.checkCell(r, c, rows, cols);
+        return (r >> SHIFT) * chunkCols + (c >> SHIFT);
+    }
+
+    /**
+     * @param r fila
+     * @param c columna
+     * @return índice de la casilla dentro de su región
+     */
+    private static int cell(int r, int c) {
+        return ((r & MASK) << SHIFT) | (c & MASK);
+    }
+}
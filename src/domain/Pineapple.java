@@ -6,6 +6,7 @@ package domain;
  */
 public class Pineapple extends Fruit {
 
+    private static final double SPEED = 6.7;
     private GameMap map;
 
     /**
@@ -30,6 +31,7 @@ public class Pineapple extends Fruit {
      * Asigna el mapa del juego a la fruta.
      * @param map mapa actual del juego
      */
+    @Override
     public void setGameMap(GameMap map) {
         this.map = map;
     }
@@ -44,6 +46,15 @@ public class Pineapple extends Fruit {
         update();
     }
 
+    /**
+     * @param timers rueda de la partida
+     * @return ticks entre intentos de movimiento según su velocidad en casillas por segundo
+     */
+    @Override
+    public int timerPeriod(TimingWheel timers) {
+        return timers.ticksPerStep(SPEED);
+    }
+
     /**
      * Ejecuta el comportamiento de movimiento de la fruta.
      */
@@ -52,7 +63,7 @@ public class Pineapple extends Fruit {
         if (!active || frozen || isEaten() || map == null) return;
 
         Direction[] dirs = Direction.values();
-        Direction dir = dirs[(int) (Math.random() * dirs.length)];
+        Direction dir = dirs[map.getRandom().nextInt(dirs.length)];
 
         move(dir);
     }
@@ -0,0 +1,48 @@
+package domain;
+
+/**
+ * Acciones que un jugador puede enviar a la partida. Se transmiten por la red
+ * como un solo byte con su ordinal, así que el orden de las constantes es parte del protocolo.
+ */
+public enum PlayerAction {
+    up,
+    down,
+    left,
+    right,
+    freeze,
+    breakIce;
+
+    private static final PlayerAction[] VALUES = values();
+
+    /**
+     * Aplica la acción sobre un jugador de la partida.
+     * @param game partida
+     * @param player índice del jugador
+     */
+    public void apply(BadIceCream game, int player) {
+        switch (this) {
+            case up -> game.movePlayer(player, Direction.UP);
+            case down -> game.movePlayer(player, Direction.DOWN);
+            case left -> game.movePlayer(player, Direction.LEFT);
+            case right -> game.movePlayer(player, Direction.RIGHT);
+            case freeze -> game.playerCreateIce(player);
+            case breakIce -> game.playerDestroyIce(player);
+        }
+    }
+
+    /**
+     * @return true si la acción mueve al jugador
+     */
+    public boolean isMove() {
+        return this == up || this == down || this == left || this == right;
+    }
+
+    /**
+     * Obtiene la acción correspondiente a un código recibido.
+     * @param code ordinal de la acción
+     * @return acción o null si el código no es válido
+     */
+    public static PlayerAction fromCode(int code) {
+        return code >= 0 && code < VALUES.length ? VALUES[code] : null;
+    }
+}
@@ -0,0 +1,77 @@
+package domain;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Cola circular acotada sin bloqueos para varios productores y un único consumidor.
+ * Los productores nunca esperan: si la cola está llena, {@link #offer(Object)} devuelve false
+ * y el elemento se descarta.
+ * @param <T> tipo de los elementos almacenados
+ */
+public final class RingBuffer<T> {
+
+    private final AtomicReferenceArray<T> slots;
+    private final int mask;
+    private final AtomicLong tail;
+    private volatile long head;
+
+    /**
+     * Crea una cola circular con capacidad redondeada a la siguiente potencia de dos.
+     * @param capacity capacidad mínima deseada
+     */
+    public RingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.tail = new AtomicLong();
+        this.head = 0;
+    }
+
+    /**
+     * Intenta encolar un elemento sin bloquear al productor.
+     * @param value elemento a encolar (no nulo)
+     * @return true si fue encolado, false si la cola estaba llena
+     */
+    public boolean offer(T value) {
+        long t;
+        do {
+            t = tail.get();
+            if (t - head > mask) return false;
+        } while (!tail.compareAndSet(t, t + 1));
+
+        slots.set((int) (t & mask), value);
+        return true;
+    }
+
+    /**
+     * Extrae el siguiente elemento. Solo debe llamarse desde el hilo consumidor.
+     * @return elemento extraído o null si la cola está vacía
+     */
+    public T poll() {
+        long h = head;
+        int i = (int) (h & mask);
+        T value = slots.get(i);
+        if (value == null) return null;
+
+        slots.set(i, null);
+        head = h + 1;
+        return value;
+    }
+
+    /**
+     * Indica si no hay elementos pendientes.
+     * @return true si la cola está vacía
+     */
+    public boolean isEmpty() {
+        return tail.get() == head;
+    }
+
+    /**
+     * Obtiene la capacidad real de la cola.
+     * @return número máximo de elementos
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+}
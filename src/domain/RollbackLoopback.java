@@ -0,0 +1,161 @@
+package domain;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Prueba de {@link RollbackSession} sin red: dos pares en el mismo proceso se pasan las
+ * acciones por una cola con retraso artificial y, a la mitad, un corte en el que las acciones
+ * hacia el segundo par se retienen más ticks que la reversión máxima, así que ese par debe
+ * frenar y reanudar al llegar las acciones. Al final ambos pares deben tener el mismo estado
+ * que una partida de referencia que recibe todas las acciones a tiempo.
+ */
+public final class RollbackLoopback {
+
+    private static final int INPUT_TICKS = 1500;
+    private static final int TAIL_TICKS = 200;
+
+    private final int level;
+    private final long seed;
+    private final int maxRollback;
+    private final int maxDelay;
+    private final int hiccup;
+
+    private final List<long[]> wire = new ArrayList<>();
+    private long step;
+
+    /**
+     * @param level nivel a jugar
+     * @param seed semilla de la partida y de la red simulada
+     * @param maxRollback reversión máxima de las sesiones
+     * @param maxDelay retraso máximo de una acción, en pasos
+     * @param hiccup duración del corte hacia el segundo par, en pasos
+     */
+    public RollbackLoopback(int level, long seed, int maxRollback, int maxDelay, int hiccup) {
+        this.level = level;
+        this.seed = seed;
+        this.maxRollback = maxRollback;
+        this.maxDelay = maxDelay;
+        this.hiccup = hiccup;
+    }
+
+    /**
+     * @return configuración común a los pares y la referencia
+     */
+    private GameConfig config() {
+        GameConfig cfg = new GameConfig("PlayerVSPlayer", "Vanilla", "Chocolate", 1,
+                GameConfig.parseCounts("Banana:6,Cherry:3,Pineapple:2,Cactus:2"),
+                GameConfig.parseCounts("Troll:1,YellowSquid:1"),
+                GameConfig.parseCounts("Bonfire:2"));
+        cfg.setSeed(seed);
+        return cfg;
+    }
+
+    /**
+     * Juega la partida en los dos pares y en la referencia.
+     * @return true si los tres terminan en el mismo estado
+     */
+    public boolean run() {
+        GameConfig cfg = config();
+        BadIceCream[] games = {LevelLoader.loadLevel(level, cfg), LevelLoader.loadLevel(level, cfg)};
+        int frames = INPUT_TICKS + TAIL_TICKS;
+        int[][] sent = new int[2][frames + maxRollback + 1];
+        Random net = new Random(seed);
+        long cutFrom = INPUT_TICKS / 2;
+        long cutTo = cutFrom + hiccup;
+
+        RollbackSession[] peers = new RollbackSession[2];
+        for (int i = 0; i < 2; i++) {
+            int me = i;
+            peers[i] = new RollbackSession(games[i], i, maxRollback, (tick, code) -> {
+                sent[me][(int) tick] = code;
+                long at = step + 1 + net.nextInt(maxDelay);
+                if (me == 0 && step >= cutFrom && step < cutTo) at = Math.max(at, cutTo);
+                wire.add(new long[]{at, 1 - me, tick, code});
+            });
+        }
+
+        Random input = new Random(seed + 1);
+        while (peers[0].getFrame() < frames || peers[1].getFrame() < frames) {
+            step++;
+            deliver(peers);
+            for (int i = 0; i < 2; i++) {
+                if (peers[i].getFrame() >= frames) continue;
+                if (peers[i].getFrame() < INPUT_TICKS && input.nextInt(5) == 0) {
+                    peers[i].localInput(PlayerAction.values()[input.nextInt(PlayerAction.values().length)]);
+                }
+                peers[i].advance();
+            }
+        }
+
+        BadIceCream ref = LevelLoader.loadLevel(level, cfg);
+        for (int t = 0; t < frames; t++) {
+            for (int p = 0; p < 2; p++) {
+                PlayerAction a = PlayerAction.fromCode(sent[p][t]);
+                if (a != null) a.apply(ref, p);
+            }
+            ref.updateGame();
+        }
+
+        boolean same = true;
+        for (int i = 0; i < 2; i++) {
+            RollbackSession s = peers[i];
+            boolean match = games[i].getZobrist() == ref.getZobrist()
+                    && games[i].getElapsedTicks() == ref.getElapsedTicks();
+            same &= match;
+            System.out.printf("par%d igual=%b reversiones=%d resimulados=%d maxResimulados=%d esperas=%d%n",
+                    i, match, s.getRollbacks(), s.getResimulatedTicks(), s.getMaxResimulated(), s.getStalls());
+        }
+        return same;
+    }
+
+    /**
+     * Entrega a cada par las acciones remotas cuyo retraso ya se cumplió.
+     * @param peers sesiones de los pares
+     */
+    private void deliver(RollbackSession[] peers) {
+        for (Iterator<long[]> it = wire.iterator(); it.hasNext(); ) {
+            long[] m = it.next();
+            if (m[0] > step) continue;
+            int to = (int) m[1];
+            peers[to].remoteInput(1 - to, m[2], (int) m[3]);
+            it.remove();
+        }
+    }
+
+    /**
+     * Ejecuta la prueba. Opciones: {@code --level}, {@code --seed}, {@code --max-rollback},
+     * {@code --max-delay} y {@code --hiccup}; por defecto el corte dura el triple de la
+     * reversión máxima. Termina con código 1 si algún par difiere de la referencia.
+     * @param args opciones en pares nombre valor
+     */
+    public static void main(String[] args) {
+        int level = 1;
+        long seed = 7;
+        int maxRollback = RollbackSession.DEFAULT_MAX_ROLLBACK;
+        int maxDelay = 8;
+        int hiccup = -1;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String v = args[i + 1];
+            switch (args[i]) {
+                case "--level" -> level = Integer.parseInt(v);
+                case "--seed" -> seed = Long.parseLong(v);
+                case "--max-rollback" -> maxRollback = Integer.parseInt(v);
+                case "--max-delay" -> maxDelay = Integer.parseInt(v);
+                case "--hiccup" -> hiccup = Integer.parseInt(v);
+                default -> {
+                    System.err.println("Opción desconocida: " + args[i]);
+                    return;
+                }
+            }
+        }
+        if (hiccup < 0) hiccup = 3 * maxRollback;
+
+        boolean same = new RollbackLoopback(level, seed, maxRollback, maxDelay, hiccup).run();
+        System.out.println(same ? "Los pares coinciden con la referencia" : "Los pares difieren de la referencia");
+        if (!same) System.exit(1);
+    }
+}
@@ -0,0 +1,313 @@
+package domain;
+
+import java.util.Arrays;
+
+/**
+ * Sesión de partida en red con reversión. Cada par simula su copia de la partida sin esperar
+ * las acciones remotas: las predice, y cuando llega una acción remota distinta de la predicha
+ * vuelve a la instantánea del tick en que debió aplicarse y resimula hasta el tick actual.
+ * Esto exige que {@link BadIceCream#updateGame()} sea determinista: ambas copias deben
+ * crearse con la misma semilla y recibir las mismas acciones en los mismos ticks.
+ * <p>
+ * La sesión no conoce el transporte: las acciones locales salen por un {@link InputSink}
+ * y las remotas se entregan con {@link #remoteInput(int, long, int)}.
+ */
+public final class RollbackSession {
+
+    /** Código de tick sin acción. */
+    public static final int NO_ACTION = -1;
+
+    /** Reversión máxima por defecto, en ticks. */
+    public static final int DEFAULT_MAX_ROLLBACK = 10;
+
+    private static final int LOCAL_QUEUE = 8;
+
+    /**
+     * Destino de las acciones locales confirmadas, una por tick.
+     */
+    @FunctionalInterface
+    public interface InputSink {
+        /**
+         * Envía a los demás pares la acción local de un tick.
+         * @param tick tick de la sesión
+         * @param code ordinal de la acción o {@link #NO_ACTION}
+         */
+        void send(long tick, int code);
+    }
+
+    private final BadIceCream game;
+    private final int localPlayer;
+    private final int players;
+    private final int maxRollback;
+    private final InputSink sink;
+
+    private final GameSnapshot[] snapshots;
+    private final int[] inputs;
+    private final long[] inputTicks;
+    private final long[] confirmedUpTo;
+
+    private final int[] localQueue = new int[LOCAL_QUEUE];
+    private int localHead;
+    private int localSize;
+
+    private long frame;
+    private long rollbackFrom = Long.MAX_VALUE;
+
+    private long rollbacks;
+    private long resimulatedTicks;
+    private int maxResimulated;
+    private long lastRollbackNanos;
+    private long maxRollbackNanos;
+    private long stalls;
+
+    /**
+     * Crea una sesión sobre una partida ya inicializada, con la reversión máxima por defecto.
+     * @param game partida local, creada con la misma semilla que la de los demás pares
+     * @param localPlayer índice del jugador controlado en este par
+     * @param sink destino de las acciones locales
+     */
+    public RollbackSession(BadIceCream game, int localPlayer, InputSink sink) {
+        this(game, localPlayer, DEFAULT_MAX_ROLLBACK, sink);
+    }
+
+    /**
+     * Crea una sesión sobre una partida ya inicializada.
+     * @param game partida local, creada con la misma semilla que la de los demás pares
+     * @param localPlayer índice del jugador controlado en este par
+     * @param maxRollback ticks que la simulación local puede adelantarse a las acciones remotas
+     * @param sink destino de las acciones locales
+     */
+    public RollbackSession(BadIceCream game, int localPlayer, int maxRollback, InputSink sink) {
+        if (game == null || sink == null) throw new IllegalArgumentException("Partida o destino nulos");
+        this.players = game.getPlayers().size();
+        if (localPlayer < 0 || localPlayer >= players) {
+            throw new IllegalArgumentException("Jugador local inválido: " + localPlayer);
+        }
+        if (maxRollback < 1) throw new IllegalArgumentException("Reversión máxima inválida: " + maxRollback);
+
+        this.game = game;
+        this.localPlayer = localPlayer;
+        this.maxRollback = maxRollback;
+        this.sink = sink;
+
+        this.snapshots = new GameSnapshot[maxRollback + 1];
+        for (int i = 0; i < snapshots.length; i++) snapshots[i] = new GameSnapshot();
+
+        // las acciones remotas pueden llegar hasta maxRollback ticks adelantadas o atrasadas
+        int slots = 2 * (maxRollback + 1);
+        this.inputs = new int[slots * players];
+        this.inputTicks = new long[slots * players];
+        Arrays.fill(inputTicks, -1);
+        this.confirmedUpTo = new long[players];
+    }
+
+    /**
+     * Encola una acción del jugador local. Cada tick consume a lo sumo una acción, así que
+     * dos pulsaciones en el mismo cuadro se aplican en ticks consecutivos. Si la cola está
+     * llena la acción se descarta.
+     * @param action acción local
+     * @return true si la acción quedó encolada
+     */
+    public boolean localInput(PlayerAction action) {
+        if (action == null || localSize == LOCAL_QUEUE) return false;
+        localQueue[(localHead + localSize) % LOCAL_QUEUE] = action.ordinal();
+        localSize++;
+        return true;
+    }
+
+    /**
+     * Registra la acción de un jugador remoto en un tick. Si ese tick ya se simuló con una
+     * predicción distinta, el próximo {@link #advance()} revierte hasta él.
+     * @param player índice del jugador remoto
+     * @param tick tick de la sesión
+     * @param code ordinal de la acción o {@link #NO_ACTION}
+     */
+    public void remoteInput(int player, long tick, int code) {
+        if (player < 0 || player >= players || player == localPlayer) {
+            throw new IllegalArgumentException("Jugador remoto inválido: " + player);
+        }
+        if (code != NO_ACTION && PlayerAction.fromCode(code) == null) {
+            throw new IllegalArgumentException("Acción inválida: " + code);
+        }
+        if (tick < confirmedUpTo[player]) return;
+        // el tick más viejo que puede faltar es el que frena a advance(), frame - maxRollback - 1,
+        // y su instantánea sigue en el anillo
+        if (tick > frame + maxRollback || tick < frame - snapshots.length) {
+            throw new IllegalStateException("Acción fuera de la ventana de reversión: tick " + tick);
+        }
+
+        int idx = slot(tick, player);
+        if (inputTicks[idx] == tick) return;
+        inputs[idx] = code;
+        inputTicks[idx] = tick;
+        if (tick < frame && code != predict()) rollbackFrom = Math.min(rollbackFrom, tick);
+
+        while (inputTicks[slot(confirmedUpTo[player], player)] == confirmedUpTo[player]) {
+            confirmedUpTo[player]++;
+        }
+    }
+
+    /**
+     * Simula un tick. Antes, si llegaron acciones remotas que contradicen lo predicho, restaura
+     * la instantánea del primer tick equivocado y resimula hasta el tick actual. Si la
+     * simulación local ya va más de {@code maxRollback} ticks por delante de algún jugador remoto,
+     * espera sin simular para no perder la instantánea a la que habría que volver.
+     * @return true si se simuló el tick, false si la sesión está esperando acciones remotas
+     */
+    public boolean advance() {
+        if (rollbackFrom < frame) rollback();
+
+        if (frame - oldestConfirmed() > maxRollback) {
+            stalls++;
+            return false;
+        }
+
+        int code = NO_ACTION;
+        if (localSize > 0) {
+            code = localQueue[localHead];
+            localHead = (localHead + 1) % LOCAL_QUEUE;
+            localSize--;
+        }
+        int idx = slot(frame, localPlayer);
+        inputs[idx] = code;
+        inputTicks[idx] = frame;
+        confirmedUpTo[localPlayer] = frame + 1;
+        sink.send(frame, code);
+
+        game.saveState(snapshots[(int) (frame % snapshots.length)]);
+        step(frame);
+        frame++;
+        return true;
+    }
+
+    /**
+     * Vuelve al primer tick mal predicho y resimula hasta el tick actual, guardando de nuevo
+     * las instantáneas intermedias.
+     */
+    private void rollback() {
+        long start = System.nanoTime();
+        long from = rollbackFrom;
+        rollbackFrom = Long.MAX_VALUE;
+
+        game.loadState(snapshots[(int) (from % snapshots.length)]);
+        for (long t = from; t < frame; t++) {
+            if (t != from) game.saveState(snapshots[(int) (t % snapshots.length)]);
+            step(t);
+        }
+
+        int count = (int) (frame - from);
+        long elapsed = System.nanoTime() - start;
+        rollbacks++;
+        resimulatedTicks += count;
+        maxResimulated = Math.max(maxResimulated, count);
+        lastRollbackNanos = elapsed;
+        maxRollbackNanos = Math.max(maxRollbackNanos, elapsed);
+    }
+
+    /**
+     * Aplica las acciones de un tick en orden de jugador y avanza la partida.
+     * @param tick tick de la sesión
+     */
+    private void step(long tick) {
+        for (int p = 0; p < players; p++) {
+            int idx = slot(tick, p);
+            int code = inputTicks[idx] == tick ? inputs[idx] : predict();
+            PlayerAction action = PlayerAction.fromCode(code);
+            if (action != null) action.apply(game, p);
+        }
+        game.updateGame();
+    }
+
+    /**
+     * Predicción de la acción de un jugador remoto cuya acción aún no llega. Las acciones son
+     * pulsaciones sueltas y la mayoría de los ticks no tiene ninguna, así que se predice que
+     * no hace nada.
+     * @return código predicho
+     */
+    private int predict() {
+        return NO_ACTION;
+    }
+
+    /**
+     * @return primer tick cuya acción aún falta de algún jugador
+     */
+    private long oldestConfirmed() {
+        long min = Long.MAX_VALUE;
+        for (int p = 0; p < players; p++) {
+            if (p != localPlayer) min = Math.min(min, confirmedUpTo[p]);
+        }
+        return min == Long.MAX_VALUE ? frame : min;
+    }
+
+    /**
+     * @param tick tick de la sesión
+     * @param player índice del jugador
+     * @return posición de la acción en el historial circular
+     */
+    private int slot(long tick, int player) {
+        return (int) (tick % (inputs.length / players)) * players + player;
+    }
+
+    /**
+     * @return partida simulada por la sesión
+     */
+    public BadIceCream getGame() {
+        return game;
+    }
+
+    /**
+     * @return próximo tick a simular
+     */
+    public long getFrame() {
+        return frame;
+    }
+
+    /**
+     * @return primer tick cuya acción aún falta de algún jugador remoto
+     */
+    public long getConfirmedFrame() {
+        return oldestConfirmed();
+    }
+
+    /**
+     * @return reversiones realizadas
+     */
+    public long getRollbacks() {
+        return rollbacks;
+    }
+
+    /**
+     * @return ticks resimulados en total
+     */
+    public long getResimulatedTicks() {
+        return resimulatedTicks;
+    }
+
+    /**
+     * @return mayor cantidad de ticks resimulados en una sola reversión
+     */
+    public int getMaxResimulated() {
+        return maxResimulated;
+    }
+
+    /**
+     * @return duración de la última reversión en nanosegundos
+     */
+    public long getLastRollbackNanos() {
+        return lastRollbackNanos;
+    }
+
+    /**
+     * @return duración de la reversión más lenta en nanosegundos
+     */
+    public long getMaxRollbackNanos() {
+        return maxRollbackNanos;
+    }
+
+    /**
+     * @return llamadas a {@link #advance()} que esperaron acciones remotas
+     */
+    public long getStalls() {
+        return stalls;
+    }
+}
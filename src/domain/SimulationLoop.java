@@ -0,0 +1,87 @@
+package domain;
+
+/**
+ * Bucle de paso fijo que desacopla la simulación del ritmo de dibujo. Acumula el tiempo real
+ * transcurrido y ejecuta tantos ticks de la partida como quepan en él, a la frecuencia lógica
+ * de su rueda de temporización. Si el equipo se atrasa, recupera a lo sumo
+ * {@value #MAX_CATCH_UP} ticks por avance y descarta el resto para no entrar en espiral.
+ * Si tiene una cola de acciones, la vacía al inicio de cada tick, antes de avanzar la partida.
+ */
+public final class SimulationLoop {
+
+    private static final int MAX_CATCH_UP = 5;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final BadIceCream game;
+    private final long stepNanos;
+    private long accumulator;
+    private Runnable afterTick;
+    private InputQueue inputs;
+
+    /**
+     * Crea el bucle de una partida a su frecuencia de simulación.
+     * @param game partida a simular
+     */
+    public SimulationLoop(BadIceCream game) {
+        this.game = game;
+        this.stepNanos = NANOS_PER_SECOND / game.getTickRate();
+    }
+
+    /**
+     * Acumula tiempo real y ejecuta los ticks que correspondan.
+     * @param elapsedNanos nanosegundos transcurridos desde el avance anterior
+     * @return cantidad de ticks ejecutados
+     */
+    public int advance(long elapsedNanos) {
+        accumulator += Math.max(0, elapsedNanos);
+
+        int steps = 0;
+        while (accumulator >= stepNanos && steps < MAX_CATCH_UP) {
+            if (inputs != null) inputs.drainTo(game);
+            game.updateGame();
+            if (afterTick != null) afterTick.run();
+            accumulator -= stepNanos;
+            steps++;
+        }
+        if (accumulator >= stepNanos) accumulator %= stepNanos;
+        return steps;
+    }
+
+    /**
+     * Asigna la cola de acciones de jugadores que se aplica al inicio de cada tick.
+     * @param inputs cola o null para ninguna
+     */
+    public void setInputQueue(InputQueue inputs) {
+        this.inputs = inputs;
+    }
+
+    /**
+     * Registra una acción a ejecutar después de cada tick, por ejemplo para difundirlo.
+     * @param afterTick acción o null para ninguna
+     */
+    public void setAfterTick(Runnable afterTick) {
+        this.afterTick = afterTick;
+    }
+
+    /**
+     * Obtiene la fracción del siguiente tick ya transcurrida, útil para interpolar el dibujo.
+     * @return valor entre 0 (inclusive) y 1 (exclusive)
+     */
+    public double alpha() {
+        return (double) accumulator / stepNanos;
+    }
+
+    /**
+     * Descarta el tiempo acumulado, por ejemplo al reanudar tras una pausa.
+     */
+    public void reset() {
+        accumulator = 0;
+    }
+
+    /**
+     * @return ticks de simulación por segundo
+     */
+    public int getTickRate() {
+        return game.getTickRate();
+    }
+}
@@ -0,0 +1,353 @@
+package domain;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * Índice espacial de cubetas uniformes de 4x4 casillas sobre una capa de entidades del mapa.
+ * El mapa lo mantiene al mismo tiempo que la capa, así que siempre contiene exactamente las
+ * entidades que están en ella. Las consultas por radio recorren solo las cubetas que tocan
+ * el rombo buscado, y las consultas por cercanía abren anillos de cubetas alrededor del
+ * origen hasta que ninguna entidad sin visitar puede estar más cerca que las ya entregadas.
+ * <p>
+ * Los resultados se ordenan como los daría recorrer la lista de la partida: por distancia
+ * y, a igual distancia, por el orden de la entidad en esa lista.
+ * @param <T> tipo de entidad indexada
+ */
+public final class SpatialIndex<T> {
+
+    static final int SHIFT = 2;
+    private static final int COL_BITS = 16;
+    private static final int COL_MASK = (1 << COL_BITS) - 1;
+    private static final int INITIAL_BUCKET = 2;
+
+    /**
+     * Visitante de entidades en orden de cercanía.
+     * @param <T> tipo de entidad
+     */
+    @FunctionalInterface
+    public interface DistanceVisitor<T> {
+        /**
+         * Procesa una entidad.
+         * @param item entidad
+         * @param dist distancia Manhattan al origen de la consulta
+         * @return false para terminar la consulta
+         */
+        boolean visit(T item, int dist);
+    }
+
+    private final int rows;
+    private final int cols;
+    private final int bucketRows;
+    private final int bucketCols;
+    private final ToIntFunction<? super T> order;
+
+    private final Object[][] items;
+    private final int[][] cells;
+    private final int[] sizes;
+    private int size;
+
+    /**
+     * Crea un índice vacío.
+     * @param rows filas del mapa
+     * @param cols columnas del mapa
+     * @param order orden de cada entidad en la lista de la partida, para desempatar
+     */
+    public SpatialIndex(int rows, int cols, ToIntFunction<? super T> order) {
+        this.rows = rows;
+        this.cols = cols;
+        this.bucketRows = (rows + (1 << SHIFT) - 1) >> SHIFT;
+        this.bucketCols = (cols + (1 << SHIFT) - 1) >> SHIFT;
+        this.order = order;
+        int buckets = bucketRows * bucketCols;
+        this.items = new Object[buckets][];
+        this.cells = new int[buckets][];
+        this.sizes = new int[buckets];
+    }
+
+    /**
+     * Agrega una entidad en una casilla.
+     * @param r fila
+     * @param c columna
+     * @param item entidad
+     */
+    public void add(int r, int c, T item) {
+        int b = bucket(r, c);
+        Object[] bucket = items[b];
+        int n = sizes[b];
+        if (bucket == null) {
+            items[b] = bucket = new Object[INITIAL_BUCKET];
+            cells[b] = new int[INITIAL_BUCKET];
+        } else if (n == bucket.length) {
+            items[b] = bucket = Arrays.copyOf(bucket, n * 2);
+            cells[b] = Arrays.copyOf(cells[b], n * 2);
+        }
+        bucket[n] = item;
+        cells[b][n] = r << COL_BITS | c;
+        sizes[b] = n + 1;
+        size++;
+    }
+
+    /**
+     * Quita una entidad de una casilla. No hace nada si no estaba ahí.
+     * @param r fila
+     * @param c columna
+     * @param item entidad
+     */
+    public void remove(int r, int c, T item) {
+        int b = bucket(r, c);
+        Object[] bucket = items[b];
+        int cell = r << COL_BITS | c;
+        for (int i = sizes[b] - 1; i >= 0; i--) {
+            if (bucket[i] == item && cells[b][i] == cell) {
+                int last = --sizes[b];
+                bucket[i] = bucket[last];
+                cells[b][i] = cells[b][last];
+                bucket[last] = null;
+                size--;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Vacía el índice conservando la memoria de las cubetas.
+     */
+    public void clear() {
+        for (int b = 0; b < items.length; b++) {
+            if (sizes[b] > 0) Arrays.fill(items[b], 0, sizes[b], null);
+            sizes[b] = 0;
+        }
+        size = 0;
+    }
+
+    /**
+     * @return entidades indexadas
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Obtiene las entidades a distancia Manhattan menor o igual a un radio.
+     * @param r fila del origen
+     * @param c columna del origen
+     * @param radius radio
+     * @return entidades en el orden de la partida
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> within(int r, int c, int radius) {
+        List<T> out = null;
+        if (size == 0 || radius < 0) return Collections.emptyList();
+
+        int b0 = Math.max(0, r - radius) >> SHIFT;
+        int b1 = Math.min(rows - 1, r + radius) >> SHIFT;
+        int c0 = Math.max(0, c - radius) >> SHIFT;
+        int c1 = Math.min(cols - 1, c + radius) >> SHIFT;
+        for (int br = b0; br <= b1; br++) {
+            for (int bc = c0; bc <= c1; bc++) {
+                int b = br * bucketCols + bc;
+                for (int i = 0; i < sizes[b]; i++) {
+                    int cell = cells[b][i];
+                    if (Math.abs((cell >>> COL_BITS) - r) + Math.abs((cell & COL_MASK) - c) <= radius) {
+                        if (out == null) out = new ArrayList<>(4);
+                        out.add((T) items[b][i]);
+                    }
+                }
+            }
+        }
+        if (out == null) return Collections.emptyList();
+        if (out.size() > 1) out.sort((x, y) -> Integer.compare(order.applyAsInt(x), order.applyAsInt(y)));
+        return out;
+    }
+
+    /**
+     * Obtiene la entidad más cercana.
+     * @param r fila del origen
+     * @param c columna del origen
+     * @return entidad más cercana o null si el índice está vacío
+     */
+    @SuppressWarnings("unchecked")
+    public T nearest(int r, int c) {
+        if (size == 0) return null;
+        int br = r >> SHIFT;
+        int bc = c >> SHIFT;
+        int rings = Math.max(Math.max(br, bucketRows - 1 - br), Math.max(bc, bucketCols - 1 - bc));
+
+        T best = null;
+        long bestKey = Long.MAX_VALUE;
+        for (int ring = 0; ring <= rings; ring++) {
+            int top = br - ring;
+            int bottom = br + ring;
+            int left = bc - ring;
+            int right = bc + ring;
+            for (int y = Math.max(0, top); y <= Math.min(bucketRows - 1, bottom); y++) {
+                boolean edge = y == top || y == bottom;
+                int step = edge ? 1 : right - left;
+                for (int x = edge ? Math.max(0, left) : left; x <= Math.min(bucketCols - 1, right); x += step) {
+                    if (x < 0) continue;
+                    int b = y * bucketCols + x;
+                    for (int i = 0; i < sizes[b]; i++) {
+                        long key = key(cells[b][i], r, c, (T) items[b][i]);
+                        if (key < bestKey) {
+                            bestKey = key;
+                            best = (T) items[b][i];
+                        }
+                    }
+                }
+            }
+            if (best != null && (bestKey >>> 32) < bound(r, c, top, bottom, left, right)) break;
+        }
+        return best;
+    }
+
+    /**
+     * Obtiene las k entidades más cercanas.
+     * @param r fila del origen
+     * @param c columna del origen
+     * @param k cantidad buscada
+     * @return hasta k entidades, de la más cercana a la más lejana
+     */
+    public List<T> nearest(int r, int c, int k) {
+        List<T> out = new ArrayList<>(Math.max(0, Math.min(k, size)));
+        if (k > 0) {
+            visitByDistance(r, c, (item, dist) -> {
+                out.add(item);
+                return out.size() < k;
+            });
+        }
+        return out;
+    }
+
+    /**
+     * Recorre las entidades de un rectángulo de casillas, visitando solo las cubetas que lo
+     * cortan. El orden es el de las cubetas, no el de la lista de la partida.
+     * @param r0 primera fila
+     * @param c0 primera columna
+     * @param r1 fila siguiente a la última
+     * @param c1 columna siguiente a la última
+     * @param visitor acción a aplicar sobre cada entidad con su casilla
+     */
+    @SuppressWarnings("unchecked")
+    public void visitRect(int r0, int c0, int r1, int c1, ChunkedGrid.CellVisitor<? super T> visitor) {
+        r0 = Math.max(0, r0);
+        c0 = Math.max(0, c0);
+        r1 = Math.min(rows, r1);
+        c1 = Math.min(cols, c1);
+        if (size == 0 || r0 >= r1 || c0 >= c1) return;
+
+        for (int br = r0 >> SHIFT; br <= (r1 - 1) >> SHIFT; br++) {
+            for (int bc = c0 >> SHIFT; bc <= (c1 - 1) >> SHIFT; bc++) {
+                int b = br * bucketCols + bc;
+                for (int i = 0; i < sizes[b]; i++) {
+                    int row = cells[b][i] >>> COL_BITS;
+                    int col = cells[b][i] & COL_MASK;
+                    if (row >= r0 && row < r1 && col >= c0 && col < c1) visitor.visit(row, col, (T) items[b][i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Recorre las entidades de la más cercana a la más lejana hasta que el visitante pida
+     * terminar. El costo depende de cuántas entidades se visitan, no del total indexado.
+     * @param r fila del origen
+     * @param c columna del origen
+     * @param visitor visitante
+     */
+    @SuppressWarnings("unchecked")
+    public void visitByDistance(int r, int c, DistanceVisitor<? super T> visitor) {
+        if (size == 0) return;
+        int br = r >> SHIFT;
+        int bc = c >> SHIFT;
+        int rings = Math.max(Math.max(br, bucketRows - 1 - br), Math.max(bc, bucketCols - 1 - bc));
+
+        long[] keys = new long[8];
+        Object[] pending = new Object[8];
+        int count = 0;
+        int head = 0;
+        int seen = 0;
+
+        for (int ring = 0; ring <= rings && seen < size; ring++) {
+            int top = br - ring;
+            int bottom = br + ring;
+            int left = bc - ring;
+            int right = bc + ring;
+            for (int y = Math.max(0, top); y <= Math.min(bucketRows - 1, bottom); y++) {
+                boolean edge = y == top || y == bottom;
+                int step = edge ? 1 : right - left;
+                for (int x = edge ? Math.max(0, left) : left; x <= Math.min(bucketCols - 1, right); x += step) {
+                    if (x < 0) continue;
+                    int b = y * bucketCols + x;
+                    for (int i = 0; i < sizes[b]; i++) {
+                        long key = key(cells[b][i], r, c, (T) items[b][i]);
+                        if (count == keys.length) {
+                            keys = Arrays.copyOf(keys, count * 2);
+                            pending = Arrays.copyOf(pending, count * 2);
+                        }
+                        // inserción ordenada: las entidades pendientes suelen ser pocas
+                        int j = count++;
+                        while (j > head && keys[j - 1] > key) {
+                            keys[j] = keys[j - 1];
+                            pending[j] = pending[j - 1];
+                            j--;
+                        }
+                        keys[j] = key;
+                        pending[j] = items[b][i];
+                        seen++;
+                    }
+                }
+            }
+
+            int bound = seen == size ? Integer.MAX_VALUE : bound(r, c, top, bottom, left, right);
+
+            while (head < count && (keys[head] >>> 32) < bound) {
+                if (!visitor.visit((T) pending[head], (int) (keys[head] >>> 32))) return;
+                head++;
+            }
+        }
+    }
+
+    /**
+     * Calcula la menor distancia posible a una entidad fuera de un bloque de cubetas.
+     * @param r fila del origen
+     * @param c columna del origen
+     * @param top primera fila de cubetas del bloque
+     * @param bottom última fila de cubetas del bloque
+     * @param left primera columna de cubetas del bloque
+     * @param right última columna de cubetas del bloque
+     * @return cota inferior de la distancia, {@link Integer#MAX_VALUE} si el bloque cubre el mapa
+     */
+    private int bound(int r, int c, int top, int bottom, int left, int right) {
+        int bound = Integer.MAX_VALUE;
+        if (top > 0) bound = Math.min(bound, r - (top << SHIFT) + 1);
+        if (bottom < bucketRows - 1) bound = Math.min(bound, ((bottom + 1) << SHIFT) - r);
+        if (left > 0) bound = Math.min(bound, c - (left << SHIFT) + 1);
+        if (right < bucketCols - 1) bound = Math.min(bound, ((right + 1) << SHIFT) - c);
+        return bound;
+    }
+
+    /**
+     * @param cell casilla empaquetada de la entidad
+     * @param r fila del origen
+     * @param c columna del origen
+     * @param item entidad
+     * @return clave de orden: distancia en la parte alta y orden en la lista en la baja
+     */
+    private long key(int cell, int r, int c, T item) {
+        int dist = Math.abs((cell >>> COL_BITS) - r) + Math.abs((cell & COL_MASK) - c);
+        return (long) dist << 32 | (order.applyAsInt(item) & 0xffffffffL);
+    }
+
+    /**
+     * @param r fila
+     * @param c columna
+     * @return índice de la cubeta que contiene la casilla
+     */
+    private int bucket(int r, int c) {
+        return (r >> SHIFT) * bucketCols + (c >> SHIFT);
+    }
+}
@@ -0,0 +1,345 @@
+package domain;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Difusión de una partida local a espectadores. La partida la simula otro hilo (por ejemplo,
+ * la interfaz en una partida máquina contra máquina), que llama a {@link #publish()} después
+ * de cada tick: el estado se codifica una sola vez y la misma trama se reparte a todos los
+ * espectadores, cada uno con su propia posición de escritura sobre los mismos bytes.
+ * Cada {@code keyframeInterval} ticks se envía un fotograma clave en lugar del delta.
+ * Un espectador que se conecta recibe el saludo, el último fotograma clave y los deltas
+ * siguientes, así que ve la partida de inmediato. Un espectador lento cuya cola supera el
+ * límite de {@link ClientConnection} pierde sus tramas pendientes y deja de recibir deltas
+ * hasta el próximo fotograma clave.
+ */
+public final class SpectatorServer extends FrameServer<SpectatorServer.Viewer> {
+
+    /** Ticks entre fotogramas clave por defecto. */
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 40;
+
+    private static final Logger LOGGER = Logger.getLogger(SpectatorServer.class.getName());
+    private static final int VIEWER_LIMIT = 256 * 1024;
+    private static final int DISCARD_BYTES = 256;
+
+    /**
+     * Tipo de una trama publicada, para decidir a quién entregarla. No es el tipo que viaja
+     * en la cabecera: en el cable el saludo es {@link StateCodec#HELLO} y tanto los
+     * fotogramas clave como los deltas son {@link StateCodec#STATE}.
+     */
+    private enum FrameKind {
+        hello,
+        keyframe,
+        delta
+    }
+
+    /**
+     * Trama publicada, compartida por todos los espectadores.
+     */
+    private static final class Frame {
+        private final ByteBuffer data;
+        private final FrameKind kind;
+
+        /**
+         * @param data bytes de la trama, listos para leer
+         * @param kind saludo, fotograma clave o delta
+         */
+        private Frame(ByteBuffer data, FrameKind kind) {
+            this.data = data;
+            this.kind = kind;
+        }
+    }
+
+    /**
+     * Conexión de un espectador, que espera un fotograma clave mientras no tenga réplica.
+     */
+    static final class Viewer extends ClientConnection {
+        private boolean resyncing = true;
+
+        /**
+         * @param channel canal del espectador
+         * @param key registro en el selector
+         */
+        private Viewer(SocketChannel channel, SelectionKey key) {
+            super(channel, key, "espectador", VIEWER_LIMIT);
+        }
+    }
+
+    private final int keyframeInterval;
+    private final ConcurrentLinkedQueue<Frame> published = new ConcurrentLinkedQueue<>();
+    private final ByteBuffer discard = ByteBuffer.allocate(DISCARD_BYTES);
+
+    // estado del hilo de red
+    private final List<Frame> sinceKeyframe = new ArrayList<>();
+    private Frame hello;
+
+    // estado del hilo que simula
+    private StateCodec codec;
+    private int ticksSinceKeyframe;
+
+    private final LatencyHistogram encodeCost = new LatencyHistogram();
+    private final AtomicLong bytesPublished = new AtomicLong();
+    private final AtomicLong framesPublished = new AtomicLong();
+    private final AtomicLong framesSkipped = new AtomicLong();
+    private final AtomicLong resyncs = new AtomicLong();
+
+    /**
+     * Abre el puerto de difusión con el intervalo de fotogramas clave por defecto.
+     * @param bind dirección de escucha (puerto 0 para uno libre)
+     * @throws IOException si no se puede abrir el puerto
+     */
+    public SpectatorServer(InetSocketAddress bind) throws IOException {
+        this(bind, DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    /**
+     * Abre el puerto de difusión.
+     * @param bind dirección de escucha (puerto 0 para uno libre)
+     * @param keyframeInterval ticks entre fotogramas clave
+     * @throws IOException si no se puede abrir el puerto
+     */
+    public SpectatorServer(InetSocketAddress bind, int keyframeInterval) throws IOException {
+        super(checkInterval(bind, keyframeInterval), LOGGER);
+        this.keyframeInterval = keyframeInterval;
+    }
+
+    /**
+     * Comprueba, antes de abrir el puerto, el intervalo de fotogramas clave.
+     * @param bind dirección de escucha
+     * @param keyframeInterval ticks entre fotogramas clave
+     * @return la misma dirección de escucha
+     */
+    private static InetSocketAddress checkInterval(InetSocketAddress bind, int keyframeInterval) {
+        if (keyframeInterval < 1) {
+            throw new IllegalArgumentException("Intervalo de fotogramas clave inválido: " + keyframeInterval);
+        }
+        return bind;
+    }
+
+    /**
+     * Inicia el hilo de red de la difusión.
+     * @return hilo de red
+     */
+    public Thread start() {
+        return startThread("bad-ice-cream-spectators");
+    }
+
+    // ==================== HILO QUE SIMULA ====================
+
+    /**
+     * Empieza a difundir una partida. Los espectadores conectados reciben un saludo nuevo y
+     * reconstruyen su réplica. Debe llamarse desde el hilo que simula la partida.
+     * @param game partida a difundir
+     * @param config configuración con la que se cargó; debe tener semilla
+     */
+    public void attach(BadIceCream game, GameConfig config) {
+        if (config.getSeed() == null) {
+            throw new IllegalArgumentException("La difusión necesita una partida con semilla fija");
+        }
+        codec = new StateCodec(game);
+        ticksSinceKeyframe = keyframeInterval;
+        offer(StateCodec.encodeHello(-1, config), FrameKind.hello);
+    }
+
+    /**
+     * Deja de difundir la partida actual.
+     */
+    public void detach() {
+        codec = null;
+    }
+
+    /**
+     * Codifica el último tick de la partida difundida y lo entrega al hilo de red.
+     * Debe llamarse desde el hilo que simula, una vez por tick.
+     */
+    public void publish() {
+        if (codec == null) return;
+        long start = System.nanoTime();
+
+        ByteBuffer delta = codec.encodeDelta();
+        boolean key = ticksSinceKeyframe >= keyframeInterval;
+        ticksSinceKeyframe = key ? 1 : ticksSinceKeyframe + 1;
+        offer(key ? codec.encodeKeyframe() : delta, key ? FrameKind.keyframe : FrameKind.delta);
+
+        encodeCost.record(System.nanoTime() - start);
+    }
+
+    /**
+     * Copia una trama del códec, que se reutiliza en el siguiente tick, y la encola para el
+     * hilo de red.
+     * @param frame trama lista para leer
+     * @param kind tipo de trama
+     */
+    private void offer(ByteBuffer frame, FrameKind kind) {
+        ByteBuffer copy = ClientConnection.copyOf(frame);
+        published.add(new Frame(copy, kind));
+        bytesPublished.addAndGet(copy.remaining());
+        framesPublished.incrementAndGet();
+        selector.wakeup();
+    }
+
+    // ==================== HILO DE RED ====================
+
+    /**
+     * Bucle de red: acepta espectadores, reparte las tramas publicadas y escribe las colas.
+     */
+    @Override
+    public void run() {
+        running = true;
+        try {
+            while (running) {
+                selector.select();
+                handleKeys();
+                Frame f;
+                while ((f = published.poll()) != null) fanOut(f);
+            }
+        } catch (IOException | RuntimeException e) {
+            if (running) LOGGER.log(Level.SEVERE, "La difusión a espectadores se detuvo", e);
+        } finally {
+            closeQuietly();
+        }
+    }
+
+    /**
+     * Reparte una trama a todos los espectadores y actualiza lo que recibirá uno nuevo.
+     * @param f trama publicada
+     */
+    private void fanOut(Frame f) {
+        if (f.kind == FrameKind.hello) {
+            hello = f;
+            sinceKeyframe.clear();
+        } else if (f.kind == FrameKind.keyframe) {
+            sinceKeyframe.clear();
+            sinceKeyframe.add(f);
+        } else if (!sinceKeyframe.isEmpty()) {
+            sinceKeyframe.add(f);
+        }
+
+        for (int i = 0; i < clients.size(); i++) {
+            Viewer v = clients.get(i);
+            try {
+                deliver(v, f);
+            } catch (IOException e) {
+                disconnect(v, e);
+                i--;
+            }
+        }
+    }
+
+    /**
+     * Entrega una trama a un espectador. Los saludos y fotogramas clave siempre se entregan;
+     * los deltas se omiten mientras el espectador espera un fotograma clave o cuando su
+     * cola supera el límite.
+     * @param v espectador
+     * @param f trama publicada
+     * @throws IOException si falla la escritura
+     */
+    private void deliver(Viewer v, Frame f) throws IOException {
+        if (f.kind == FrameKind.hello) {
+            v.dropBacklog();
+            v.resyncing = true;
+        } else if (f.kind == FrameKind.keyframe) {
+            v.resyncing = false;
+        } else if (v.resyncing) {
+            framesSkipped.incrementAndGet();
+            return;
+        }
+
+        if (!v.send(f.data.duplicate(), f.kind != FrameKind.delta)) {
+            v.resyncing = true;
+            resyncs.incrementAndGet();
+            framesSkipped.incrementAndGet();
+        }
+    }
+
+    /**
+     * @param channel canal del espectador
+     * @param key registro en el selector
+     * @return conexión del espectador
+     */
+    @Override
+    protected Viewer open(SocketChannel channel, SelectionKey key) {
+        return new Viewer(channel, key);
+    }
+
+    /**
+     * Envía al espectador el saludo, el último fotograma clave y los deltas posteriores.
+     * @param v espectador
+     * @throws IOException si falla la escritura
+     */
+    @Override
+    protected void welcome(Viewer v) throws IOException {
+        if (hello != null) deliver(v, hello);
+        for (Frame f : sinceKeyframe) deliver(v, f);
+    }
+
+    /**
+     * Los espectadores no envían acciones: se lee y descarta lo recibido solo para
+     * detectar el cierre de la conexión.
+     * @param v espectador
+     * @throws IOException si el espectador cerró la conexión
+     */
+    @Override
+    protected void read(Viewer v) throws IOException {
+        int n;
+        do {
+            discard.clear();
+            n = v.channel().read(discard);
+        } while (n > 0);
+        if (n < 0) throw new IOException("Conexión cerrada por el espectador");
+    }
+
+    // ==================== MÉTRICAS ====================
+
+    /**
+     * @return espectadores conectados
+     */
+    public int getViewerCount() {
+        return connectedClients();
+    }
+
+    /**
+     * @return costo medio de codificar un tick en nanosegundos, una vez para todos los espectadores
+     */
+    public long getMeanEncodeNanos() {
+        return encodeCost.mean();
+    }
+
+    /**
+     * @return tramas publicadas, saludos incluidos
+     */
+    public long getFramesPublished() {
+        return framesPublished.get();
+    }
+
+    /**
+     * @return bytes publicados, contados una vez por trama y no por espectador
+     */
+    public long getBytesPublished() {
+        return bytesPublished.get();
+    }
+
+    /**
+     * @return deltas no enviados a espectadores que esperaban un fotograma clave
+     */
+    public long getFramesSkipped() {
+        return framesSkipped.get();
+    }
+
+    /**
+     * @return veces que un espectador lento perdió su cola y tuvo que esperar un fotograma clave
+     */
+    public long getResyncs() {
+        return resyncs.get();
+    }
+}
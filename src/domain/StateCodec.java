@@ -0,0 +1,606 @@
+package domain;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Codificación binaria del protocolo de juego en red. Cada trama lleva un entero con su
+ * longitud (tipo más contenido), un byte de tipo y el contenido.
+ * Del lado del servidor el códec guarda lo último enviado de cada entidad y, en cada tick,
+ * codifica solo las entidades que cambiaron y las casillas anotadas en el diario del mapa.
+ * Un fotograma clave repite el estado completo para los clientes que recién se conectan
+ * o que perdieron tramas. Del lado del cliente aplica las tramas sobre una réplica de la
+ * partida construida con la misma configuración y semilla. Cada trama de estado termina con
+ * una suma de verificación del estado replicado, para que el cliente compruebe su réplica.
+ */
+public final class StateCodec {
+
+    /** Saludo del servidor: índice del jugador asignado y configuración de la partida. */
+    public static final byte HELLO = 1;
+    /** Acción de un jugador enviada por el cliente. */
+    public static final byte INPUT = 2;
+    /** Estado de un tick enviado por el servidor. */
+    public static final byte STATE = 3;
+
+    /** Bytes de cabecera de cada trama: longitud y tipo. */
+    public static final int HEADER = 5;
+    /** Tamaño máximo aceptado para una trama. */
+    public static final int MAX_FRAME = 1 << 24;
+
+    private static final int KEYFRAME = 1;
+    private static final int WON = 2;
+    private static final int LOST = 4;
+    private static final int NO_BLOCK = 0xFF;
+    private static final int NO_DIR = 0xFF;
+
+    private static final int GLOBAL_BYTES = 1 + 4 + 4 + 2;
+    private static final int BLOCK_BYTES = 6;
+    private static final int PLAYER_BYTES = 1 + 2 + 2 + 1 + 1 + 4;
+    private static final int ENEMY_BYTES = 2 + 2 + 2 + 1 + 1;
+    private static final int FRUIT_BYTES = 2 + 2 + 2 + 1;
+
+    private static final BoxType[] BOX_TYPES = BoxType.values();
+    private static final BoxState[] BOX_STATES = BoxState.values();
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final BadIceCream game;
+    private final GameMap map;
+    private final long[] sentPlayers;
+    private final int[] sentScores;
+    private final long[] sentEnemies;
+    private final long[] sentFruits;
+    private int checksum;
+    private int[] changedCells = new int[64];
+    private int changedCount;
+    private ByteBuffer delta = ByteBuffer.allocate(256);
+    private ByteBuffer keyframe = ByteBuffer.allocate(256);
+
+    /**
+     * Crea el códec del servidor para una partida.
+     * @param game partida autoritativa
+     */
+    public StateCodec(BadIceCream game) {
+        this.game = game;
+        this.map = game.getMap();
+        this.sentPlayers = new long[game.getPlayers().size()];
+        this.sentScores = new int[sentPlayers.length];
+        this.sentEnemies = new long[game.getEnemies().size()];
+        this.sentFruits = new long[game.getFruits().size()];
+        Arrays.fill(sentPlayers, -1);
+        Arrays.fill(sentEnemies, -1);
+        Arrays.fill(sentFruits, -1);
+    }
+
+    // ==================== SERVIDOR ====================
+
+    /**
+     * Codifica los cambios del último tick y consume el diario de bloques del mapa.
+     * Debe llamarse una vez por tick, haya o no clientes que reciban el resultado.
+     * @return trama lista para enviar, válida hasta la siguiente llamada
+     */
+    public ByteBuffer encodeDelta() {
+        changedCount = 0;
+        map.drainChangedBlocks(this::collectChanged);
+
+        List<IceCream> players = game.getPlayers();
+        List<Enemy> enemies = game.getEnemies();
+        List<Fruit> fruits = game.getFruits();
+
+        int worst = HEADER + GLOBAL_BYTES + 4 + changedCount * BLOCK_BYTES + 1 + players.size() * PLAYER_BYTES
+                + 2 + enemies.size() * ENEMY_BYTES + 2 + fruits.size() * FRUIT_BYTES + 4;
+        delta = ensure(delta, worst);
+        ByteBuffer out = delta;
+        out.clear();
+        out.position(HEADER);
+        writeGlobals(out, 0);
+
+        out.putInt(changedCount);
+        for (int i = 0; i < changedCount; i++) writeBlock(out, changedCells[i]);
+
+        int at = out.position();
+        int n = 0;
+        out.put((byte) 0);
+        for (int i = 0; i < players.size(); i++) {
+            IceCream p = players.get(i);
+            long key = playerKey(p);
+            if (key == sentPlayers[i] && p.getScore() == sentScores[i]) continue;
+            sentPlayers[i] = key;
+            sentScores[i] = p.getScore();
+            writePlayer(out, i, p);
+            n++;
+        }
+        out.put(at, (byte) n);
+
+        at = out.position();
+        n = 0;
+        out.putShort((short) 0);
+        for (int i = 0; i < enemies.size(); i++) {
+            Enemy e = enemies.get(i);
+            long key = enemyKey(e);
+            if (key == sentEnemies[i]) continue;
+            sentEnemies[i] = key;
+            writeEnemy(out, i, e);
+            n++;
+        }
+        out.putShort(at, (short) n);
+
+        at = out.position();
+        n = 0;
+        out.putShort((short) 0);
+        for (int i = 0; i < fruits.size(); i++) {
+            Fruit f = fruits.get(i);
+            long key = fruitKey(f);
+            if (key == sentFruits[i]) continue;
+            sentFruits[i] = key;
+            writeFruit(out, i, f);
+            n++;
+        }
+        out.putShort(at, (short) n);
+
+        checksum = checksum(game);
+        out.putInt(checksum);
+        return seal(out, STATE);
+    }
+
+    /**
+     * Codifica el estado completo de la partida sin alterar lo registrado para los deltas.
+     * Debe llamarse después de {@link #encodeDelta()} en el mismo tick, cuya suma de
+     * verificación reutiliza.
+     * @return trama lista para enviar, válida hasta la siguiente llamada
+     */
+    public ByteBuffer encodeKeyframe() {
+        List<IceCream> players = game.getPlayers();
+        List<Enemy> enemies = game.getEnemies();
+        List<Fruit> fruits = game.getFruits();
+
+        int[] count = new int[1];
+        map.forEachBlock((r, c, b) -> count[0]++);
+
+        int size = HEADER + GLOBAL_BYTES + 4 + count[0] * BLOCK_BYTES + 1 + players.size() * PLAYER_BYTES
+                + 2 + enemies.size() * ENEMY_BYTES + 2 + fruits.size() * FRUIT_BYTES + 4;
+        keyframe = ensure(keyframe, size);
+        ByteBuffer out = keyframe;
+        out.clear();
+        out.position(HEADER);
+        writeGlobals(out, KEYFRAME);
+
+        int cols = map.getCols();
+        out.putInt(count[0]);
+        map.forEachBlock((r, c, b) -> writeBlock(out, r * cols + c));
+
+        out.put((byte) players.size());
+        for (int i = 0; i < players.size(); i++) writePlayer(out, i, players.get(i));
+        out.putShort((short) enemies.size());
+        for (int i = 0; i < enemies.size(); i++) writeEnemy(out, i, enemies.get(i));
+        out.putShort((short) fruits.size());
+        for (int i = 0; i < fruits.size(); i++) writeFruit(out, i, fruits.get(i));
+
+        out.putInt(checksum);
+        return seal(out, STATE);
+    }
+
+    /**
+     * Anota una casilla cambiada al consumir el diario del mapa.
+     * @param cell índice de la casilla
+     */
+    private void collectChanged(int cell) {
+        if (changedCount == changedCells.length) {
+            changedCells = Arrays.copyOf(changedCells, changedCount * 2);
+        }
+        changedCells[changedCount++] = cell;
+    }
+
+    /**
+     * Escribe el estado global de la partida.
+     * @param out destino
+     * @param flags marcas de la trama
+     */
+    private void writeGlobals(ByteBuffer out, int flags) {
+        if (game.isGameWon()) flags |= WON;
+        if (game.isGameLost()) flags |= LOST;
+        out.put((byte) flags);
+        out.putInt((int) game.getElapsedTicks());
+        out.putInt(game.getScore());
+        out.putShort((short) game.getCurrentWave());
+    }
+
+    /**
+     * Escribe el bloque de una casilla.
+     * @param out destino
+     * @param cell índice de la casilla
+     */
+    private void writeBlock(ByteBuffer out, int cell) {
+        int cols = map.getCols();
+        Boxy b = map.getBlock(cell / cols, cell % cols);
+        out.putInt(cell);
+        out.put((byte) (b == null ? NO_BLOCK : b.getType().ordinal()));
+        out.put((byte) (b == null ? 0 : b.getState().ordinal()));
+    }
+
+    /**
+     * Escribe el registro de un jugador.
+     * @param out destino
+     * @param i índice del jugador
+     * @param p jugador
+     */
+    private static void writePlayer(ByteBuffer out, int i, IceCream p) {
+        out.put((byte) i);
+        out.putShort((short) p.getPosition().getRow());
+        out.putShort((short) p.getPosition().getCol());
+        out.put(dirCode(p.getDir()));
+        out.put((byte) p.replicaFlags());
+        out.putInt(p.getScore());
+    }
+
+    /**
+     * Escribe el registro de un enemigo.
+     * @param out destino
+     * @param i índice del enemigo
+     * @param e enemigo
+     */
+    private static void writeEnemy(ByteBuffer out, int i, Enemy e) {
+        out.putShort((short) i);
+        out.putShort((short) e.getPosition().getRow());
+        out.putShort((short) e.getPosition().getCol());
+        out.put(dirCode(e.getCurrentDirection()));
+        out.put((byte) e.replicaFlags());
+    }
+
+    /**
+     * Escribe el registro de una fruta.
+     * @param out destino
+     * @param i índice de la fruta
+     * @param f fruta
+     */
+    private static void writeFruit(ByteBuffer out, int i, Fruit f) {
+        out.putShort((short) i);
+        out.putShort((short) f.getPosition().getRow());
+        out.putShort((short) f.getPosition().getCol());
+        out.put((byte) f.replicaFlags());
+    }
+
+    /**
+     * @param p jugador
+     * @return resumen de posición, dirección y estado para detectar cambios
+     */
+    private static long playerKey(IceCream p) {
+        return pack(p.getPosition(), p.getDir(), p.replicaFlags());
+    }
+
+    /**
+     * @param e enemigo
+     * @return resumen de posición, dirección y modo para detectar cambios
+     */
+    private static long enemyKey(Enemy e) {
+        return pack(e.getPosition(), e.getCurrentDirection(), e.replicaFlags());
+    }
+
+    /**
+     * @param f fruta
+     * @return resumen de posición y estado para detectar cambios
+     */
+    private static long fruitKey(Fruit f) {
+        return pack(f.getPosition(), null, f.replicaFlags());
+    }
+
+    /**
+     * Empaqueta posición, dirección y marcas en un solo valor.
+     * @param p posición
+     * @param d dirección o null
+     * @param flags marcas de la entidad
+     * @return valor empaquetado
+     */
+    private static long pack(Position p, Direction d, int flags) {
+        return ((long) (p.getRow() & 0xFFFF) << 32) | ((long) (p.getCol() & 0xFFFF) << 16)
+                | ((dirCode(d) & 0xFF) << 8) | (flags & 0xFF);
+    }
+
+    /**
+     * @param d dirección o null
+     * @return código de la dirección
+     */
+    private static byte dirCode(Direction d) {
+        return (byte) (d == null ? NO_DIR : d.ordinal());
+    }
+
+    /**
+     * Calcula una suma de verificación de todo lo que el protocolo replica: globales,
+     * bloques de cada casilla y registros de jugadores, enemigos y frutas. Los bloques entran
+     * por el hash de Zobrist que el mapa mantiene, así que no se recorre el mapa. El servidor
+     * y una réplica sincronizada obtienen el mismo valor.
+     * @param game partida o réplica
+     * @return suma de verificación
+     */
+    public static int checksum(BadIceCream game) {
+        int h = mix(0x811C9DC5, (game.isGameWon() ? WON : 0) | (game.isGameLost() ? LOST : 0));
+        h = mix(h, (int) game.getElapsedTicks());
+        h = mix(h, game.getScore());
+        h = mix(h, game.getCurrentWave());
+
+        long blocks = game.getMap().getBlockHash();
+        h = mix(h, (int) (blocks ^ blocks >>> 32));
+        for (IceCream p : game.getPlayers()) {
+            h = mix(h, (int) (playerKey(p) ^ playerKey(p) >>> 32));
+            h = mix(h, p.getScore());
+        }
+        for (Enemy e : game.getEnemies()) h = mix(h, (int) (enemyKey(e) ^ enemyKey(e) >>> 32));
+        for (Fruit f : game.getFruits()) h = mix(h, (int) (fruitKey(f) ^ fruitKey(f) >>> 32));
+        return h;
+    }
+
+    /**
+     * @param h suma acumulada
+     * @param v valor a incorporar
+     * @return suma actualizada
+     */
+    private static int mix(int h, int v) {
+        return Integer.rotateLeft((h ^ v) * 0x9E3779B1, 15);
+    }
+
+    // ==================== CLIENTE ====================
+
+    /**
+     * Aplica el contenido de una trama de estado sobre la réplica local de la partida.
+     * Los índices fuera de rango se ignoran.
+     * @param in contenido de la trama, sin cabecera
+     * @param replica partida réplica construida con la misma configuración
+     * @return true si la réplica quedó con la misma suma de verificación que el servidor
+     */
+    public static boolean apply(ByteBuffer in, BadIceCream replica) {
+        GameMap map = replica.getMap();
+        int flags = in.get();
+        int elapsed = in.getInt();
+        int score = in.getInt();
+        int wave = in.getShort();
+        replica.applyReplica(score, wave, (flags & WON) != 0, (flags & LOST) != 0, elapsed);
+
+        int blocks = in.getInt();
+        for (int i = 0; i < blocks; i++) {
+            int cell = in.getInt();
+            int type = in.get() & 0xFF;
+            int state = in.get() & 0xFF;
+            applyBlock(map, cell / map.getCols(), cell % map.getCols(), type, state);
+        }
+
+        boolean moved = false;
+        List<IceCream> players = replica.getPlayers();
+        int n = in.get() & 0xFF;
+        for (int k = 0; k < n; k++) {
+            int i = in.get() & 0xFF;
+            Position p = new Position(in.getShort(), in.getShort());
+            Direction d = direction(in.get());
+            int pf = in.get();
+            int s = in.getInt();
+            if (i < players.size()) players.get(i).applyReplica(p, d, pf, s);
+            moved = true;
+        }
+
+        List<Enemy> enemies = replica.getEnemies();
+        n = in.getShort() & 0xFFFF;
+        for (int k = 0; k < n; k++) {
+            int i = in.getShort() & 0xFFFF;
+            Position p = new Position(in.getShort(), in.getShort());
+            Direction d = direction(in.get());
+            int ef = in.get();
+            if (i < enemies.size()) enemies.get(i).applyReplica(p, d, ef);
+            moved = true;
+        }
+
+        List<Fruit> fruits = replica.getFruits();
+        n = in.getShort() & 0xFFFF;
+        for (int k = 0; k < n; k++) {
+            int i = in.getShort() & 0xFFFF;
+            Position p = new Position(in.getShort(), in.getShort());
+            int ff = in.get();
+            if (i < fruits.size()) fruits.get(i).applyReplica(p, ff);
+            moved = true;
+        }
+
+        if (moved) relayer(replica);
+        return in.getInt() == checksum(replica);
+    }
+
+    /**
+     * Ajusta el bloque de una casilla de la réplica al tipo y estado recibidos.
+     * Reutiliza la cubierta de hielo de las fogatas para no perder su vínculo.
+     * @param map mapa de la réplica
+     * @param r fila
+     * @param c columna
+     * @param type ordinal del tipo de bloque o {@value #NO_BLOCK} si la casilla es piso
+     * @param state ordinal del estado
+     */
+    private static void applyBlock(GameMap map, int r, int c, int type, int state) {
+        if (!map.isValid(r, c)) return;
+        Position pos = new Position(r, c);
+        Boxy cur = map.getBlock(r, c);
+
+        if (type == NO_BLOCK || type >= BOX_TYPES.length) {
+            if (cur != null) map.setBlock(pos, null);
+            return;
+        }
+
+        BoxType t = BOX_TYPES[type];
+        BoxState s = BOX_STATES[Math.min(state, BOX_STATES.length - 1)];
+        if (cur == null || cur.getType() != t) {
+            cur = replacement(cur, t, pos, s);
+            map.setBlock(pos, cur);
+        }
+        cur.restoreState(s);
+    }
+
+    /**
+     * Construye el bloque que reemplaza a otro de distinto tipo.
+     * @param cur bloque actual o null
+     * @param t tipo recibido
+     * @param pos posición de la casilla
+     * @param s estado recibido
+     * @return bloque del tipo pedido
+     */
+    private static Boxy replacement(Boxy cur, BoxType t, Position pos, BoxState s) {
+        if (t == BoxType.ice && cur instanceof Bonfire bonfire) return bonfire.getCover();
+        if (t == BoxType.bonfire && cur instanceof Ice ice && ice.getBaseBlock() instanceof Bonfire base) return base;
+        return switch (t) {
+            case ice -> new Ice(pos, s);
+            case iron -> new Iron(pos, s);
+            case fire -> new Fire(pos, s);
+            case bonfire -> new Bonfire(pos, s);
+            case floor -> new Floor(pos, s);
+        };
+    }
+
+    /**
+     * Reconstruye las capas de entidades del mapa de la réplica tras mover entidades.
+     * @param replica partida réplica
+     */
+    private static void relayer(BadIceCream replica) {
+        GameMap map = replica.getMap();
+        map.clearEntities();
+        for (IceCream p : replica.getPlayers()) map.addPlayer(p);
+        for (Enemy e : replica.getEnemies()) map.addEnemy(e);
+        for (Fruit f : replica.getFruits()) {
+            if (!f.isEaten()) map.addFruit(f);
+        }
+    }
+
+    /**
+     * @param code código recibido
+     * @return dirección o null si el código no corresponde a ninguna
+     */
+    private static Direction direction(byte code) {
+        int i = code & 0xFF;
+        return i < DIRECTIONS.length ? DIRECTIONS[i] : null;
+    }
+
+    // ==================== SALUDO Y ACCIONES ====================
+
+    /**
+     * Codifica el saludo que el servidor envía al aceptar una conexión.
+     * @param player índice del jugador asignado o -1 si el cliente solo observa
+     * @param cfg configuración de la partida, con semilla fijada
+     * @return trama lista para enviar
+     */
+    public static ByteBuffer encodeHello(int player, GameConfig cfg) {
+        ByteBuffer out = ByteBuffer.allocate(4096);
+        out.position(HEADER);
+        out.put((byte) player);
+        out.putInt(cfg.getLevel());
+        out.putLong(cfg.getSeed() == null ? 0L : cfg.getSeed());
+        out.putInt(cfg.getTickRate());
+        putString(out, cfg.getMode());
+        putString(out, cfg.getCharacter1());
+        putString(out, cfg.getCharacter2());
+        putCounts(out, cfg.getFruits());
+        putCounts(out, cfg.getEnemies());
+        putCounts(out, cfg.getObstacles());
+        return seal(out, HELLO);
+    }
+
+    /**
+     * Lee la configuración de un saludo cuyo primer byte (el jugador asignado) ya fue leído.
+     * Las cantidades conservan el orden del servidor para reproducir la misma distribución.
+     * @param in contenido del saludo a partir de la configuración
+     * @return configuración de la partida
+     */
+    public static GameConfig readConfig(ByteBuffer in) {
+        int level = in.getInt();
+        long seed = in.getLong();
+        int tickRate = in.getInt();
+        String mode = getString(in);
+        String charA = getString(in);
+        String charB = getString(in);
+        Map<String, Integer> fruits = getCounts(in);
+        Map<String, Integer> enemies = getCounts(in);
+        Map<String, Integer> obstacles = getCounts(in);
+
+        GameConfig cfg = new GameConfig(mode, charA, charB, level, fruits, enemies, obstacles);
+        cfg.setSeed(seed);
+        cfg.setTickRate(tickRate);
+        return cfg;
+    }
+
+    /**
+     * Codifica una acción de jugador en una trama de seis bytes.
+     * @param out destino con al menos {@code HEADER + 1} bytes libres
+     * @param action acción a enviar
+     */
+    public static void encodeInput(ByteBuffer out, PlayerAction action) {
+        out.putInt(2);
+        out.put(INPUT);
+        out.put((byte) action.ordinal());
+    }
+
+    /**
+     * Escribe la cabecera de una trama cuyo contenido ya está a partir de {@link #HEADER}.
+     * @param out búfer con el contenido
+     * @param type tipo de la trama
+     * @return búfer listo para leer desde la cabecera
+     */
+    private static ByteBuffer seal(ByteBuffer out, byte type) {
+        int end = out.position();
+        out.putInt(0, end - 4);
+        out.put(4, type);
+        out.flip();
+        return out;
+    }
+
+    /**
+     * Garantiza que un búfer tenga cierta capacidad, reemplazándolo si hace falta.
+     * @param buf búfer actual
+     * @param size capacidad necesaria
+     * @return búfer con capacidad suficiente
+     */
+    private static ByteBuffer ensure(ByteBuffer buf, int size) {
+        if (buf.capacity() >= size) return buf;
+        return ByteBuffer.allocate(Math.max(size, buf.capacity() * 2));
+    }
+
+    /**
+     * @param out destino
+     * @param s cadena o null
+     */
+    private static void putString(ByteBuffer out, String s) {
+        byte[] bytes = (s == null ? "" : s).getBytes(StandardCharsets.UTF_8);
+        out.putShort((short) bytes.length);
+        out.put(bytes);
+    }
+
+    /**
+     * @param in origen
+     * @return cadena leída, null si estaba vacía
+     */
+    private static String getString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getShort() & 0xFFFF];
+        in.get(bytes);
+        return bytes.length == 0 ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param out destino
+     * @param counts cantidades por tipo
+     */
+    private static void putCounts(ByteBuffer out, Map<String, Integer> counts) {
+        out.putShort((short) counts.size());
+        for (Map.Entry<String, Integer> e : counts.entrySet()) {
+            putString(out, e.getKey());
+            out.putInt(e.getValue());
+        }
+    }
+
+    /**
+     * @param in origen
+     * @return cantidades por tipo en el orden recibido
+     */
+    private static Map<String, Integer> getCounts(ByteBuffer in) {
+        int n = in.getShort() & 0xFFFF;
+        Map<String, Integer> out = new LinkedHashMap<>();
+        for (int i = 0; i < n; i++) {
+            String key = getString(in);
+            out.put(key, in.getInt());
+        }
+        return out;
+    }
+}
@@ -0,0 +1,292 @@
+package domain;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rueda de temporización por ticks de una partida. Cada entidad o bloque con comportamiento
+ * periódico se registra con su próxima activación y la rueda solo dispara lo que vence en
+ * el tick actual, así que los objetos en espera no cuestan nada por tick.
+ * Cada tarea tiene a lo sumo una entrada pendiente: volver a programarla reemplaza la anterior.
+ * La rueda conoce la frecuencia lógica de la partida y convierte segundos y velocidades a ticks.
+ */
+public final class TimingWheel {
+
+    /** Frecuencia lógica por defecto, en ticks por segundo. */
+    public static final int DEFAULT_TICK_RATE = 20;
+
+    private static final int SLOTS = 256;
+    private static final int MASK = SLOTS - 1;
+
+    /**
+     * Tarea activada por la rueda.
+     */
+    @FunctionalInterface
+    public interface Timed {
+        /**
+         * Ejecuta la tarea vencida.
+         * @param timers rueda que la dispara, para convertir tiempos a ticks
+         * @return ticks hasta la siguiente activación, o 0 para no volver a programarla
+         */
+        int onTimer(TimingWheel timers);
+    }
+
+    /**
+     * Entrada pendiente en una ranura de la rueda.
+     */
+    private static final class Entry {
+        private final Timed task;
+        private long deadline;
+        private Entry prev;
+        private Entry next;
+        private int slot;
+        private boolean linked;
+
+        /**
+         * @param task tarea asociada
+         */
+        private Entry(Timed task) {
+            this.task = task;
+        }
+    }
+
+    private final Entry[] heads = new Entry[SLOTS];
+    private final Entry[] tails = new Entry[SLOTS];
+    private final Map<Timed, Entry> pending = new IdentityHashMap<>();
+    private final List<Entry> due = new ArrayList<>();
+    private final int tickRate;
+    private long now;
+
+    /**
+     * Crea una rueda con la frecuencia lógica por defecto.
+     */
+    public TimingWheel() {
+        this(DEFAULT_TICK_RATE);
+    }
+
+    /**
+     * Crea una rueda para una frecuencia lógica dada.
+     * @param tickRate ticks por segundo de la simulación
+     */
+    public TimingWheel(int tickRate) {
+        if (tickRate <= 0) {
+            throw new IllegalArgumentException("Frecuencia de simulación inválida: " + tickRate);
+        }
+        this.tickRate = tickRate;
+    }
+
+    /**
+     * @return ticks por segundo de la simulación
+     */
+    public int getTickRate() {
+        return tickRate;
+    }
+
+    /**
+     * Convierte una duración en segundos a ticks.
+     * @param seconds duración en segundos
+     * @return cantidad de ticks, al menos 1
+     */
+    public int ticksFor(double seconds) {
+        return (int) Math.max(1, Math.round(seconds * tickRate));
+    }
+
+    /**
+     * Convierte una frecuencia de acciones a ticks entre acción y acción.
+     * @param perSecond acciones (o casillas recorridas) por segundo
+     * @return ticks entre acciones, al menos 1
+     */
+    public int ticksPerStep(double perSecond) {
+        return (int) Math.max(1, Math.round(tickRate / perSecond));
+    }
+
+    /**
+     * Convierte una cantidad de ticks a milisegundos.
+     * @param ticks cantidad de ticks
+     * @return duración en milisegundos
+     */
+    public long millisOf(long ticks) {
+        return ticks * 1000L / tickRate;
+    }
+
+    /**
+     * Programa una tarea para dentro de cierta cantidad de ticks, reemplazando su entrada anterior.
+     * @param task tarea a programar
+     * @param delay ticks de espera, al menos 1
+     */
+    public void schedule(Timed task, int delay) {
+        Entry e = pending.get(task);
+        if (e != null && e.linked) {
+            unlink(e);
+        } else {
+            e = new Entry(task);
+            pending.put(task, e);
+        }
+        e.deadline = now + Math.max(1, delay);
+        link(e);
+    }
+
+    /**
+     * Cancela la activación pendiente de una tarea.
+     * @param task tarea a cancelar
+     */
+    public void cancel(Timed task) {
+        Entry e = pending.remove(task);
+        if (e != null && e.linked) unlink(e);
+    }
+
+    /**
+     * Indica si una tarea tiene una activación pendiente.
+     * @param task tarea a consultar
+     * @return true si está programada
+     */
+    public boolean isScheduled(Timed task) {
+        return pending.containsKey(task);
+    }
+
+    /**
+     * Obtiene el tick en que vence una tarea.
+     * @param task tarea a consultar
+     * @return tick de activación o -1 si no está programada
+     */
+    public long deadlineOf(Timed task) {
+        Entry e = pending.get(task);
+        return e == null ? -1 : e.deadline;
+    }
+
+    /**
+     * Avanza un tick y dispara, en orden de programación, las tareas que vencen.
+     * Las vencidas se separan antes de disparar, así una tarea puede programar o
+     * cancelar otras sin alterar el recorrido de la ranura.
+     */
+    public void advance() {
+        now++;
+        int slot = (int) (now & MASK);
+
+        due.clear();
+        for (Entry e = heads[slot]; e != null; ) {
+            Entry next = e.next;
+            if (e.deadline <= now) {
+                unlink(e);
+                due.add(e);
+            }
+            e = next;
+        }
+
+        for (int i = 0; i < due.size(); i++) {
+            Entry e = due.get(i);
+            if (pending.get(e.task) != e) continue; // cancelada o reprogramada en este mismo tick
+            pending.remove(e.task);
+
+            int delay = e.task.onTimer(this);
+            if (delay > 0 && !pending.containsKey(e.task)) {
+                schedule(e.task, delay);
+            }
+        }
+        due.clear();
+    }
+
+    /**
+     * Vacía la rueda y reinicia el contador de ticks.
+     */
+    public void clear() {
+        pending.clear();
+        Arrays.fill(heads, null);
+        Arrays.fill(tails, null);
+        now = 0;
+    }
+
+    /**
+     * Copia de las activaciones pendientes de una rueda, en el orden en que se dispararían.
+     * Se reutiliza entre instantáneas para no reservar memoria en cada tick.
+     */
+    public static final class Snapshot {
+        private Timed[] tasks = new Timed[32];
+        private long[] deadlines = new long[32];
+        private int size;
+        private long now;
+    }
+
+    /**
+     * Guarda el estado de la rueda.
+     * @param out copia a sobrescribir
+     */
+    public void save(Snapshot out) {
+        if (out.tasks.length < pending.size()) {
+            out.tasks = new Timed[pending.size() * 2];
+            out.deadlines = new long[pending.size() * 2];
+        }
+        int n = 0;
+        for (int s = 0; s < SLOTS; s++) {
+            for (Entry e = heads[s]; e != null; e = e.next) {
+                out.tasks[n] = e.task;
+                out.deadlines[n] = e.deadline;
+                n++;
+            }
+        }
+        Arrays.fill(out.tasks, n, out.size > n ? out.size : n, null);
+        out.size = n;
+        out.now = now;
+    }
+
+    /**
+     * Restaura un estado guardado, respetando el orden de disparo dentro de cada ranura.
+     * @param in copia guardada
+     */
+    public void restore(Snapshot in) {
+        clear();
+        now = in.now;
+        for (int i = 0; i < in.size; i++) {
+            Entry e = new Entry(in.tasks[i]);
+            e.deadline = in.deadlines[i];
+            pending.put(e.task, e);
+            link(e);
+        }
+    }
+
+    /**
+     * @return tick actual de la rueda
+     */
+    public long now() {
+        return now;
+    }
+
+    /**
+     * @return cantidad de tareas pendientes
+     */
+    public int size() {
+        return pending.size();
+    }
+
+    /**
+     * Agrega una entrada al final de la ranura de su vencimiento.
+     * @param e entrada a enlazar
+     */
+    private void link(Entry e) {
+        int slot = (int) (e.deadline & MASK);
+        e.slot = slot;
+        e.next = null;
+        e.prev = tails[slot];
+        if (tails[slot] != null) tails[slot].next = e;
+        else heads[slot] = e;
+        tails[slot] = e;
+        e.linked = true;
+    }
+
+    /**
+     * Quita una entrada de su ranura.
+     * @param e entrada a desenlazar
+     */
+    private void unlink(Entry e) {
+        if (e.prev != null) e.prev.next = e.next;
+        else heads[e.slot] = e.next;
+        if (e.next != null) e.next.prev = e.prev;
+        else tails[e.slot] = e.prev;
+        e.prev = null;
+        e.next = null;
+        e.linked = false;
+    }
+}
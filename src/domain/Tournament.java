@@ -0,0 +1,553 @@
+package domain;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Torneo todos contra todos entre controladores automáticos. Cada par de controladores juega
+ * en ambos puestos, en cada nivel, con cada mezcla de frutas, enemigos y obstáculos y con
+ * varias semillas; gana quien termina con más puntos y, a igual puntaje, quien sigue vivo.
+ * Las partidas se simulan sin interfaz en un grupo de hilos, una por tarea, y como cada una
+ * depende solo de su semilla el resultado no cambia con la cantidad de hilos.
+ * El reporte da, por controlador y por nivel y mezcla, la tasa de victorias con su intervalo
+ * de Wilson al 95%, el Elo, el puntaje medio y la duración media, en CSV o JSON.
+ */
+public final class Tournament {
+
+    private static final double Z = 1.96;
+    private static final double ELO_START = 1500;
+    private static final double ELO_K = 16;
+    private static final int DEFAULT_MAX_TICKS = 10_000;
+    private static final String ALL = "all";
+
+    /**
+     * Mezcla de frutas, enemigos y obstáculos con que se cargan las partidas.
+     */
+    public static final class Mix {
+        private final String name;
+        private final Map<String, Integer> fruits;
+        private final Map<String, Integer> enemies;
+        private final Map<String, Integer> obstacles;
+
+        /**
+         * @param name nombre de la mezcla en el reporte
+         * @param fruits frutas con sus cantidades
+         * @param enemies enemigos con sus cantidades
+         * @param obstacles obstáculos con sus cantidades
+         */
+        public Mix(String name, Map<String, Integer> fruits, Map<String, Integer> enemies,
+                   Map<String, Integer> obstacles) {
+            this.name = name;
+            this.fruits = fruits;
+            this.enemies = enemies;
+            this.obstacles = obstacles;
+        }
+
+        /**
+         * Lee una mezcla con la forma {@code nombre=frutas/enemigos[/obstáculos]}, donde cada
+         * lista tiene la forma {@code Tipo:cantidad,Tipo:cantidad}.
+         * @param text texto de la mezcla
+         * @return mezcla leída
+         */
+        public static Mix parse(String text) {
+            int eq = text.indexOf('=');
+            if (eq <= 0) throw new IllegalArgumentException("Mezcla inválida: " + text);
+            String[] parts = text.substring(eq + 1).split("/");
+            return new Mix(text.substring(0, eq),
+                    GameConfig.parseCounts(parts[0]),
+                    parts.length > 1 ? GameConfig.parseCounts(parts[1]) : new LinkedHashMap<>(),
+                    parts.length > 2 ? GameConfig.parseCounts(parts[2]) : new LinkedHashMap<>());
+        }
+
+        /**
+         * @return nombre de la mezcla
+         */
+        public String getName() {
+            return name;
+        }
+    }
+
+    /**
+     * Resultado de una partida entre dos controladores.
+     */
+    public static final class MatchResult {
+        private final int index;
+        private final String first;
+        private final String second;
+        private final int level;
+        private final String mix;
+        private final long seed;
+        private int firstScore;
+        private int secondScore;
+        private boolean firstAlive;
+        private boolean secondAlive;
+        private long ticks;
+        private long nanos;
+
+        /**
+         * @param index orden de la partida en el torneo
+         * @param first controlador del jugador 1
+         * @param second controlador del jugador 2
+         * @param level nivel
+         * @param mix nombre de la mezcla
+         * @param seed semilla de la partida
+         */
+        private MatchResult(int index, String first, String second, int level, String mix, long seed) {
+            this.index = index;
+            this.first = first;
+            this.second = second;
+            this.level = level;
+            this.mix = mix;
+            this.seed = seed;
+        }
+
+        /**
+         * @return 1 si ganó el jugador 1, -1 si ganó el jugador 2, 0 si empataron
+         */
+        public int outcome() {
+            if (firstScore != secondScore) return firstScore > secondScore ? 1 : -1;
+            if (firstAlive != secondAlive) return firstAlive ? 1 : -1;
+            return 0;
+        }
+
+        /**
+         * @return orden de la partida en el torneo
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * @return ticks simulados
+         */
+        public long getTicks() {
+            return ticks;
+        }
+    }
+
+    /**
+     * Acumulado de un controlador en un nivel y una mezcla, o en todo el torneo.
+     */
+    public static final class Standing {
+        private final String controller;
+        private final String level;
+        private final String mix;
+        private int games;
+        private int wins;
+        private int draws;
+        private int losses;
+        private long scoreSum;
+        private long tickSum;
+        private double elo = ELO_START;
+
+        /**
+         * @param controller nombre del controlador
+         * @param level nivel o {@value Tournament#ALL}
+         * @param mix mezcla o {@value Tournament#ALL}
+         */
+        private Standing(String controller, String level, String mix) {
+            this.controller = controller;
+            this.level = level;
+            this.mix = mix;
+        }
+
+        /**
+         * @return proporción de puntos obtenidos, contando los empates como medio punto
+         */
+        public double winRate() {
+            return games == 0 ? 0 : (wins + 0.5 * draws) / games;
+        }
+
+        /**
+         * @return límite inferior del intervalo de Wilson al 95% de la tasa de victorias
+         */
+        public double wilsonLow() {
+            return wilson(-1);
+        }
+
+        /**
+         * @return límite superior del intervalo de Wilson al 95% de la tasa de victorias
+         */
+        public double wilsonHigh() {
+            return wilson(1);
+        }
+
+        /**
+         * @param sign -1 para el límite inferior, 1 para el superior
+         * @return límite del intervalo
+         */
+        private double wilson(int sign) {
+            if (games == 0) return sign < 0 ? 0 : 1;
+            double n = games;
+            double p = winRate();
+            double denom = 1 + Z * Z / n;
+            double center = (p + Z * Z / (2 * n)) / denom;
+            double half = Z * Math.sqrt(p * (1 - p) / n + Z * Z / (4 * n * n)) / denom;
+            return Math.min(1, Math.max(0, center + sign * half));
+        }
+
+        /**
+         * @return puntaje medio por partida
+         */
+        public double meanScore() {
+            return games == 0 ? 0 : (double) scoreSum / games;
+        }
+
+        /**
+         * @return duración media de las partidas en ticks
+         */
+        public double meanTicks() {
+            return games == 0 ? 0 : (double) tickSum / games;
+        }
+
+        /**
+         * @return rating Elo
+         */
+        public double getElo() {
+            return elo;
+        }
+
+        /**
+         * @return nombre del controlador
+         */
+        public String getController() {
+            return controller;
+        }
+    }
+
+    private final List<String> controllers;
+    private final List<Integer> levels;
+    private final List<Mix> mixes;
+    private final int seeds;
+    private final long baseSeed;
+    private int maxTicks = DEFAULT_MAX_TICKS;
+
+    private final List<MatchResult> results = new ArrayList<>();
+    private long wallNanos;
+    private int threadsUsed;
+
+    /**
+     * Crea un torneo.
+     * @param controllers nombres de los controladores, como los acepta la configuración
+     *                    ({@code Hungry}, {@code Fearful}, {@code Expert})
+     * @param levels niveles a jugar
+     * @param mixes mezclas a jugar
+     * @param seeds semillas por combinación de nivel, mezcla y par de controladores
+     * @param baseSeed semilla de la primera partida; las demás usan las siguientes
+     */
+    public Tournament(List<String> controllers, List<Integer> levels, List<Mix> mixes, int seeds, long baseSeed) {
+        if (controllers.size() < 2) throw new IllegalArgumentException("Se necesitan al menos dos controladores");
+        if (levels.isEmpty() || mixes.isEmpty() || seeds < 1) {
+            throw new IllegalArgumentException("El torneo necesita niveles, mezclas y semillas");
+        }
+        for (int level : levels) {
+            if (LevelLoader.getTemplate(level) == null) throw new IllegalArgumentException("No existe el nivel " + level);
+        }
+        this.controllers = new ArrayList<>(controllers);
+        this.levels = new ArrayList<>(levels);
+        this.mixes = new ArrayList<>(mixes);
+        this.seeds = seeds;
+        this.baseSeed = baseSeed;
+    }
+
+    /**
+     * @param maxTicks ticks como máximo por partida, por si alguna no termina sola
+     */
+    public void setMaxTicks(int maxTicks) {
+        this.maxTicks = maxTicks;
+    }
+
+    /**
+     * Juega todas las partidas del torneo.
+     * @param threads hilos de simulación
+     * @return resultados en el orden del torneo
+     * @throws InterruptedException si se interrumpe la espera
+     */
+    public List<MatchResult> run(int threads) throws InterruptedException {
+        List<MatchResult> pending = new ArrayList<>();
+        int index = 0;
+        for (int level : levels) {
+            for (Mix mix : mixes) {
+                for (int s = 0; s < seeds; s++) {
+                    for (String a : controllers) {
+                        for (String b : controllers) {
+                            if (a.equals(b)) continue;
+                            long seed = baseSeed + index;
+                            pending.add(new MatchResult(index++, a, b, level, mix.name, seed));
+                        }
+                    }
+                }
+            }
+        }
+
+        Map<String, Mix> byName = new LinkedHashMap<>();
+        for (Mix m : mixes) byName.put(m.name, m);
+
+        List<Callable<MatchResult>> tasks = new ArrayList<>(pending.size());
+        for (MatchResult r : pending) tasks.add(() -> play(r, byName.get(r.mix)));
+
+        threadsUsed = Math.max(1, threads);
+        ExecutorService pool = Executors.newFixedThreadPool(threadsUsed, r -> {
+            Thread t = new Thread(r, "tournament-worker");
+            t.setDaemon(true);
+            return t;
+        });
+        long start = System.nanoTime();
+        try {
+            results.clear();
+            for (Future<MatchResult> f : pool.invokeAll(tasks)) {
+                try {
+                    results.add(f.get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Falló una partida del torneo", e.getCause());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        wallNanos = System.nanoTime() - start;
+        return results;
+    }
+
+    /**
+     * Simula una partida sin interfaz hasta que termina.
+     * @param r resultado a completar
+     * @param mix mezcla de la partida
+     * @return el mismo resultado, completo
+     */
+    private MatchResult play(MatchResult r, Mix mix) {
+        GameConfig cfg = new GameConfig("Machine", r.first, r.second, r.level,
+                new LinkedHashMap<>(mix.fruits), new LinkedHashMap<>(mix.enemies), new LinkedHashMap<>(mix.obstacles));
+        cfg.setSeed(r.seed);
+        BadIceCream game = LevelLoader.loadLevel(r.level, cfg);
+
+        long start = System.nanoTime();
+        long ticks = 0;
+        while (!game.isGameWon() && !game.isGameLost() && ticks < maxTicks) {
+            game.updateGame();
+            ticks++;
+        }
+        r.nanos = System.nanoTime() - start;
+        r.ticks = ticks;
+
+        List<IceCream> players = game.getPlayers();
+        r.firstScore = players.get(0).getScorePlayer();
+        r.firstAlive = players.get(0).isAlive();
+        if (players.size() > 1) {
+            r.secondScore = players.get(1).getScorePlayer();
+            r.secondAlive = players.get(1).isAlive();
+        }
+        return r;
+    }
+
+    /**
+     * Acumula los resultados por controlador, por nivel y mezcla y en todo el torneo.
+     * El Elo se actualiza partida a partida en el orden del torneo, así que no depende
+     * del orden en que terminaron los hilos.
+     * @return posiciones: primero las generales, luego las de cada nivel y mezcla
+     */
+    public List<Standing> standings() {
+        Map<String, Standing> table = new LinkedHashMap<>();
+        for (String c : controllers) key(table, c, ALL, ALL);
+        for (int level : levels) {
+            for (Mix m : mixes) {
+                for (String c : controllers) key(table, c, String.valueOf(level), m.name);
+            }
+        }
+
+        for (MatchResult r : results) {
+            String level = String.valueOf(r.level);
+            record(key(table, r.first, ALL, ALL), key(table, r.second, ALL, ALL), r);
+            record(key(table, r.first, level, r.mix), key(table, r.second, level, r.mix), r);
+        }
+        return new ArrayList<>(table.values());
+    }
+
+    /**
+     * @param table tabla de posiciones
+     * @param controller controlador
+     * @param level nivel
+     * @param mix mezcla
+     * @return posición del controlador en ese grupo, creada si no existía
+     */
+    private static Standing key(Map<String, Standing> table, String controller, String level, String mix) {
+        return table.computeIfAbsent(level + '|' + mix + '|' + controller, k -> new Standing(controller, level, mix));
+    }
+
+    /**
+     * Anota una partida en las posiciones de sus dos controladores.
+     * @param a posición del jugador 1
+     * @param b posición del jugador 2
+     * @param r resultado
+     */
+    private static void record(Standing a, Standing b, MatchResult r) {
+        int outcome = r.outcome();
+        double scoreA = outcome > 0 ? 1 : outcome < 0 ? 0 : 0.5;
+        double expectedA = 1 / (1 + Math.pow(10, (b.elo - a.elo) / 400));
+        a.elo += ELO_K * (scoreA - expectedA);
+        b.elo -= ELO_K * (scoreA - expectedA);
+
+        tally(a, outcome, r.firstScore, r.ticks);
+        tally(b, -outcome, r.secondScore, r.ticks);
+    }
+
+    /**
+     * @param s posición
+     * @param outcome 1 victoria, 0 empate, -1 derrota
+     * @param score puntaje obtenido
+     * @param ticks duración de la partida
+     */
+    private static void tally(Standing s, int outcome, int score, long ticks) {
+        s.games++;
+        if (outcome > 0) s.wins++;
+        else if (outcome < 0) s.losses++;
+        else s.draws++;
+        s.scoreSum += score;
+        s.tickSum += ticks;
+    }
+
+    /**
+     * @return ticks simulados por segundo de reloj, sumando todos los hilos
+     */
+    public double ticksPerSecond() {
+        long ticks = 0;
+        for (MatchResult r : results) ticks += r.ticks;
+        return wallNanos == 0 ? 0 : ticks * 1e9 / wallNanos;
+    }
+
+    // ==================== REPORTES ====================
+
+    /**
+     * Escribe las posiciones en CSV, una fila por controlador y grupo.
+     * @param out destino
+     */
+    public void writeCsv(Writer out) {
+        PrintWriter w = new PrintWriter(out);
+        w.println("level,mix,controller,games,wins,draws,losses,win_rate,ci_low,ci_high,elo,mean_score,mean_ticks");
+        for (Standing s : standings()) {
+            w.println(String.format(Locale.ROOT, "%s,%s,%s,%d,%d,%d,%d,%.4f,%.4f,%.4f,%.1f,%.2f,%.1f",
+                    s.level, s.mix, s.controller, s.games, s.wins, s.draws, s.losses,
+                    s.winRate(), s.wilsonLow(), s.wilsonHigh(), s.elo, s.meanScore(), s.meanTicks()));
+        }
+        w.flush();
+    }
+
+    /**
+     * Escribe el resumen del torneo y las posiciones en JSON.
+     * @param out destino
+     */
+    public void writeJson(Writer out) {
+        PrintWriter w = new PrintWriter(out);
+        w.println("{");
+        w.println(String.format(Locale.ROOT, "  \"matches\": %d,", results.size()));
+        w.println(String.format(Locale.ROOT, "  \"threads\": %d,", threadsUsed));
+        w.println(String.format(Locale.ROOT, "  \"wall_seconds\": %.3f,", wallNanos / 1e9));
+        w.println(String.format(Locale.ROOT, "  \"ticks_per_second\": %.1f,", ticksPerSecond()));
+        w.println("  \"standings\": [");
+        List<Standing> rows = standings();
+        for (int i = 0; i < rows.size(); i++) {
+            Standing s = rows.get(i);
+            w.print(String.format(Locale.ROOT,
+                    "    {\"level\": \"%s\", \"mix\": \"%s\", \"controller\": \"%s\", \"games\": %d, \"wins\": %d, "
+                    + "\"draws\": %d, \"losses\": %d, \"win_rate\": %.4f, \"ci_low\": %.4f, \"ci_high\": %.4f, "
+                    + "\"elo\": %.1f, \"mean_score\": %.2f, \"mean_ticks\": %.1f}",
+                    json(s.level), json(s.mix), json(s.controller), s.games, s.wins, s.draws, s.losses,
+                    s.winRate(), s.wilsonLow(), s.wilsonHigh(), s.elo, s.meanScore(), s.meanTicks()));
+            w.println(i + 1 < rows.size() ? "," : "");
+        }
+        w.println("  ]");
+        w.println("}");
+        w.flush();
+    }
+
+    /**
+     * @param s texto
+     * @return texto con comillas y barras escapadas para JSON
+     */
+    private static String json(String s) {
+        return s.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    // ==================== LÍNEA DE COMANDOS ====================
+
+    /**
+     * Ejecuta un torneo sin interfaz gráfica.
+     * Uso: {@code Tournament [--controllers Hungry,Fearful,Expert] [--levels 1,2,3] [--seeds 20]
+     * [--seed 1] [--threads N] [--max-ticks N] [--mix nombre=frutas/enemigos/obstáculos]...
+     * [--csv archivo] [--json archivo]}. Sin archivos, el CSV se escribe en la salida estándar.
+     * @param args argumentos de la línea de comandos
+     * @throws IOException si no se pueden escribir los reportes
+     * @throws InterruptedException si se interrumpe el torneo
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        List<String> controllers = Arrays.asList("Hungry", "Fearful", "Expert");
+        List<Integer> levels = Arrays.asList(1, 2, 3);
+        List<Mix> mixes = new ArrayList<>();
+        int seeds = 20;
+        long seed = 1;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int maxTicks = DEFAULT_MAX_TICKS;
+        String csv = null;
+        String json = null;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String v = args[i + 1];
+            switch (args[i]) {
+                case "--controllers" -> controllers = Arrays.asList(v.split(","));
+                case "--levels" -> {
+                    levels = new ArrayList<>();
+                    for (String l : v.split(",")) levels.add(Integer.parseInt(l.trim()));
+                }
+                case "--seeds" -> seeds = Integer.parseInt(v);
+                case "--seed" -> seed = Long.parseLong(v);
+                case "--threads" -> threads = Integer.parseInt(v);
+                case "--max-ticks" -> maxTicks = Integer.parseInt(v);
+                case "--mix" -> mixes.add(Mix.parse(v));
+                case "--csv" -> csv = v;
+                case "--json" -> json = v;
+                default -> {
+                    System.err.println("Opción desconocida: " + args[i]);
+                    return;
+                }
+            }
+        }
+        if (mixes.isEmpty()) {
+            mixes.add(Mix.parse("trolls=Banana:8,Grape:8/Troll:2"));
+            mixes.add(Mix.parse("mixed=Banana:6,Cherry:4,Pineapple:2/Troll:1,Flowerpot:1,Narwhal:1/Bonfire:2"));
+            mixes.add(Mix.parse("squids=Grape:8,Cactus:4/YellowSquid:2"));
+        }
+
+        Tournament t = new Tournament(controllers, levels, mixes, seeds, seed);
+        t.setMaxTicks(maxTicks);
+        t.run(threads);
+        System.err.println(String.format(Locale.ROOT, "%d partidas en %.2f s con %d hilos: %.0f ticks/s",
+                t.results.size(), t.wallNanos / 1e9, t.threadsUsed, t.ticksPerSecond()));
+
+        if (csv == null && json == null) {
+            t.writeCsv(new PrintWriter(System.out));
+        }
+        if (csv != null) {
+            try (Writer w = new FileWriter(csv)) {
+                t.writeCsv(w);
+            }
+        }
+        if (json != null) {
+            try (Writer w = new FileWriter(json)) {
+                t.writeJson(w);
+            }
+        }
+    }
+}
@@ -1,8 +1,8 @@
 package domain;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
 
 /**
  * Enemigo tipo Troll. Se mueve de forma semialeatoria siguiendo una dirección
@@ -11,19 +11,16 @@ import java.util.Random;
 public class Troll extends Enemy {
 
     private Direction trollDirection;
-    private final Random random;
     @SuppressWarnings("unused")
     private BadIceCream game;
 
-    private int tick = 0;
-    private final int speed = 3;
+    private static final double SPEED = 2.2;
 
     /** 
      * Construye un Troll con posición y velocidad específicas. 
      */
     public Troll(Position position) {
         super(EnemyType.troll, position);
-        this.random = new Random();
         this.trollDirection = Direction.DOWN;
     }
 
@@ -57,11 +54,6 @@ public class Troll extends Enemy {
      */
     @Override
     public void doUpdate() { 
-        
-        tick++;
-        if (tick < speed) return;
-        tick = 0;
-
         checkTrapped();
         if (trapped) return;
 
@@ -83,17 +75,19 @@ public class Troll extends Enemy {
         }
     }
 
+    /**
+     * @return velocidad del troll en casillas por segundo
+     */
+    @Override
+    protected double cellsPerSecond() {
+        return SPEED;
+    }
+
     /** 
      * Detecta si el troll no puede moverse en ninguna dirección. 
      */
     private void checkTrapped() {
-        trapped = true;
-        for (Direction d : Direction.values()) {
-            if (moveInDirection(d)) {
-                trapped = false;
-                return;
-            }
-        }
+        trapped = freeDirections() == 0;
     }
 
     /** 
@@ -139,7 +133,7 @@ public class Troll extends Enemy {
             list.add(Direction.DOWN);
         }
 
-        if (random.nextBoolean()) {
+        if (gameMap.getRandom().nextBoolean()) {
             Direction t = list.get(0);
             list.set(0, list.get(1));
             list.set(1, t);
@@ -152,7 +146,7 @@ public class Troll extends Enemy {
      */
     @SuppressWarnings("unused")
     private Direction getRandomDirection() {
-        return Direction.values()[random.nextInt(Direction.values().length)];
+        return Direction.values()[gameMap.getRandom().nextInt(Direction.values().length)];
     }
 
     /** 
@@ -170,4 +164,36 @@ public class Troll extends Enemy {
     public boolean isAnimated() {
         return false;
     }
-}
\ No newline at end of file
+
+    /**
+     * Aplica el estado recibido del servidor, incluida la dirección propia del troll.
+     * @param p posición replicada
+     * @param d dirección replicada
+     * @param flags bits de {@link #replicaFlags()}
+     */
+    @Override
+    void applyReplica(Position p, Direction d, int flags) {
+        trollDirection = d;
+        super.applyReplica(p, d, flags);
+    }
+
+    /**
+     * Agrega la dirección propia del troll al estado guardado.
+     * @param out destino
+     */
+    @Override
+    void writeState(ByteBuffer out) {
+        super.writeState(out);
+        GameSnapshot.putDir(out, trollDirection);
+    }
+
+    /**
+     * Restaura la dirección propia del troll.
+     * @param in origen
+     */
+    @Override
+    void readState(ByteBuffer in) {
+        super.readState(in);
+        trollDirection = GameSnapshot.getDir(in);
+    }
+}
@@ -0,0 +1,191 @@
+package domain;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Consultas espaciales compartidas por los controladores automáticos de una partida.
+ * Las respuestas salen de los índices espaciales del mapa y las de enemigos se recuerdan
+ * por casilla hasta que algún enemigo se mueva. Así dos jugadores automáticos que deciden
+ * en el mismo tick, y las varias consultas de una misma decisión, no repiten el trabajo.
+ * Como casi cada tick mueve algún enemigo, solo se guardan las casillas consultadas desde
+ * el último movimiento, en tablas pequeñas que se vacían al cambiar la versión.
+ * <p>
+ * Las respuestas son las mismas que daría recorrer las listas de la partida en orden:
+ * los empates se resuelven a favor de la primera entidad de la lista.
+ */
+public final class WorldQuery {
+
+    /** Radio máximo cuyas respuestas se recuerdan; los mayores se calculan siempre. */
+    private static final int MAX_MEMO_RADIUS = 8;
+
+    private final GameMap map;
+    private final int cols;
+
+    private long version = -1;
+
+    private final Map<Integer, Enemy> nearest = new HashMap<>();
+    private final Map<Long, List<Enemy>> within = new HashMap<>();
+
+    private long lookups;
+    private long hits;
+
+    /**
+     * @param map mapa de la partida
+     */
+    WorldQuery(GameMap map) {
+        this.map = map;
+        this.cols = map.getCols();
+    }
+
+    /**
+     * Toma la versión actual de las posiciones de los enemigos y, si cambió, olvida los
+     * resultados recordados.
+     */
+    private void refresh() {
+        long v = map.getEnemyVersion();
+        if (v == version) return;
+        version = v;
+        nearest.clear();
+        within.clear();
+    }
+
+    /**
+     * Obtiene el enemigo más cercano a una casilla.
+     * @param p casilla
+     * @return enemigo más cercano o null si no hay enemigos
+     */
+    public Enemy nearestEnemy(Position p) {
+        refresh();
+        lookups++;
+        int cell = cell(p);
+        if (cell < 0) return map.getEnemyIndex().nearest(p.getRow(), p.getCol());
+        Enemy e = nearest.get(cell);
+        if (e != null || nearest.containsKey(cell)) {
+            hits++;
+            return e;
+        }
+
+        e = map.getEnemyIndex().nearest(p.getRow(), p.getCol());
+        nearest.put(cell, e);
+        return e;
+    }
+
+    /**
+     * Obtiene la distancia Manhattan al enemigo más cercano.
+     * @param p casilla
+     * @return distancia o {@link Integer#MAX_VALUE} si no hay enemigos
+     */
+    public int nearestEnemyDist(Position p) {
+        Enemy e = nearestEnemy(p);
+        return e == null ? Integer.MAX_VALUE : dist(p, e.getPosition());
+    }
+
+    /**
+     * Obtiene los enemigos a distancia Manhattan menor o igual a un radio.
+     * @param p casilla
+     * @param radius radio
+     * @return enemigos en el orden de la partida; la lista es compartida y no debe modificarse
+     */
+    public List<Enemy> enemiesWithin(Position p, int radius) {
+        refresh();
+        lookups++;
+        int cell = cell(p);
+        boolean memo = cell >= 0 && radius >= 0 && radius <= MAX_MEMO_RADIUS;
+        long key = (long) cell * (MAX_MEMO_RADIUS + 1) + radius;
+        if (memo) {
+            List<Enemy> known = within.get(key);
+            if (known != null) {
+                hits++;
+                return known;
+            }
+        }
+
+        List<Enemy> out = map.getEnemyIndex().within(p.getRow(), p.getCol(), radius);
+        List<Enemy> result = out.isEmpty() ? Collections.emptyList() : out;
+        if (memo) within.put(key, result);
+        return result;
+    }
+
+    /**
+     * Recorre las frutas del mapa de la más cercana a la más lejana hasta que el visitante
+     * pida terminar. Las frutas cambian de estado sin pasar por el mapa, así que no se recuerda.
+     * @param p origen
+     * @param visitor visitante; las frutas comidas o inactivas también se visitan
+     */
+    public void fruitsByDistance(Position p, SpatialIndex.DistanceVisitor<? super Fruit> visitor) {
+        map.getFruitIndex().visitByDistance(p.getRow(), p.getCol(), visitor);
+    }
+
+    /**
+     * @param p casilla
+     * @return índice plano de la casilla o -1 si está fuera del mapa
+     */
+    private int cell(Position p) {
+        return map.isValid(p) ? p.getRow() * cols + p.getCol() : -1;
+    }
+
+    /**
+     * @return consultas respondidas
+     */
+    public long getLookups() {
+        return lookups;
+    }
+
+    /**
+     * @return consultas respondidas con un resultado recordado
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    // ==================== GEOMETRÍA ====================
+
+    /**
+     * Calcula la distancia Manhattan entre dos posiciones.
+     * @param a primera posición
+     * @param b segunda posición
+     * @return distancia Manhattan
+     */
+    public static int dist(Position a, Position b) {
+        return Math.abs(a.getRow() - b.getRow()) + Math.abs(a.getCol() - b.getCol());
+    }
+
+    /**
+     * Indica si dos posiciones comparten fila o columna.
+     * @param a primera posición
+     * @param b segunda posición
+     * @return true si están alineadas
+     */
+    public static boolean aligned(Position a, Position b) {
+        return a.getRow() == b.getRow() || a.getCol() == b.getCol();
+    }
+
+    /**
+     * Obtiene la dirección directa de una posición a otra, priorizando el eje más largo
+     * y el vertical en caso de empate.
+     * @param from posición origen
+     * @param to posición destino
+     * @return dirección hacia el destino
+     */
+    public static Direction dirTo(Position from, Position to) {
+        int dr = to.getRow() - from.getRow();
+        int dc = to.getCol() - from.getCol();
+
+        return Math.abs(dr) >= Math.abs(dc)
+                ? (dr > 0 ? Direction.DOWN : Direction.UP)
+                : (dc > 0 ? Direction.RIGHT : Direction.LEFT);
+    }
+
+    /**
+     * Calcula la posición vecina en una dirección.
+     * @param p posición base
+     * @param d dirección
+     * @return nueva posición
+     */
+    public static Position step(Position p, Direction d) {
+        return new Position(p.getRow() + d.getRowDelta(), p.getCol() + d.getColDelta());
+    }
+}
@@ -1,5 +1,7 @@
 package domain;
 
+import java.nio.ByteBuffer;
+
 /**
  * Enemigo tipo Calamar Amarillo. Persigue al jugador más cercano,
  * esperando para romper bloques destructibles en su camino.
@@ -17,8 +19,7 @@ public class YellowSquid extends Enemy {
     private static final int BREAK_DELAY = 2;
     private Position targetBlock;
 
-    private int tick;
-    private final int delay;
+    private static final double SPEED = 3.3;
 
     /**
      * Crea un Calamar Amarillo en la posición indicada.
@@ -30,8 +31,6 @@ public class YellowSquid extends Enemy {
         this.waitTicks = 0;
         this.targetBlock = null;
         this.currentDirection = Direction.DOWN;
-        this.tick = 0;
-        this.delay = 2;
     }
 
     /**
@@ -65,10 +64,6 @@ public class YellowSquid extends Enemy {
      */
     @Override
     public void doUpdate() {
-        tick++;
-        if (tick < delay) return;
-        tick = 0;
-
         switch (state) {
             case CHASE -> chase();
             case WAIT -> waitBlock();
@@ -77,18 +72,24 @@ public class YellowSquid extends Enemy {
     }
 
     /**
-     * Estado de persecución del jugador más cercano.
+     * @return velocidad del calamar en casillas por segundo
      */
-    private void chase() {
-        IceCream player = findPlayer();
-        if (player == null || !player.isAlive()) return;
+    @Override
+    protected double cellsPerSecond() {
+        return SPEED;
+    }
 
-        Direction main = dirTo(player.getPosition());
-        if (main != null && tryMove(main)) return;
+    /**
+     * Estado de persecución del jugador más cercano: sigue el campo de flujo del mapa, que ya
+     * pondera si conviene romper el hielo del frente o rodearlo. Si la vecina elegida no se
+     * puede tomar, o ningún jugador es alcanzable, prueba cualquier dirección.
+     */
+    private void chase() {
+        FlowField field = gameMap.getFlowField();
+        if (!field.hasTargets()) return;
 
-        for (Direction d : altDirs(player.getPosition())) {
-            if (tryMove(d)) return;
-        }
+        Direction best = field.best(position);
+        if (best != null && tryMove(best)) return;
 
         for (Direction d : Direction.values()) {
             if (tryMove(d)) return;
@@ -154,76 +155,6 @@ public class YellowSquid extends Enemy {
         state = State.CHASE;
     }
 
-    /**
-     * Encuentra el jugador vivo más cercano.
-     * @return jugador más cercano o null si no existe
-     */
-    private IceCream findPlayer() {
-        IceCream closest = null;
-        int minDist = Integer.MAX_VALUE;
-
-        for (int r = 0; r < gameMap.getRows(); r++) {
-            for (int c = 0; c < gameMap.getCols(); c++) {
-                Position p = new Position(r, c);
-                IceCream pl = gameMap.getPlayer(p);
-
-                if (pl != null && pl.isAlive()) {
-                    int d = dist(position, p);
-                    if (d < minDist) {
-                        minDist = d;
-                        closest = pl;
-                    }
-                }
-            }
-        }
-        return closest;
-    }
-
-    /**
-     * Calcula la dirección principal hacia una posición objetivo.
-     * @param target posición objetivo
-     * @return dirección óptima o null si no hay movimiento
-     */
-    private Direction dirTo(Position target) {
-        int dr = target.getRow() - position.getRow();
-        int dc = target.getCol() - position.getCol();
-
-        if (Math.abs(dr) > Math.abs(dc)) {
-            return dr > 0 ? Direction.DOWN : Direction.UP;
-        }
-        if (dc != 0) {
-            return dc > 0 ? Direction.RIGHT : Direction.LEFT;
-        }
-        return null;
-    }
-
-    /**
-     * Calcula direcciones alternativas hacia el objetivo.
-     * @param target posición objetivo
-     * @return arreglo de direcciones alternativas
-     */
-    private Direction[] altDirs(Position target) {
-        int dr = target.getRow() - position.getRow();
-        int dc = target.getCol() - position.getCol();
-
-        Direction v = dr > 0 ? Direction.DOWN : Direction.UP;
-        Direction h = dc > 0 ? Direction.RIGHT : Direction.LEFT;
-
-        return Math.abs(dr) > Math.abs(dc)
-                ? new Direction[]{h, h.getOpposite(), v.getOpposite()}
-                : new Direction[]{v, v.getOpposite(), h.getOpposite()};
-    }
-
-    /**
-     * Calcula la distancia Manhattan entre dos posiciones.
-     * @param a primera posición
-     * @param b segunda posición
-     * @return distancia Manhattan
-     */
-    private int dist(Position a, Position b) {
-        return Math.abs(a.getRow() - b.getRow()) + Math.abs(a.getCol() - b.getCol());
-    }
-
     /**
      * Devuelve la clave del sprite según el estado actual.
      * @return clave del sprite
@@ -269,4 +200,28 @@ public class YellowSquid extends Enemy {
     public boolean isBreaking() {
         return state == State.BREAK;
     }
-}
\ No newline at end of file
+
+    /**
+     * Agrega la fase de ataque, la espera y el bloque objetivo al estado guardado.
+     * @param out destino
+     */
+    @Override
+    void writeState(ByteBuffer out) {
+        super.writeState(out);
+        out.put((byte) state.ordinal());
+        out.putInt(waitTicks);
+        GameSnapshot.putPos(out, targetBlock);
+    }
+
+    /**
+     * Restaura la fase de ataque, la espera y el bloque objetivo.
+     * @param in origen
+     */
+    @Override
+    void readState(ByteBuffer in) {
+        super.readState(in);
+        state = State.values()[in.get()];
+        waitTicks = in.getInt();
+        targetBlock = GameSnapshot.getPos(in);
+    }
+}
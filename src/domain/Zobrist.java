@@ -0,0 +1,84 @@
+package domain;
+
+/**
+ * Claves de Zobrist para identificar estados de la partida. El hash de un estado es el
+ * XOR de las claves de sus partes (bloque de cada casilla, enemigo de cada casilla,
+ * fruta de cada casilla con su estado), así que cada cambio se aplica quitando la clave
+ * vieja y poniendo la nueva con dos XOR. Las claves se calculan mezclando sus datos en
+ * lugar de guardarse en tablas, porque los mapas pueden ser muy grandes; el valor es fijo
+ * entre ejecuciones y máquinas, y la clave 0 representa «nada».
+ */
+final class Zobrist {
+
+    static final int BLOCK = 1;
+    static final int ENEMY = 2;
+    static final int FRUIT = 3;
+    static final int PLAYER = 4;
+    static final int GLOBAL = 5;
+
+    private static final long SEED = 0x5DEECE66DL;
+
+    private Zobrist() {
+    }
+
+    /**
+     * @param kind parte del estado
+     * @param index casilla o número de entidad
+     * @param value contenido
+     * @return clave de la parte; nunca 0
+     */
+    static long key(int kind, long index, long value) {
+        long z = SEED + kind * 0x9E3779B97F4A7C15L;
+        z = mix(z ^ index * 0xC2B2AE3D27D4EB4FL);
+        z = mix(z ^ value * 0x165667B19E3779F9L);
+        return z == 0 ? 1 : z;
+    }
+
+    /**
+     * @param cell índice plano de la casilla
+     * @param code código del bloque según {@link #blockCode}
+     * @return clave del bloque, 0 si la casilla está vacía
+     */
+    static long block(int cell, int code) {
+        return code == 0 ? 0 : key(BLOCK, cell, code);
+    }
+
+    /**
+     * @param b bloque o null
+     * @return código del tipo y estado del bloque, 0 si no hay
+     */
+    static int blockCode(Boxy b) {
+        return b == null ? 0 : 1 + (b.getType().ordinal() << 8 | b.getState().ordinal());
+    }
+
+    /**
+     * @param cell índice plano de la casilla
+     * @param e enemigo o null
+     * @return clave del enemigo en la casilla, 0 si no hay
+     */
+    static long enemy(int cell, Enemy e) {
+        return e == null ? 0 : key(ENEMY, cell, e.getType().ordinal());
+    }
+
+    /**
+     * @param cols columnas del mapa
+     * @param f fruta
+     * @return clave de la fruta según su orden, posición, tipo y estado
+     */
+    static long fruit(int cols, Fruit f) {
+        Position p = f.getPosition();
+        long cell = (long) p.getRow() * cols + p.getCol();
+        return key(FRUIT, f.getOrder(), cell << 16 | f.getType().ordinal() << 8 | f.replicaFlags());
+    }
+
+    /**
+     * Función de mezcla de SplitMix64.
+     * @param z valor
+     * @return valor mezclado
+     */
+    private static long mix(long z) {
+        z = (z ^ z >>> 30) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ z >>> 27) * 0x94D049BB133111EBL;
+        return z ^ z >>> 31;
+    }
+}
@@ -1,6 +1,10 @@
 package presentation;
 
+import domain.GameClient;
+import domain.SpectatorServer;
 import java.awt.*;
+import java.io.IOException;
+import java.net.InetSocketAddress;
 import javax.swing.*;
 
 /**
@@ -27,6 +31,21 @@ public class BadDOPOCreamGUI extends JFrame {
         intro.startIntro();
     }
 
+    /**
+     * Crea la ventana de una partida en red ya conectada, sin introducción ni menús.
+     * @param client cliente conectado al servidor
+     */
+    public BadDOPOCreamGUI(GameClient client) {
+        super("badDOPOCream");
+        prepareElements();
+        prepareActions();
+
+        intro = null;
+        mainPanel.removeAll();
+        mainPanel.add(new GameGUI(new GameControl(), client), BorderLayout.CENTER);
+        mainPanel.revalidate();
+    }
+
     /**
      * Prepara los elementos visuales de la GUI.
      */
@@ -67,9 +86,34 @@ public class BadDOPOCreamGUI extends JFrame {
      
     /**
      * Método principal para iniciar la aplicación.
-     * @param args Argumentos de línea de comandos (no utilizados).
+     * Con {@code --join host:puerto} se une a una partida en red en lugar de mostrar el menú.
+     * Con {@code --broadcast puerto} muestra el menú y difunde a espectadores cada partida local.
+     * @param args Argumentos de línea de comandos.
      */
     public static void main(String[] args) {
+        if (args.length == 2 && args[0].equals("--broadcast")) {
+            try {
+                SpectatorServer server = new SpectatorServer(new InetSocketAddress(Integer.parseInt(args[1])));
+                server.start();
+                GameGUI.setBroadcaster(server);
+                System.out.println("Difundiendo partidas en el puerto " + server.getPort());
+            } catch (IOException | RuntimeException e) {
+                System.err.println("No se pudo abrir la difusión en " + args[1] + ": " + e.getMessage());
+                return;
+            }
+        }
+
+        if (args.length == 2 && args[0].equals("--join")) {
+            String[] hostPort = args[1].split(":");
+            try {
+                GameClient client = GameClient.connect(hostPort[0], Integer.parseInt(hostPort[1]));
+                SwingUtilities.invokeLater(() -> new BadDOPOCreamGUI(client).setVisible(true));
+            } catch (IOException | RuntimeException e) {
+                System.err.println("No se pudo conectar a " + args[1] + ": " + e.getMessage());
+            }
+            return;
+        }
+
         SwingUtilities.invokeLater(() -> {
             BadDOPOCreamGUI window = new BadDOPOCreamGUI();
             window.setVisible(true);
@@ -3,6 +3,7 @@ package  presentation;
 import domain.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.io.IOException;
 import java.util.ArrayList;
 import javax.swing.*;
 
@@ -15,6 +16,12 @@ public class GameGUI extends JPanel {
     private BadIceCream game;
     private GamePanel panel;
     private Timer timer;
+    private SimulationLoop loop;
+    private InputQueue inputs;
+    private final GameClient client;
+    private long lastFrame;
+    private static final int FRAME_MS = 16;
+    private static SpectatorServer broadcaster;
     private GameControl gameControl;
     private SpriteManager spriteManager;  
 
@@ -40,11 +47,31 @@ public class GameGUI extends JPanel {
     private int currentFruitIndex = 0;
     private int lastWave = -1;
 
+    /**
+     * Activa la difusión a espectadores de todas las partidas locales que se inicien,
+     * incluidas las de máquina contra máquina.
+     * @param server difusión ya iniciada o null para desactivarla
+     */
+    public static void setBroadcaster(SpectatorServer server) {
+        broadcaster = server;
+    }
+
     /**
      * Constructor que recibe la configuración del juego
      */
     public GameGUI(GameControl gameControl) {
+        this(gameControl, null);
+    }
+
+    /**
+     * Crea la interfaz de una partida. Con un cliente de red la partida mostrada es la
+     * réplica que envía el servidor y las teclas del jugador 1 controlan el puesto asignado.
+     * @param gameControl controlador principal del juego
+     * @param client cliente conectado a un servidor o null para una partida local
+     */
+    public GameGUI(GameControl gameControl, GameClient client) {
         this.gameControl = gameControl;
+        this.client = client;
         setLayout(new BorderLayout());
 
         spriteManager = new SpriteManager();
@@ -59,10 +86,19 @@ public class GameGUI extends JPanel {
         PauseButton();
         setupKeyBindings();
 
-        timer = new Timer(150, e -> {
+        timer = new Timer(FRAME_MS, e -> {
+
+        long frame = System.nanoTime();
+        long elapsed = frame - lastFrame;
+        lastFrame = frame;
+
+        if (client != null) {
+            if (!pollServer()) return;
+        } else if (!game.isGameWon() && !game.isGameLost()) {
+            loop.advance(elapsed);
+        }
 
         if (!game.isGameWon() && !game.isGameLost()) {
-            game.updateGame();
             // ===== DETECTAR CAMBIO DE OLEADA =====
             int wave = game.getCurrentWave();
 
@@ -90,6 +126,16 @@ public class GameGUI extends JPanel {
 
         panel.repaint();
     });
+        startSimulation();
+    }
+
+    /**
+     * Arranca el temporizador de dibujo descartando el tiempo acumulado,
+     * para que la simulación no intente recuperar el tiempo detenido.
+     */
+    private void startSimulation() {
+        if (loop != null) loop.reset();
+        lastFrame = System.nanoTime();
         timer.start();
     }
 
@@ -105,8 +151,21 @@ public class GameGUI extends JPanel {
         }
 
 
-        GameConfig config = gameControl.toGameConfig();
-        game = LevelLoader.loadLevel(config.getLevel(), config);
+        if (client != null) {
+            game = client.getGame();
+            loop = null;
+        } else {
+            GameConfig config = gameControl.toGameConfig();
+            if (broadcaster != null && config.getSeed() == null) config.setSeed(System.nanoTime());
+            game = LevelLoader.loadLevel(config.getLevel(), config);
+            loop = new SimulationLoop(game);
+            inputs = new InputQueue(InputQueue.DEFAULT_CAPACITY, config.isCoalesceInputs());
+            loop.setInputQueue(inputs);
+            if (broadcaster != null) {
+                broadcaster.attach(game, config);
+                loop.setAfterTick(broadcaster::publish);
+            }
+        }
 
         for (IceCream p : game.getPlayers()) {
             p.setGameMap(game.getMap());
@@ -128,28 +187,77 @@ public class GameGUI extends JPanel {
         ActionMap am = this.getActionMap();
 
         // Controles del jugador 1
-        bind(im, am, "UP", KeyEvent.VK_UP, () -> game.movePlayer(0, Direction.UP));
-        bind(im, am, "DOWN", KeyEvent.VK_DOWN, () -> game.movePlayer(0, Direction.DOWN));
-        bind(im, am, "LEFT", KeyEvent.VK_LEFT, () -> game.movePlayer(0, Direction.LEFT));
-        bind(im, am, "RIGHT", KeyEvent.VK_RIGHT, () -> game.movePlayer(0, Direction.RIGHT));
+        bind(im, am, "UP", KeyEvent.VK_UP, () -> act(0, PlayerAction.up));
+        bind(im, am, "DOWN", KeyEvent.VK_DOWN, () -> act(0, PlayerAction.down));
+        bind(im, am, "LEFT", KeyEvent.VK_LEFT, () -> act(0, PlayerAction.left));
+        bind(im, am, "RIGHT", KeyEvent.VK_RIGHT, () -> act(0, PlayerAction.right));
 
-        bind(im, am, "FREEZE", KeyEvent.VK_SPACE, () -> game.playerCreateIce(0));
-        bind(im, am, "BREAK", KeyEvent.VK_X, () -> game.playerDestroyIce(0));
+        bind(im, am, "FREEZE", KeyEvent.VK_SPACE, () -> act(0, PlayerAction.freeze));
+        bind(im, am, "BREAK", KeyEvent.VK_X, () -> act(0, PlayerAction.breakIce));
 
         // controles del jugador 2
-        bind(im, am, "P2_UP", KeyEvent.VK_W, () -> game.movePlayer(1, Direction.UP));
-        bind(im, am, "P2_DOWN", KeyEvent.VK_S, () -> game.movePlayer(1, Direction.DOWN));
-        bind(im, am, "P2_LEFT", KeyEvent.VK_A, () -> game.movePlayer(1, Direction.LEFT));
-        bind(im, am, "P2_RIGHT", KeyEvent.VK_D, () -> game.movePlayer(1, Direction.RIGHT));
+        bind(im, am, "P2_UP", KeyEvent.VK_W, () -> act(1, PlayerAction.up));
+        bind(im, am, "P2_DOWN", KeyEvent.VK_S, () -> act(1, PlayerAction.down));
+        bind(im, am, "P2_LEFT", KeyEvent.VK_A, () -> act(1, PlayerAction.left));
+        bind(im, am, "P2_RIGHT", KeyEvent.VK_D, () -> act(1, PlayerAction.right));
 
-        bind(im, am, "P2_FREEZE", KeyEvent.VK_F, () -> game.playerCreateIce(1));
-        bind(im, am, "P2_BREAK", KeyEvent.VK_G, () -> game.playerDestroyIce(1));
+        bind(im, am, "P2_FREEZE", KeyEvent.VK_F, () -> act(1, PlayerAction.freeze));
+        bind(im, am, "P2_BREAK", KeyEvent.VK_G, () -> act(1, PlayerAction.breakIce));
         
         // controles generales de la partida
         bind(im, am, "RESET", KeyEvent.VK_R, this::loadGame);
         bind(im, am, "PAUSE", KeyEvent.VK_P, this::togglePause);
     }
 
+    /**
+     * Ejecuta la acción de un jugador. En una partida local la acción se encola y se aplica
+     * al inicio del siguiente tick; en una partida en red se envía al servidor y solo cuentan
+     * las teclas del jugador 1, que controlan el puesto asignado.
+     * @param player índice del jugador en la partida local
+     * @param action acción a ejecutar
+     */
+    private void act(int player, PlayerAction action) {
+        if (client == null) {
+            inputs.offer(player, action);
+            return;
+        }
+        if (player != 0) return;
+        try {
+            client.send(action);
+        } catch (IOException e) {
+            connectionLost();
+        }
+    }
+
+    /**
+     * Aplica el estado recibido del servidor sobre la réplica mostrada. Si el servidor
+     * empezó otra partida, pasa a mostrar la réplica nueva.
+     * @return false si se perdió la conexión
+     */
+    private boolean pollServer() {
+        try {
+            client.poll();
+            if (client.getGame() != game) {
+                game = client.getGame();
+                panel.setGame(game);
+                lastWave = -1;
+            }
+            return true;
+        } catch (IOException e) {
+            connectionLost();
+            return false;
+        }
+    }
+
+    /**
+     * Avisa que se perdió la conexión con el servidor y vuelve a la selección de nivel.
+     */
+    private void connectionLost() {
+        timer.stop();
+        JOptionPane.showMessageDialog(this, "Se perdió la conexión con el servidor");
+        exitToLevelSelection();
+    }
+
     /**
      * Asocia una tecla a una acción específica.
      * @param im InputMap donde se asigna la tecla.
@@ -165,7 +273,6 @@ public class GameGUI extends JPanel {
             public void actionPerformed(ActionEvent e) {
                 if (winShown || loseShown) return;
                 action.run();
-                panel.repaint();
             }
         });
     }
@@ -174,6 +281,7 @@ public class GameGUI extends JPanel {
      * pausa o reanuda el juego 
      */
     private void togglePause() {
+        if (client != null) return; // el servidor no se detiene por un cliente
         isPaused = !isPaused;
 
         game.setPaused(isPaused);
@@ -183,7 +291,7 @@ public class GameGUI extends JPanel {
             showPauseOverlay();
         } else {
             hidePauseOverlay();
-            timer.start();
+            startSimulation();
         }
     }
 
@@ -278,6 +386,18 @@ public class GameGUI extends JPanel {
             timer.stop();
         }
 
+        if (client == null && broadcaster != null) {
+            broadcaster.detach();
+        }
+
+        if (client != null) {
+            try {
+                client.close();
+            } catch (IOException ignored) {
+                // la conexión ya estaba cerrada
+            }
+        }
+
         Container parent = getParent();
         if (parent != null) {
             parent.remove(GameGUI.this);
@@ -570,7 +690,7 @@ public class GameGUI extends JPanel {
         }
 
         if (timer != null && !timer.isRunning()) {
-            timer.start();
+            startSimulation();
         }
 
         isPaused = false;
@@ -582,14 +702,14 @@ public class GameGUI extends JPanel {
      * Inicia el timer de visualización del juego.
      */
     private void startVisualTimer() {
-        visualTimer = new Timer(1000, e -> {
+        visualTimer = new Timer(250, e -> {
             if (isPaused || winShown || loseShown) return;
 
-            if (visualTime > 0) {
-                visualTime--;
-                panel.setVisualTime(visualTime); 
-                panel.repaint();
-            }
+            // el reloj visible sigue a los ticks de la simulación, no al tiempo de pared
+            long[] left = game.getRemainingTimeMs();
+            visualTime = (int) (left[0] * 60 + left[1]);
+            panel.setVisualTime(visualTime);
+            panel.repaint();
         });
         visualTimer.start();
     }
@@ -631,7 +751,15 @@ public class GameGUI extends JPanel {
         private BadIceCream game;
         private final SpriteManager spriteManager;
         private static final int TILE = 32;
+        /** Borde izquierdo del marcador lateral; el mapa se dibuja a su izquierda. */
+        private static final int HUD_LEFT = 580;
+        /** Borde superior de la barra de frutas; el mapa se dibuja por encima. */
+        private static final int BAR_TOP = 580;
         private int visualTime;
+        private int camRow;
+        private int camCol;
+        private int viewRows;
+        private int viewCols;
         // GamePanel
 
         /**
@@ -663,53 +791,40 @@ public class GameGUI extends JPanel {
             super.paintComponent(g);
 
             GameMap map = game.getMap();
-        
-            // =============== MAPA ===============
-            for (int r = 0; r < map.getRows(); r++) {
-                for (int c = 0; c < map.getCols(); c++) {
+            updateView(map);
+            updateCamera(map);
+
+            // =============== MAPA (solo la ventana visible) ===============
+            int lastRow = Math.min(map.getRows(), camRow + viewRows);
+            int lastCol = Math.min(map.getCols(), camCol + viewCols);
+            Image floor = spriteManager.get("floor_inactive");
+
+            for (int r = camRow; r < lastRow; r++) {
+                for (int c = camCol; c < lastCol; c++) {
 
                     Position pos = new Position(r, c);
                     Boxy b = map.getBlock(pos);
 
-                    if (b == null) continue;
-
-                    Image img = spriteManager.get(b.getSpriteKey());
-                    g.drawImage(img, c * TILE, r * TILE, TILE, TILE, null);
+                    Image img = b == null ? floor : spriteManager.get(b.getSpriteKey());
+                    g.drawImage(img, (c - camCol) * TILE, (r - camRow) * TILE, TILE, TILE, null);
                 }
             }
 
-            // =============== FRUTAS ===============
-            for (Fruit f : game.getFruits()) {
-                if (!f.isActive()) continue;
-                if (f.isEaten()) continue;
+            // =============== FRUTAS (desde el índice espacial) ===============
+            map.getFruitIndex().visitRect(camRow, camCol, lastRow, lastCol, (r, c, f) -> {
+                if (!f.isActive() || f.isEaten()) return;
+                drawTile(g, spriteManager.get(f.getSpriteKey()), r, c);
+            });
 
-                Image img = spriteManager.get(f.getSpriteKey());
-                Position p = f.getPosition();
-                
-                g.drawImage(img, p.getCol() * TILE, p.getRow() * TILE, TILE, TILE, null);
-            }
-
-            // =============== ENEMIGOS ===============
-            for (Enemy e : game.getEnemies()) {
-
-                String key;
-                switch (e.getType()) {
-                    case flowerpot -> {
-                        Flowerpot fp = (Flowerpot) e;
-                        key = fp.isCharging() ? "flowerpot_on" : "flowerpot";
-                    }
-                    case narval -> key = "enemy_narval";
-                    case yellowSquid -> key = "enemy_squid";
-                    default -> key = "enemy_default";
-                }
-
-                Image img = spriteManager.get(key);
-                Position p = e.getPosition();
-                g.drawImage(img, p.getCol() * TILE, p.getRow() * TILE, TILE, TILE, null);
-            }
+            // =============== ENEMIGOS (desde el índice espacial) ===============
+            map.getEnemyIndex().visitRect(camRow, camCol, lastRow, lastCol,
+                    (r, c, e) -> drawTile(g, spriteManager.get(enemySprite(e)), r, c));
 
             // =============== JUGADORES (CON FLAVOR) ===============
+            // pueden compartir casilla, así que se recorre la lista de la partida (uno o dos)
             for (IceCream pl : game.getPlayers()) {
+                Position p = pl.getPosition();
+                if (p.getRow() < camRow || p.getRow() >= lastRow || p.getCol() < camCol || p.getCol() >= lastCol) continue;
 
                 String flavor = pl.getFlavor();               
                 String state = pl.getSpriteKey();
@@ -717,15 +832,7 @@ public class GameGUI extends JPanel {
                 String key = flavor + "_" + state;           
 
                 Image img = spriteManager.get(key);
-
-                Position pos = pl.getPosition();
-
-                g.drawImage(img,
-                    pos.getCol() * TILE,
-                    pos.getRow() * TILE,
-                    TILE, TILE,
-                    null
-                );
+                drawTile(g, img, p.getRow(), p.getCol());
             }
             // =============== TIMER VISUAL ===============
             int min = visualTime / 60;
@@ -743,6 +850,79 @@ public class GameGUI extends JPanel {
             // =============== BARRA DE FRUTAS ===============
         }
 
+        /**
+         * Calcula cuántas casillas caben en el área del mapa del panel, a la izquierda del
+         * marcador y encima de la barra de frutas, sin pasar del tamaño del mapa.
+         * @param map mapa del juego
+         */
+        private void updateView(GameMap map) {
+            int width = Math.min(getWidth(), HUD_LEFT);
+            int height = Math.min(getHeight(), BAR_TOP);
+            viewCols = Math.min(map.getCols(), Math.max(1, width / TILE));
+            viewRows = Math.min(map.getRows(), Math.max(1, height / TILE));
+        }
+
+        /**
+         * Obtiene el sprite de un enemigo según su tipo y estado.
+         * @param e enemigo
+         * @return clave del sprite
+         */
+        private String enemySprite(Enemy e) {
+            return switch (e.getType()) {
+                case flowerpot -> ((Flowerpot) e).isCharging() ? "flowerpot_on" : "flowerpot";
+                case narval -> "enemy_narval";
+                case yellowSquid -> "enemy_squid";
+                default -> "enemy_default";
+            };
+        }
+
+        /**
+         * Centra la cámara en los jugadores vivos, sin salirse de los bordes del mapa.
+         * Si no queda ninguno vivo la cámara conserva su última posición.
+         * @param map mapa del juego
+         */
+        private void updateCamera(GameMap map) {
+            int sumRow = 0;
+            int sumCol = 0;
+            int alive = 0;
+
+            for (IceCream pl : game.getPlayers()) {
+                if (!pl.isAlive()) continue;
+                sumRow += pl.getPosition().getRow();
+                sumCol += pl.getPosition().getCol();
+                alive++;
+            }
+
+            if (alive > 0) {
+                camRow = clamp(sumRow / alive - viewRows / 2, map.getRows() - viewRows);
+                camCol = clamp(sumCol / alive - viewCols / 2, map.getCols() - viewCols);
+            } else {
+                camRow = clamp(camRow, map.getRows() - viewRows);
+                camCol = clamp(camCol, map.getCols() - viewCols);
+            }
+        }
+
+        /**
+         * Limita un desplazamiento de cámara al rango permitido.
+         * @param value desplazamiento deseado
+         * @param max desplazamiento máximo
+         * @return desplazamiento entre 0 y max
+         */
+        private int clamp(int value, int max) {
+            return Math.max(0, Math.min(value, max));
+        }
+
+        /**
+         * Dibuja una imagen en la casilla indicada, relativa a la cámara.
+         * @param g objeto Graphics utilizado para dibujar.
+         * @param img imagen a dibujar
+         * @param r fila en el mapa
+         * @param c columna en el mapa
+         */
+        private void drawTile(Graphics g, Image img, int r, int c) {
+            g.drawImage(img, (c - camCol) * TILE, (r - camRow) * TILE, TILE, TILE, null);
+        }
+
         /**
          * Establece el tiempo de visualización del juego.
          * @param visualTime nuevo tiempo de visualización.